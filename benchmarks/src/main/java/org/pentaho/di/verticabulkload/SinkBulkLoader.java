@@ -0,0 +1,194 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 - 2026 by Pentaho Canada Inc. : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2030-06-15
+ ******************************************************************************/
+
+
+
+package org.pentaho.di.verticabulkload;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.pentaho.di.core.database.Database;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepDataInterface;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.step.StepMetaInterface;
+
+/**
+ * The Vertica Bulk Loader with the database taken out: no connection is opened, the target table is derived from the
+ * incoming fields and the COPY streams are read to the end and discarded. Everything from the rows received to the
+ * bytes handed to the driver runs as in the real step, so the time it takes is the cost of the plugin alone.
+ */
+public class SinkBulkLoader extends VerticaBulkLoader {
+
+  private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+  private static final int CHUNK_SIZE = 64 * 1024;
+  /** Longest VARCHAR and VARBINARY of Vertica, used for the fields of unknown length */
+  private static final int MAX_VARIABLE_LENGTH = 65000;
+  private static final int DEFAULT_NUMERIC_PRECISION = 37;
+  private static final int DEFAULT_NUMERIC_SCALE = 15;
+
+  private VerticaBulkLoaderMeta loaderMeta;
+  private final AtomicLong rowsCopied = new AtomicLong();
+  private final AtomicLong bytesCopied = new AtomicLong();
+  private final AtomicLong copyCpuNanos = new AtomicLong();
+  private volatile long stepCpuNanos;
+
+  public SinkBulkLoader( StepMeta stepMeta, StepDataInterface stepDataInterface, int copyNr, TransMeta transMeta,
+      Trans trans ) {
+    super( stepMeta, stepDataInterface, copyNr, transMeta, trans );
+  }
+
+  @Override
+  public boolean init( StepMetaInterface smi, StepDataInterface sdi ) {
+    loaderMeta = (VerticaBulkLoaderMeta) smi;
+    // there are no cluster nodes to list
+    loaderMeta.setSpreadAcrossNodes( false );
+    return super.init( smi, sdi );
+  }
+
+  @Override
+  public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
+    super.dispose( smi, sdi );
+    // dispose() is the last call the step thread makes
+    stepCpuNanos = THREADS.getCurrentThreadCpuTime();
+  }
+
+  @Override
+  void connectDatabase( Database db, boolean sharedTransaction ) {
+    // no database
+  }
+
+  @Override
+  long copyStream( LoadStream loadStream, String dml ) throws SQLException {
+    byte[] chunk = new byte[ CHUNK_SIZE ];
+    long bytes = 0;
+    try ( InputStream in = loadStream.copyRing.getInputStream() ) {
+      // a COPY per chunk, when the load is chunked
+      while ( true ) {
+        int read;
+        while ( ( read = in.read( chunk, 0, chunk.length ) ) != -1 ) {
+          bytes += read;
+        }
+        if ( loadStream.copyRing.isDrained() ) {
+          break;
+        }
+        loadStream.chunkEnds.poll();
+      }
+    } catch ( IOException e ) {
+      throw new SQLException( "Unable to read the COPY stream", e );
+    } finally {
+      bytesCopied.addAndGet( bytes );
+      copyCpuNanos.addAndGet( THREADS.getCurrentThreadCpuTime() );
+    }
+    // every row sent is written once the stream is closed
+    rowsCopied.addAndGet( loadStream.rowsSent );
+    return loadStream.rowsSent;
+  }
+
+  /**
+   * @return the target columns: one per incoming field, or per field of the mapping when there is one, typed after the
+   *         Kettle type of the field
+   */
+  @Override
+  RowMetaInterface getTableRowMeta() throws KettleException {
+    RowMetaInterface inputRowMeta = getInputRowMeta();
+    RowMeta tableMeta = new RowMeta();
+    if ( !loaderMeta.specifyFields() ) {
+      for ( ValueMetaInterface inputValueMeta : inputRowMeta.getValueMetaList() ) {
+        tableMeta.addValueMeta( toColumn( inputValueMeta, inputValueMeta.getName() ) );
+      }
+    } else {
+      String[] streamFields = loaderMeta.getFieldStream();
+      String[] tableFields = loaderMeta.getFieldDatabase();
+      for ( int i = 0; i < tableFields.length; i++ ) {
+        ValueMetaInterface inputValueMeta = inputRowMeta.searchValueMeta( streamFields[i] );
+        if ( inputValueMeta != null ) {
+          tableMeta.addValueMeta( toColumn( inputValueMeta, tableFields[i] ) );
+        }
+      }
+    }
+    return tableMeta;
+  }
+
+  private static ValueMetaInterface toColumn( ValueMetaInterface inputValueMeta, String name ) {
+    ValueMetaInterface column = inputValueMeta.clone();
+    column.setName( name );
+    switch ( inputValueMeta.getType() ) {
+      case ValueMetaInterface.TYPE_INTEGER:
+        column.setOriginalColumnTypeName( "INTEGER" );
+        break;
+      case ValueMetaInterface.TYPE_NUMBER:
+        column.setOriginalColumnTypeName( "FLOAT" );
+        break;
+      case ValueMetaInterface.TYPE_BOOLEAN:
+        column.setOriginalColumnTypeName( "BOOLEAN" );
+        break;
+      case ValueMetaInterface.TYPE_DATE:
+      case ValueMetaInterface.TYPE_TIMESTAMP:
+        column.setOriginalColumnTypeName( "TIMESTAMP" );
+        break;
+      case ValueMetaInterface.TYPE_BIGNUMBER:
+        column.setOriginalColumnTypeName( "NUMERIC" );
+        column.setLength( inputValueMeta.getLength() > 0 ? inputValueMeta.getLength() : DEFAULT_NUMERIC_PRECISION,
+            inputValueMeta.getPrecision() >= 0 ? inputValueMeta.getPrecision() : DEFAULT_NUMERIC_SCALE );
+        break;
+      case ValueMetaInterface.TYPE_BINARY:
+        column.setOriginalColumnTypeName( "VARBINARY" );
+        column.setLength( variableLength( inputValueMeta, 1 ) );
+        break;
+      default:
+        column.setOriginalColumnTypeName( "VARCHAR" );
+        // the length of a Kettle string is in characters, the one of a VARCHAR in UTF-8 bytes
+        column.setLength( variableLength( inputValueMeta, 4 ) );
+        break;
+    }
+    return column;
+  }
+
+  private static int variableLength( ValueMetaInterface inputValueMeta, int bytesPerUnit ) {
+    long length = (long) inputValueMeta.getLength() * bytesPerUnit;
+    return length > 0 && length <= MAX_VARIABLE_LENGTH ? (int) length : MAX_VARIABLE_LENGTH;
+  }
+
+  public long getRowsCopied() {
+    return rowsCopied.get();
+  }
+
+  public long getBytesCopied() {
+    return bytesCopied.get();
+  }
+
+  /**
+   * @return CPU time of the step thread, known once the step is disposed
+   */
+  public long getStepCpuNanos() {
+    return stepCpuNanos;
+  }
+
+  /**
+   * @return CPU time of the threads reading the COPY streams
+   */
+  public long getCopyCpuNanos() {
+    return copyCpuNanos.get();
+  }
+}
@@ -0,0 +1,38 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 - 2026 by Pentaho Canada Inc. : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2030-06-15
+ ******************************************************************************/
+
+
+
+package org.pentaho.di.verticabulkload;
+
+import org.pentaho.di.core.annotations.Step;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepDataInterface;
+import org.pentaho.di.trans.step.StepInterface;
+import org.pentaho.di.trans.step.StepMeta;
+
+/**
+ * Registered in place of the Vertica Bulk Loader by the throughput harness, so that the transformations load into a
+ * {@link SinkBulkLoader} without changes.
+ */
+@Step( id = "VerticaBulkLoader", name = "Vertica Bulk Loader (local sink)",
+    description = "Encodes the rows like the Vertica Bulk Loader and discards the COPY stream",
+    categoryDescription = "Bulk loading" )
+public class SinkBulkLoaderMeta extends VerticaBulkLoaderMeta {
+
+  @Override
+  public StepInterface getStep( StepMeta stepMeta, StepDataInterface stepDataInterface, int cnr, TransMeta transMeta,
+      Trans trans ) {
+    return new SinkBulkLoader( stepMeta, stepDataInterface, cnr, transMeta, trans );
+  }
+}
@@ -0,0 +1,129 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 - 2026 by Pentaho Canada Inc. : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2030-06-15
+ ******************************************************************************/
+
+
+
+package org.pentaho.di.verticabulkload.benchmarks;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Date;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBigNumber;
+import org.pentaho.di.core.row.value.ValueMetaBinary;
+import org.pentaho.di.core.row.value.ValueMetaBoolean;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.verticabulkload.nativebinary.ColumnSpec;
+
+/**
+ * The column types the benchmarks are run for: the target column, the Kettle type of the incoming values and a
+ * generator of random values in their native Kettle representation.
+ */
+public enum BenchmarkColumn {
+  INTEGER( () -> new ColumnSpec( ColumnSpec.ConstantWidthType.INTEGER_64 ), () -> new ValueMetaInteger( "c" ),
+    random -> random.nextLong() ),
+  BOOLEAN( () -> new ColumnSpec( ColumnSpec.ConstantWidthType.BOOLEAN ), () -> new ValueMetaBoolean( "c" ),
+    random -> random.nextBoolean() ),
+  FLOAT( () -> new ColumnSpec( ColumnSpec.ConstantWidthType.FLOAT ), () -> new ValueMetaNumber( "c" ),
+    random -> random.nextDouble() * 1e6 ),
+  VARCHAR_ASCII_10( () -> varchar( 10 ), () -> new ValueMetaString( "c" ), random -> ascii( random, 10 ) ),
+  VARCHAR_ASCII_100( () -> varchar( 100 ), () -> new ValueMetaString( "c" ), random -> ascii( random, 100 ) ),
+  VARCHAR_ASCII_1000( () -> varchar( 1000 ), () -> new ValueMetaString( "c" ), random -> ascii( random, 1000 ) ),
+  VARCHAR_UTF8_10( () -> varchar( 30 ), () -> new ValueMetaString( "c" ), random -> international( random, 10 ) ),
+  VARCHAR_UTF8_100( () -> varchar( 300 ), () -> new ValueMetaString( "c" ), random -> international( random, 100 ) ),
+  VARCHAR_UTF8_1000( () -> varchar( 3000 ), () -> new ValueMetaString( "c" ),
+    random -> international( random, 1000 ) ),
+  CHAR_ASCII_20( () -> new ColumnSpec( ColumnSpec.UserDefinedWidthType.CHAR, 20 ), () -> new ValueMetaString( "c" ),
+    random -> ascii( random, 1 + random.nextInt( 20 ) ) ),
+  DATE( () -> new ColumnSpec( ColumnSpec.ConstantWidthType.DATE ), () -> new ValueMetaDate( "c" ),
+    BenchmarkColumn::date ),
+  TIME( () -> new ColumnSpec( ColumnSpec.ConstantWidthType.TIME ), () -> new ValueMetaDate( "c" ),
+    BenchmarkColumn::date ),
+  TIMETZ( () -> new ColumnSpec( ColumnSpec.ConstantWidthType.TIMETZ ), () -> new ValueMetaDate( "c" ),
+    BenchmarkColumn::date ),
+  TIMESTAMP( () -> new ColumnSpec( ColumnSpec.ConstantWidthType.TIMESTAMP ), () -> new ValueMetaDate( "c" ),
+    BenchmarkColumn::date ),
+  TIMESTAMPTZ( () -> new ColumnSpec( ColumnSpec.ConstantWidthType.TIMESTAMPTZ ), () -> new ValueMetaDate( "c" ),
+    BenchmarkColumn::date ),
+  NUMERIC_18_4( () -> new ColumnSpec( ColumnSpec.PrecisionScaleWidthType.NUMERIC, 18, 4 ),
+    () -> new ValueMetaBigNumber( "c" ), random -> BigDecimal.valueOf( random.nextLong() % 1_000_000_000_000_000L, 4 ) ),
+  NUMERIC_37_10( () -> new ColumnSpec( ColumnSpec.PrecisionScaleWidthType.NUMERIC, 37, 10 ),
+    () -> new ValueMetaBigNumber( "c" ), random -> new BigDecimal( new BigInteger( 100, random ), 10 ) ),
+  VARBINARY_64( () -> new ColumnSpec( ColumnSpec.VariableWidthType.VARBINARY, 64 ), () -> new ValueMetaBinary( "c" ),
+    random -> {
+      byte[] bytes = new byte[ 64 ];
+      random.nextBytes( bytes );
+      return bytes;
+    } );
+
+  private static final String INTERNATIONAL = "abcdefghij\u00e4\u00f6\u00fc\u00df\u00e9\u00e8\u00e7\u00f1"
+    + "\u0430\u0431\u0432\u4e2d\u6587\u65e5\u672c\u8a9e\ud55c\uad6d\uc5b4";
+
+  private static final long MIN_MILLIS = 0L; // 1970
+  private static final long MAX_MILLIS = 1893456000000L; // 2030
+
+  private final Supplier<ColumnSpec> spec;
+  private final Supplier<ValueMetaInterface> valueMeta;
+  private final Function<Random, Object> generator;
+
+  BenchmarkColumn( Supplier<ColumnSpec> spec, Supplier<ValueMetaInterface> valueMeta,
+                   Function<Random, Object> generator ) {
+    this.spec = spec;
+    this.valueMeta = valueMeta;
+    this.generator = generator;
+  }
+
+  public ColumnSpec createSpec() {
+    return spec.get();
+  }
+
+  public ValueMetaInterface createValueMeta( String name ) {
+    ValueMetaInterface meta = valueMeta.get();
+    meta.setName( name );
+    return meta;
+  }
+
+  public Object nextValue( Random random ) {
+    return generator.apply( random );
+  }
+
+  private static ColumnSpec varchar( int bytes ) {
+    return new ColumnSpec( ColumnSpec.VariableWidthType.VARCHAR, bytes );
+  }
+
+  private static String ascii( Random random, int length ) {
+    char[] chars = new char[ length ];
+    for ( int i = 0; i < length; i++ ) {
+      chars[ i ] = (char) ( 'a' + random.nextInt( 26 ) );
+    }
+    return new String( chars );
+  }
+
+  private static String international( Random random, int length ) {
+    char[] chars = new char[ length ];
+    for ( int i = 0; i < length; i++ ) {
+      chars[ i ] = INTERNATIONAL.charAt( random.nextInt( INTERNATIONAL.length() ) );
+    }
+    return new String( chars );
+  }
+
+  private static Date date( Random random ) {
+    return new Date( MIN_MILLIS + (long) ( random.nextDouble() * ( MAX_MILLIS - MIN_MILLIS ) ) );
+  }
+}
@@ -0,0 +1,85 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 - 2026 by Pentaho Canada Inc. : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2030-06-15
+ ******************************************************************************/
+
+
+
+package org.pentaho.di.verticabulkload.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.verticabulkload.nativebinary.StreamEncoder;
+
+/**
+ * Rows per second through the encoder and the buffer ring for several buffer sizes and ring depths, the two knobs
+ * that decide how often the step hands a buffer over to the COPY thread and how long it may wait for a free one.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 2 )
+public class BufferFlushBenchmark {
+
+  private static final int ROWS = 10000;
+
+  @Param( { "65536", "1048576", "4194304" } )
+  public int bufferSize;
+
+  @Param( { "2", "4" } )
+  public int depth;
+
+  private DrainedRing ring;
+  private StreamEncoder encoder;
+  private RowMetaInterface rowMeta;
+  private Object[][] rows;
+
+  @Setup( Level.Trial )
+  public void setUp() throws IOException {
+    ring = new DrainedRing( depth );
+    encoder = new StreamEncoder( RowShape.NARROW.createSpecs(), ring.getRing(), bufferSize );
+    encoder.writeHeader();
+    rowMeta = RowShape.NARROW.createRowMeta();
+    rows = RowShape.NARROW.createRows( ROWS, 42 );
+  }
+
+  @TearDown( Level.Trial )
+  public void tearDown() throws IOException, InterruptedException {
+    encoder.close();
+    ring.close();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation( ROWS )
+  public void writeRows() throws IOException, KettleValueException {
+    for ( Object[] row : rows ) {
+      encoder.writeRow( rowMeta, row );
+    }
+  }
+}
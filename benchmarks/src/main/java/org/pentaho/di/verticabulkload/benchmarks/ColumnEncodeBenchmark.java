@@ -0,0 +1,82 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 - 2026 by Pentaho Canada Inc. : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2030-06-15
+ ******************************************************************************/
+
+
+
+package org.pentaho.di.verticabulkload.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.verticabulkload.nativebinary.ColumnSpec;
+
+/**
+ * Time to encode a single value into the NATIVE format, per column type. The values cycle through a fixed set of
+ * random ones so that branch prediction does not learn a single value.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 2 )
+public class ColumnEncodeBenchmark {
+
+  private static final int VALUES = 1024;
+
+  @Param( { "INTEGER", "BOOLEAN", "FLOAT", "VARCHAR_ASCII_10", "VARCHAR_ASCII_100", "VARCHAR_ASCII_1000",
+    "VARCHAR_UTF8_10", "VARCHAR_UTF8_100", "VARCHAR_UTF8_1000", "CHAR_ASCII_20", "DATE", "TIME", "TIMETZ", "TIMESTAMP",
+    "TIMESTAMPTZ", "NUMERIC_18_4", "NUMERIC_37_10", "VARBINARY_64" } )
+  public BenchmarkColumn column;
+
+  private ColumnSpec spec;
+  private ValueMetaInterface valueMeta;
+  private ByteBuffer buffer;
+  private Object[] values;
+  private int next;
+
+  @Setup( Level.Trial )
+  public void setUp() {
+    spec = column.createSpec();
+    valueMeta = column.createValueMeta( "c" );
+    buffer = ByteBuffer.allocate( 64 * 1024 ).order( ByteOrder.LITTLE_ENDIAN );
+    spec.setMainBuffer( buffer );
+    Random random = new Random( 42 );
+    values = new Object[ VALUES ];
+    for ( int i = 0; i < VALUES; i++ ) {
+      values[ i ] = column.nextValue( random );
+    }
+  }
+
+  @Benchmark
+  public int encode() throws KettleValueException {
+    buffer.clear();
+    spec.encode( valueMeta, values[ next++ & ( VALUES - 1 ) ] );
+    return buffer.position();
+  }
+}
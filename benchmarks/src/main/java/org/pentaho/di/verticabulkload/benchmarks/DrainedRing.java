@@ -0,0 +1,66 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 - 2026 by Pentaho Canada Inc. : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2030-06-15
+ ******************************************************************************/
+
+
+
+package org.pentaho.di.verticabulkload.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.pentaho.di.verticabulkload.nativebinary.ByteBufferRing;
+
+/**
+ * A buffer ring whose stream is read to the end by a background thread and thrown away, standing in for the COPY
+ * statement so that the encoder never blocks on a full ring for longer than a copy takes.
+ */
+final class DrainedRing implements AutoCloseable {
+
+  private final ByteBufferRing ring;
+  private final Thread drainer;
+  private volatile long bytesDrained;
+
+  DrainedRing( int depth ) {
+    ring = new ByteBufferRing( depth );
+    drainer = new Thread( this::drain, "benchmark-drainer" );
+    drainer.setDaemon( true );
+    drainer.start();
+  }
+
+  ByteBufferRing getRing() {
+    return ring;
+  }
+
+  long getBytesDrained() {
+    return bytesDrained;
+  }
+
+  private void drain() {
+    byte[] chunk = new byte[ 64 * 1024 ];
+    long total = 0;
+    try ( InputStream in = ring.getInputStream() ) {
+      int read;
+      while ( ( read = in.read( chunk, 0, chunk.length ) ) != -1 ) {
+        total += read;
+        bytesDrained = total;
+      }
+    } catch ( IOException e ) {
+      // aborted
+    }
+  }
+
+  @Override
+  public void close() throws InterruptedException {
+    ring.close();
+    drainer.join();
+  }
+}
@@ -0,0 +1,85 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 - 2026 by Pentaho Canada Inc. : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2030-06-15
+ ******************************************************************************/
+
+
+
+package org.pentaho.di.verticabulkload.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.verticabulkload.nativebinary.ColumnarStreamEncoder;
+import org.pentaho.di.verticabulkload.nativebinary.StreamEncoder;
+
+/**
+ * Time for {@link StreamEncoder#writeRow(RowMetaInterface, Object[])} to encode a whole row, including the buffer
+ * handoffs it makes along the way, row by row or by columnar batches. The stream is drained and discarded by a
+ * background thread.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 2 )
+public class RowEncodeBenchmark {
+
+  private static final int ROWS = 1024;
+
+  @Param( { "NARROW", "WIDE_300", "NULL_HEAVY", "METRICS_300" } )
+  public RowShape shape;
+
+  @Param( { "ROW", "COLUMNAR" } )
+  public String encoding;
+
+  private DrainedRing ring;
+  private StreamEncoder encoder;
+  private RowMetaInterface rowMeta;
+  private Object[][] rows;
+  private int next;
+
+  @Setup( Level.Trial )
+  public void setUp() throws IOException {
+    ring = new DrainedRing( 4 );
+    encoder = "COLUMNAR".equals( encoding ) ? new ColumnarStreamEncoder( shape.createSpecs(), ring.getRing() )
+      : new StreamEncoder( shape.createSpecs(), ring.getRing() );
+    encoder.writeHeader();
+    rowMeta = shape.createRowMeta();
+    rows = shape.createRows( ROWS, 42 );
+  }
+
+  @TearDown( Level.Trial )
+  public void tearDown() throws IOException, InterruptedException {
+    encoder.close();
+    ring.close();
+  }
+
+  @Benchmark
+  public void writeRow() throws IOException, KettleValueException {
+    encoder.writeRow( rowMeta, rows[ next++ & ( ROWS - 1 ) ] );
+  }
+}
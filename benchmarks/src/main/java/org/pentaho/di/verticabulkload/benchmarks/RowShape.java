@@ -0,0 +1,109 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 - 2026 by Pentaho Canada Inc. : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2030-06-15
+ ******************************************************************************/
+
+
+
+package org.pentaho.di.verticabulkload.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.verticabulkload.nativebinary.ColumnSpec;
+
+/**
+ * The rows the full-row benchmarks encode.
+ */
+public enum RowShape {
+  /** A typical fact row: id, name, amount, timestamp and flag */
+  NARROW( 0, BenchmarkColumn.INTEGER, BenchmarkColumn.VARCHAR_ASCII_10, BenchmarkColumn.NUMERIC_18_4,
+    BenchmarkColumn.TIMESTAMP, BenchmarkColumn.BOOLEAN ),
+  /** 300 columns of mixed types */
+  WIDE_300( 0, wide() ),
+  /** The 300 mixed columns, 90% of the values being null */
+  NULL_HEAVY( 0.9, wide() ),
+  /** 300 columns of a metrics table, 90% of them INTEGER, FLOAT or TIMESTAMP */
+  METRICS_300( 0, metrics() );
+
+  private static final int WIDE_COLUMNS = 300;
+
+  private final double nullRatio;
+  private final BenchmarkColumn[] columns;
+
+  RowShape( double nullRatio, BenchmarkColumn... columns ) {
+    this.nullRatio = nullRatio;
+    this.columns = columns;
+  }
+
+  public List<ColumnSpec> createSpecs() {
+    List<ColumnSpec> specs = new ArrayList<>( columns.length );
+    for ( BenchmarkColumn column : columns ) {
+      specs.add( column.createSpec() );
+    }
+    return specs;
+  }
+
+  public RowMetaInterface createRowMeta() {
+    RowMeta rowMeta = new RowMeta();
+    for ( int i = 0; i < columns.length; i++ ) {
+      rowMeta.addValueMeta( columns[ i ].createValueMeta( "c" + i ) );
+    }
+    return rowMeta;
+  }
+
+  /**
+   * @return <tt>count</tt> random rows, the same ones for the same seed
+   */
+  public Object[][] createRows( int count, long seed ) {
+    Random random = new Random( seed );
+    Object[][] rows = new Object[ count ][];
+    for ( int r = 0; r < count; r++ ) {
+      Object[] row = new Object[ columns.length ];
+      for ( int c = 0; c < columns.length; c++ ) {
+        row[ c ] = random.nextDouble() < nullRatio ? null : columns[ c ].nextValue( random );
+      }
+      rows[ r ] = row;
+    }
+    return rows;
+  }
+
+  private static BenchmarkColumn[] wide() {
+    BenchmarkColumn[] cycle = { BenchmarkColumn.INTEGER, BenchmarkColumn.FLOAT, BenchmarkColumn.VARCHAR_ASCII_10,
+      BenchmarkColumn.VARCHAR_UTF8_10, BenchmarkColumn.DATE, BenchmarkColumn.TIMESTAMP, BenchmarkColumn.NUMERIC_18_4,
+      BenchmarkColumn.BOOLEAN };
+    BenchmarkColumn[] wide = new BenchmarkColumn[ WIDE_COLUMNS ];
+    for ( int i = 0; i < WIDE_COLUMNS; i++ ) {
+      wide[ i ] = cycle[ i % cycle.length ];
+    }
+    return wide;
+  }
+
+  private static BenchmarkColumn[] metrics() {
+    BenchmarkColumn[] metrics = new BenchmarkColumn[ WIDE_COLUMNS ];
+    for ( int i = 0; i < WIDE_COLUMNS; i++ ) {
+      switch ( i % 10 ) {
+        case 0:
+          metrics[ i ] = BenchmarkColumn.TIMESTAMP;
+          break;
+        case 9:
+          metrics[ i ] = BenchmarkColumn.VARCHAR_ASCII_10;
+          break;
+        default:
+          metrics[ i ] = i % 2 == 0 ? BenchmarkColumn.INTEGER : BenchmarkColumn.FLOAT;
+          break;
+      }
+    }
+    return metrics;
+  }
+}
@@ -0,0 +1,204 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 - 2026 by Pentaho Canada Inc. : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2030-06-15
+ ******************************************************************************/
+
+
+
+package org.pentaho.di.verticabulkload.benchmarks;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.pentaho.di.core.KettleEnvironment;
+import org.pentaho.di.core.annotations.Step;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.logging.LogLevel;
+import org.pentaho.di.core.plugins.PluginRegistry;
+import org.pentaho.di.core.plugins.StepPluginType;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepMetaDataCombi;
+import org.pentaho.di.verticabulkload.SinkBulkLoader;
+import org.pentaho.di.verticabulkload.SinkBulkLoaderMeta;
+
+/**
+ * Runs transformations headlessly with the Vertica Bulk Loader steps writing to a {@link SinkBulkLoader} instead of
+ * Vertica, and reports per transformation:
+ * <ul>
+ * <li>the rows and bytes per second through the loader steps, from the start of the transformation to its end;</li>
+ * <li>the CPU time of the step threads and of the threads reading the COPY streams;</li>
+ * <li>the time spent in garbage collection and the peak heap usage, summed over the heap pools.</li>
+ * </ul>
+ * Usage: <tt>ThroughputHarness [-csv results.csv] [-Dname=value ...] transformation.ktr ...</tt>, the variables being
+ * set on every transformation.
+ */
+public class ThroughputHarness {
+
+  private static final String HEADER = String.format( Locale.ROOT, "%-45s %6s %12s %9s %12s %9s %10s %10s %9s %9s",
+      "transformation", "errors", "rows", "seconds", "rows/s", "MB/s", "step cpu", "copy cpu", "gc ms", "heap MB" );
+
+  private static final String CSV_HEADER =
+      "transformation,errors,rows,bytes,seconds,rows_per_second,bytes_per_second,step_cpu_ms,copy_cpu_ms,gc_ms,"
+      + "peak_heap_bytes";
+
+  private ThroughputHarness() {
+  }
+
+  public static void main( String[] args ) throws Exception {
+    String csvFile = null;
+    List<String[]> variables = new ArrayList<>();
+    List<String> files = new ArrayList<>();
+    for ( int i = 0; i < args.length; i++ ) {
+      if ( "-csv".equals( args[i] ) && i + 1 < args.length ) {
+        csvFile = args[++i];
+      } else if ( args[i].startsWith( "-D" ) && args[i].indexOf( '=' ) > 2 ) {
+        int equals = args[i].indexOf( '=' );
+        variables.add( new String[] { args[i].substring( 2, equals ), args[i].substring( equals + 1 ) } );
+      } else {
+        files.add( args[i] );
+      }
+    }
+    if ( files.isEmpty() ) {
+      System.err.println( "Usage: ThroughputHarness [-csv results.csv] [-Dname=value ...] transformation.ktr ..." );
+      System.exit( 2 );
+    }
+
+    KettleEnvironment.init( false );
+    PluginRegistry.getInstance().registerPluginClass( SinkBulkLoaderMeta.class.getName(), StepPluginType.class,
+        Step.class );
+
+    List<Result> results = new ArrayList<>();
+    System.out.println( HEADER );
+    for ( String file : files ) {
+      Result result = run( file, variables );
+      results.add( result );
+      System.out.println( result.format() );
+    }
+    if ( csvFile != null ) {
+      writeCsv( csvFile, results );
+    }
+    KettleEnvironment.shutdown();
+  }
+
+  static Result run( String file, List<String[]> variables ) throws KettleException {
+    TransMeta transMeta = new TransMeta( file );
+    Trans trans = new Trans( transMeta );
+    trans.setLogLevel( LogLevel.MINIMAL );
+    for ( String[] variable : variables ) {
+      trans.setVariable( variable[0], variable[1] );
+    }
+
+    // start from a clean heap, so that the peak is the one of this transformation
+    System.gc();
+    long gcStart = gcMillis();
+    for ( MemoryPoolMXBean pool : heapPools() ) {
+      pool.resetPeakUsage();
+    }
+    long start = System.nanoTime();
+    trans.execute( null );
+    trans.waitUntilFinished();
+    long elapsed = System.nanoTime() - start;
+
+    Result result = new Result( new File( file ).getName() );
+    result.errors = trans.getErrors();
+    result.nanos = elapsed;
+    result.gcMillis = gcMillis() - gcStart;
+    for ( MemoryPoolMXBean pool : heapPools() ) {
+      result.peakHeapBytes += pool.getPeakUsage().getUsed();
+    }
+    for ( StepMetaDataCombi combi : trans.getSteps() ) {
+      if ( combi.step instanceof SinkBulkLoader ) {
+        SinkBulkLoader loader = (SinkBulkLoader) combi.step;
+        result.rows += loader.getRowsCopied();
+        result.bytes += loader.getBytesCopied();
+        result.stepCpuNanos += loader.getStepCpuNanos();
+        result.copyCpuNanos += loader.getCopyCpuNanos();
+      }
+    }
+    return result;
+  }
+
+  private static long gcMillis() {
+    long millis = 0;
+    for ( GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans() ) {
+      millis += Math.max( 0, collector.getCollectionTime() );
+    }
+    return millis;
+  }
+
+  private static List<MemoryPoolMXBean> heapPools() {
+    List<MemoryPoolMXBean> pools = new ArrayList<>();
+    for ( MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans() ) {
+      if ( pool.getType() == MemoryType.HEAP && pool.isValid() ) {
+        pools.add( pool );
+      }
+    }
+    return pools;
+  }
+
+  private static void writeCsv( String csvFile, List<Result> results ) throws IOException {
+    try ( PrintWriter out = new PrintWriter( new FileWriter( csvFile ) ) ) {
+      out.println( CSV_HEADER );
+      for ( Result result : results ) {
+        out.println( result.toCsv() );
+      }
+    }
+  }
+
+  static final class Result {
+    final String name;
+    int errors;
+    long rows;
+    long bytes;
+    long nanos;
+    long stepCpuNanos;
+    long copyCpuNanos;
+    long gcMillis;
+    long peakHeapBytes;
+
+    Result( String name ) {
+      this.name = name;
+    }
+
+    double seconds() {
+      return nanos / 1e9;
+    }
+
+    double rowsPerSecond() {
+      return nanos > 0 ? rows / seconds() : 0;
+    }
+
+    double bytesPerSecond() {
+      return nanos > 0 ? bytes / seconds() : 0;
+    }
+
+    String format() {
+      return String.format( Locale.ROOT, "%-45s %6d %12d %9.2f %12.0f %9.1f %10d %10d %9d %9d", name, errors, rows,
+          seconds(), rowsPerSecond(), bytesPerSecond() / ( 1024 * 1024 ), stepCpuNanos / 1000000,
+          copyCpuNanos / 1000000, gcMillis, peakHeapBytes / ( 1024 * 1024 ) );
+    }
+
+    String toCsv() {
+      return String.format( Locale.ROOT, "%s,%d,%d,%d,%.3f,%.0f,%.0f,%d,%d,%d,%d", name, errors, rows, bytes,
+          seconds(), rowsPerSecond(), bytesPerSecond(), stepCpuNanos / 1000000, copyCpuNanos / 1000000, gcMillis,
+          peakHeapBytes );
+    }
+  }
+}
@@ -72,7 +72,10 @@ import org.pentaho.di.ui.core.widget.ColumnInfo;
 import org.pentaho.di.ui.core.widget.TableView;
 import org.pentaho.di.ui.core.widget.TextVar;
 import org.pentaho.di.ui.trans.step.BaseStepDialog;
+import org.pentaho.di.verticabulkload.RejectionLogWriter;
 import org.pentaho.di.verticabulkload.VerticaBulkLoaderMeta;
+import org.pentaho.di.verticabulkload.nativebinary.ByteBufferRing;
+import org.pentaho.di.verticabulkload.nativebinary.StreamEncoder;
 
 
 
@@ -113,6 +116,62 @@ public class VerticaBulkLoaderDialog extends BaseStepDialog implements StepDialo
   private TextVar wStreamName;
   private FormData fdlStreamName, fdStreamName;
 
+  private Label wlBufferQueueDepth;
+  private TextVar wBufferQueueDepth;
+  private FormData fdlBufferQueueDepth, fdBufferQueueDepth;
+
+  private Label wlBufferSize;
+  private TextVar wBufferSize;
+  private FormData fdlBufferSize, fdBufferSize;
+
+  private Label wlParallelStreams;
+  private TextVar wParallelStreams;
+  private FormData fdlParallelStreams, fdParallelStreams;
+
+  private Label wlDistributionFields;
+  private TextVar wDistributionFields;
+  private FormData fdlDistributionFields, fdDistributionFields;
+
+  private Label wlSpreadAcrossNodes;
+  private Button wSpreadAcrossNodes;
+  private FormData fdlSpreadAcrossNodes, fdSpreadAcrossNodes;
+
+  private Label wlEncoderThreads;
+  private TextVar wEncoderThreads;
+  private FormData fdlEncoderThreads, fdEncoderThreads;
+
+  private Label wlStackTracePolicy;
+  private CCombo wStackTracePolicy;
+  private FormData fdlStackTracePolicy, fdStackTracePolicy;
+
+  private Label wlChunkRows;
+  private TextVar wChunkRows;
+  private FormData fdlChunkRows, fdChunkRows;
+
+  private Label wlChunkBytes;
+  private TextVar wChunkBytes;
+  private FormData fdlChunkBytes, fdChunkBytes;
+
+  private Label wlCommitLatency;
+  private TextVar wCommitLatency;
+  private FormData fdlCommitLatency, fdCommitLatency;
+
+  private Label wlStagingDirectory;
+  private TextVar wStagingDirectory;
+  private FormData fdlStagingDirectory, fdStagingDirectory;
+
+  private Label wlStagingFileBytes;
+  private TextVar wStagingFileBytes;
+  private FormData fdlStagingFileBytes, fdStagingFileBytes;
+
+  private Label wlCompression;
+  private TextVar wCompression;
+  private FormData fdlCompression, fdCompression;
+
+  private Label wlColumnarEncoding;
+  private Button wColumnarEncoding;
+  private FormData fdlColumnarEncoding, fdColumnarEncoding;
+
   private Label wlAbortOnError;
   private Button wAbortOnError;
   private FormData fdlAbortOnError, fdAbortOnError;
@@ -431,6 +490,324 @@ public class VerticaBulkLoaderDialog extends BaseStepDialog implements StepDialo
     fdStreamName.right = new FormAttachment( 100, 0 );
     wStreamName.setLayoutData( fdStreamName );
 
+    // BufferQueueDepth line...
+    wlBufferQueueDepth = new Label( wMainComp, SWT.RIGHT );
+    wlBufferQueueDepth.setText( BaseMessages.getString( PKG, "VerticaBulkLoaderDialog.BufferQueueDepth.Label" ) ); //$NON-NLS-1$
+    wlBufferQueueDepth.setToolTipText( BaseMessages.getString( PKG,
+        "VerticaBulkLoaderDialog.BufferQueueDepth.Tooltip" ) ); //$NON-NLS-1$
+    props.setLook( wlBufferQueueDepth );
+    fdlBufferQueueDepth = new FormData();
+    fdlBufferQueueDepth.left = new FormAttachment( 0, 0 );
+    fdlBufferQueueDepth.right = new FormAttachment( middle, -margin );
+    fdlBufferQueueDepth.top = new FormAttachment( wStreamName, margin * 2 );
+    wlBufferQueueDepth.setLayoutData( fdlBufferQueueDepth );
+
+    wBufferQueueDepth = new TextVar( transMeta, wMainComp, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    wBufferQueueDepth.setToolTipText( BaseMessages.getString( PKG,
+        "VerticaBulkLoaderDialog.BufferQueueDepth.Tooltip" ) ); //$NON-NLS-1$
+    props.setLook( wBufferQueueDepth );
+    wBufferQueueDepth.addModifyListener( lsMod );
+    wBufferQueueDepth.addFocusListener( lsFocusLost );
+    fdBufferQueueDepth = new FormData();
+    fdBufferQueueDepth.left = new FormAttachment( middle, 0 );
+    fdBufferQueueDepth.top = new FormAttachment( wStreamName, margin * 2 );
+    fdBufferQueueDepth.right = new FormAttachment( 100, 0 );
+    wBufferQueueDepth.setLayoutData( fdBufferQueueDepth );
+
+    // BufferSize line...
+    wlBufferSize = new Label( wMainComp, SWT.RIGHT );
+    wlBufferSize.setText( BaseMessages.getString( PKG, "VerticaBulkLoaderDialog.BufferSize.Label" ) ); //$NON-NLS-1$
+    wlBufferSize.setToolTipText( BaseMessages.getString( PKG, "VerticaBulkLoaderDialog.BufferSize.Tooltip" ) ); //$NON-NLS-1$
+    props.setLook( wlBufferSize );
+    fdlBufferSize = new FormData();
+    fdlBufferSize.left = new FormAttachment( 0, 0 );
+    fdlBufferSize.right = new FormAttachment( middle, -margin );
+    fdlBufferSize.top = new FormAttachment( wBufferQueueDepth, margin * 2 );
+    wlBufferSize.setLayoutData( fdlBufferSize );
+
+    wBufferSize = new TextVar( transMeta, wMainComp, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    wBufferSize.setToolTipText( BaseMessages.getString( PKG, "VerticaBulkLoaderDialog.BufferSize.Tooltip" ) ); //$NON-NLS-1$
+    props.setLook( wBufferSize );
+    wBufferSize.addModifyListener( lsMod );
+    wBufferSize.addFocusListener( lsFocusLost );
+    fdBufferSize = new FormData();
+    fdBufferSize.left = new FormAttachment( middle, 0 );
+    fdBufferSize.top = new FormAttachment( wBufferQueueDepth, margin * 2 );
+    fdBufferSize.right = new FormAttachment( 100, 0 );
+    wBufferSize.setLayoutData( fdBufferSize );
+
+    // ParallelStreams line...
+    wlParallelStreams = new Label( wMainComp, SWT.RIGHT );
+    wlParallelStreams.setText( BaseMessages.getString( PKG, "VerticaBulkLoaderDialog.ParallelStreams.Label" ) ); //$NON-NLS-1$
+    wlParallelStreams.setToolTipText( BaseMessages.getString( PKG, "VerticaBulkLoaderDialog.ParallelStreams.Tooltip" ) ); //$NON-NLS-1$
+    props.setLook( wlParallelStreams );
+    fdlParallelStreams = new FormData();
+    fdlParallelStreams.left = new FormAttachment( 0, 0 );
+    fdlParallelStreams.right = new FormAttachment( middle, -margin );
+    fdlParallelStreams.top = new FormAttachment( wBufferSize, margin * 2 );
+    wlParallelStreams.setLayoutData( fdlParallelStreams );
+
+    wParallelStreams = new TextVar( transMeta, wMainComp, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    wParallelStreams.setToolTipText( BaseMessages.getString( PKG, "VerticaBulkLoaderDialog.ParallelStreams.Tooltip" ) ); //$NON-NLS-1$
+    props.setLook( wParallelStreams );
+    wParallelStreams.addModifyListener( lsMod );
+    wParallelStreams.addFocusListener( lsFocusLost );
+    fdParallelStreams = new FormData();
+    fdParallelStreams.left = new FormAttachment( middle, 0 );
+    fdParallelStreams.top = new FormAttachment( wBufferSize, margin * 2 );
+    fdParallelStreams.right = new FormAttachment( 100, 0 );
+    wParallelStreams.setLayoutData( fdParallelStreams );
+
+    // DistributionFields line...
+    wlDistributionFields = new Label( wMainComp, SWT.RIGHT );
+    wlDistributionFields.setText( BaseMessages.getString( PKG, "VerticaBulkLoaderDialog.DistributionFields.Label" ) ); //$NON-NLS-1$
+    wlDistributionFields.setToolTipText( BaseMessages.getString( PKG, "VerticaBulkLoaderDialog.DistributionFields.Tooltip" ) ); //$NON-NLS-1$
+    props.setLook( wlDistributionFields );
+    fdlDistributionFields = new FormData();
+    fdlDistributionFields.left = new FormAttachment( 0, 0 );
+    fdlDistributionFields.right = new FormAttachment( middle, -margin );
+    fdlDistributionFields.top = new FormAttachment( wParallelStreams, margin * 2 );
+    wlDistributionFields.setLayoutData( fdlDistributionFields );
+
+    wDistributionFields = new TextVar( transMeta, wMainComp, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    wDistributionFields.setToolTipText( BaseMessages.getString( PKG, "VerticaBulkLoaderDialog.DistributionFields.Tooltip" ) ); //$NON-NLS-1$
+    props.setLook( wDistributionFields );
+    wDistributionFields.addModifyListener( lsMod );
+    wDistributionFields.addFocusListener( lsFocusLost );
+    fdDistributionFields = new FormData();
+    fdDistributionFields.left = new FormAttachment( middle, 0 );
+    fdDistributionFields.top = new FormAttachment( wParallelStreams, margin * 2 );
+    fdDistributionFields.right = new FormAttachment( 100, 0 );
+    wDistributionFields.setLayoutData( fdDistributionFields );
+
+    // SpreadAcrossNodes line...
+    wlSpreadAcrossNodes = new Label( wMainComp, SWT.RIGHT );
+    wlSpreadAcrossNodes.setText( BaseMessages.getString( PKG, "VerticaBulkLoaderDialog.SpreadAcrossNodes.Label" ) ); //$NON-NLS-1$
+    wlSpreadAcrossNodes.setToolTipText( BaseMessages.getString( PKG, "VerticaBulkLoaderDialog.SpreadAcrossNodes.Tooltip" ) ); //$NON-NLS-1$
+    props.setLook( wlSpreadAcrossNodes );
+    fdlSpreadAcrossNodes = new FormData();
+    fdlSpreadAcrossNodes.left = new FormAttachment( 0, 0 );
+    fdlSpreadAcrossNodes.right = new FormAttachment( middle, -margin );
+    fdlSpreadAcrossNodes.top = new FormAttachment( wDistributionFields, margin * 2 );
+    wlSpreadAcrossNodes.setLayoutData( fdlSpreadAcrossNodes );
+
+    wSpreadAcrossNodes = new Button( wMainComp, SWT.CHECK );
+    wSpreadAcrossNodes.setToolTipText( BaseMessages.getString( PKG, "VerticaBulkLoaderDialog.SpreadAcrossNodes.Tooltip" ) ); //$NON-NLS-1$
+    props.setLook( wSpreadAcrossNodes );
+    fdSpreadAcrossNodes = new FormData();
+    fdSpreadAcrossNodes.left = new FormAttachment( middle, 0 );
+    fdSpreadAcrossNodes.top = new FormAttachment( wDistributionFields, margin * 2 );
+    fdSpreadAcrossNodes.right = new FormAttachment( 100, 0 );
+    wSpreadAcrossNodes.setLayoutData( fdSpreadAcrossNodes );
+    wSpreadAcrossNodes.addSelectionListener( new SelectionAdapter() {
+      public void widgetSelected( SelectionEvent e ) {
+        input.setChanged();
+      }
+    } );
+
+    // EncoderThreads line...
+    wlEncoderThreads = new Label( wMainComp, SWT.RIGHT );
+    wlEncoderThreads.setText( BaseMessages.getString( PKG, "VerticaBulkLoaderDialog.EncoderThreads.Label" ) ); //$NON-NLS-1$
+    wlEncoderThreads.setToolTipText( BaseMessages.getString( PKG, "VerticaBulkLoaderDialog.EncoderThreads.Tooltip" ) ); //$NON-NLS-1$
+    props.setLook( wlEncoderThreads );
+    fdlEncoderThreads = new FormData();
+    fdlEncoderThreads.left = new FormAttachment( 0, 0 );
+    fdlEncoderThreads.right = new FormAttachment( middle, -margin );
+    fdlEncoderThreads.top = new FormAttachment( wSpreadAcrossNodes, margin * 2 );
+    wlEncoderThreads.setLayoutData( fdlEncoderThreads );
+
+    wEncoderThreads = new TextVar( transMeta, wMainComp, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    wEncoderThreads.setToolTipText( BaseMessages.getString( PKG, "VerticaBulkLoaderDialog.EncoderThreads.Tooltip" ) ); //$NON-NLS-1$
+    props.setLook( wEncoderThreads );
+    wEncoderThreads.addModifyListener( lsMod );
+    wEncoderThreads.addFocusListener( lsFocusLost );
+    fdEncoderThreads = new FormData();
+    fdEncoderThreads.left = new FormAttachment( middle, 0 );
+    fdEncoderThreads.top = new FormAttachment( wSpreadAcrossNodes, margin * 2 );
+    fdEncoderThreads.right = new FormAttachment( 100, 0 );
+    wEncoderThreads.setLayoutData( fdEncoderThreads );
+
+    // StackTracePolicy line...
+    wlStackTracePolicy = new Label( wMainComp, SWT.RIGHT );
+    wlStackTracePolicy.setText( BaseMessages.getString( PKG, "VerticaBulkLoaderDialog.StackTracePolicy.Label" ) ); //$NON-NLS-1$
+    wlStackTracePolicy.setToolTipText( BaseMessages.getString( PKG, "VerticaBulkLoaderDialog.StackTracePolicy.Tooltip" ) ); //$NON-NLS-1$
+    props.setLook( wlStackTracePolicy );
+    fdlStackTracePolicy = new FormData();
+    fdlStackTracePolicy.left = new FormAttachment( 0, 0 );
+    fdlStackTracePolicy.right = new FormAttachment( middle, -margin );
+    fdlStackTracePolicy.top = new FormAttachment( wEncoderThreads, margin * 2 );
+    wlStackTracePolicy.setLayoutData( fdlStackTracePolicy );
+
+    wStackTracePolicy = new CCombo( wMainComp, SWT.SINGLE | SWT.READ_ONLY | SWT.BORDER );
+    for ( RejectionLogWriter.StackTracePolicy policy : RejectionLogWriter.StackTracePolicy.values() ) {
+      wStackTracePolicy.add( policy.name() );
+    }
+    wStackTracePolicy.setToolTipText( BaseMessages.getString( PKG, "VerticaBulkLoaderDialog.StackTracePolicy.Tooltip" ) ); //$NON-NLS-1$
+    props.setLook( wStackTracePolicy );
+    wStackTracePolicy.addModifyListener( lsMod );
+    fdStackTracePolicy = new FormData();
+    fdStackTracePolicy.left = new FormAttachment( middle, 0 );
+    fdStackTracePolicy.top = new FormAttachment( wEncoderThreads, margin * 2 );
+    fdStackTracePolicy.right = new FormAttachment( 100, 0 );
+    wStackTracePolicy.setLayoutData( fdStackTracePolicy );
+
+    // ChunkRows line...
+    wlChunkRows = new Label( wMainComp, SWT.RIGHT );
+    wlChunkRows.setText( BaseMessages.getString( PKG, "VerticaBulkLoaderDialog.ChunkRows.Label" ) ); //$NON-NLS-1$
+    wlChunkRows.setToolTipText( BaseMessages.getString( PKG, "VerticaBulkLoaderDialog.ChunkRows.Tooltip" ) ); //$NON-NLS-1$
+    props.setLook( wlChunkRows );
+    fdlChunkRows = new FormData();
+    fdlChunkRows.left = new FormAttachment( 0, 0 );
+    fdlChunkRows.right = new FormAttachment( middle, -margin );
+    fdlChunkRows.top = new FormAttachment( wStackTracePolicy, margin * 2 );
+    wlChunkRows.setLayoutData( fdlChunkRows );
+
+    wChunkRows = new TextVar( transMeta, wMainComp, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    wChunkRows.setToolTipText( BaseMessages.getString( PKG, "VerticaBulkLoaderDialog.ChunkRows.Tooltip" ) ); //$NON-NLS-1$
+    props.setLook( wChunkRows );
+    wChunkRows.addModifyListener( lsMod );
+    wChunkRows.addFocusListener( lsFocusLost );
+    fdChunkRows = new FormData();
+    fdChunkRows.left = new FormAttachment( middle, 0 );
+    fdChunkRows.top = new FormAttachment( wStackTracePolicy, margin * 2 );
+    fdChunkRows.right = new FormAttachment( 100, 0 );
+    wChunkRows.setLayoutData( fdChunkRows );
+
+    // ChunkBytes line...
+    wlChunkBytes = new Label( wMainComp, SWT.RIGHT );
+    wlChunkBytes.setText( BaseMessages.getString( PKG, "VerticaBulkLoaderDialog.ChunkBytes.Label" ) ); //$NON-NLS-1$
+    wlChunkBytes.setToolTipText( BaseMessages.getString( PKG, "VerticaBulkLoaderDialog.ChunkBytes.Tooltip" ) ); //$NON-NLS-1$
+    props.setLook( wlChunkBytes );
+    fdlChunkBytes = new FormData();
+    fdlChunkBytes.left = new FormAttachment( 0, 0 );
+    fdlChunkBytes.right = new FormAttachment( middle, -margin );
+    fdlChunkBytes.top = new FormAttachment( wChunkRows, margin * 2 );
+    wlChunkBytes.setLayoutData( fdlChunkBytes );
+
+    wChunkBytes = new TextVar( transMeta, wMainComp, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    wChunkBytes.setToolTipText( BaseMessages.getString( PKG, "VerticaBulkLoaderDialog.ChunkBytes.Tooltip" ) ); //$NON-NLS-1$
+    props.setLook( wChunkBytes );
+    wChunkBytes.addModifyListener( lsMod );
+    wChunkBytes.addFocusListener( lsFocusLost );
+    fdChunkBytes = new FormData();
+    fdChunkBytes.left = new FormAttachment( middle, 0 );
+    fdChunkBytes.top = new FormAttachment( wChunkRows, margin * 2 );
+    fdChunkBytes.right = new FormAttachment( 100, 0 );
+    wChunkBytes.setLayoutData( fdChunkBytes );
+
+    // CommitLatency line...
+    wlCommitLatency = new Label( wMainComp, SWT.RIGHT );
+    wlCommitLatency.setText( BaseMessages.getString( PKG, "VerticaBulkLoaderDialog.CommitLatency.Label" ) ); //$NON-NLS-1$
+    wlCommitLatency.setToolTipText( BaseMessages.getString( PKG, "VerticaBulkLoaderDialog.CommitLatency.Tooltip" ) ); //$NON-NLS-1$
+    props.setLook( wlCommitLatency );
+    fdlCommitLatency = new FormData();
+    fdlCommitLatency.left = new FormAttachment( 0, 0 );
+    fdlCommitLatency.right = new FormAttachment( middle, -margin );
+    fdlCommitLatency.top = new FormAttachment( wChunkBytes, margin * 2 );
+    wlCommitLatency.setLayoutData( fdlCommitLatency );
+
+    wCommitLatency = new TextVar( transMeta, wMainComp, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    wCommitLatency.setToolTipText( BaseMessages.getString( PKG, "VerticaBulkLoaderDialog.CommitLatency.Tooltip" ) ); //$NON-NLS-1$
+    props.setLook( wCommitLatency );
+    wCommitLatency.addModifyListener( lsMod );
+    wCommitLatency.addFocusListener( lsFocusLost );
+    fdCommitLatency = new FormData();
+    fdCommitLatency.left = new FormAttachment( middle, 0 );
+    fdCommitLatency.top = new FormAttachment( wChunkBytes, margin * 2 );
+    fdCommitLatency.right = new FormAttachment( 100, 0 );
+    wCommitLatency.setLayoutData( fdCommitLatency );
+
+    // StagingDirectory line...
+    wlStagingDirectory = new Label( wMainComp, SWT.RIGHT );
+    wlStagingDirectory.setText( BaseMessages.getString( PKG, "VerticaBulkLoaderDialog.StagingDirectory.Label" ) ); //$NON-NLS-1$
+    wlStagingDirectory.setToolTipText( BaseMessages.getString( PKG, "VerticaBulkLoaderDialog.StagingDirectory.Tooltip" ) ); //$NON-NLS-1$
+    props.setLook( wlStagingDirectory );
+    fdlStagingDirectory = new FormData();
+    fdlStagingDirectory.left = new FormAttachment( 0, 0 );
+    fdlStagingDirectory.right = new FormAttachment( middle, -margin );
+    fdlStagingDirectory.top = new FormAttachment( wCommitLatency, margin * 2 );
+    wlStagingDirectory.setLayoutData( fdlStagingDirectory );
+
+    wStagingDirectory = new TextVar( transMeta, wMainComp, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    wStagingDirectory.setToolTipText( BaseMessages.getString( PKG, "VerticaBulkLoaderDialog.StagingDirectory.Tooltip" ) ); //$NON-NLS-1$
+    props.setLook( wStagingDirectory );
+    wStagingDirectory.addModifyListener( lsMod );
+    wStagingDirectory.addFocusListener( lsFocusLost );
+    fdStagingDirectory = new FormData();
+    fdStagingDirectory.left = new FormAttachment( middle, 0 );
+    fdStagingDirectory.top = new FormAttachment( wCommitLatency, margin * 2 );
+    fdStagingDirectory.right = new FormAttachment( 100, 0 );
+    wStagingDirectory.setLayoutData( fdStagingDirectory );
+
+    // StagingFileBytes line...
+    wlStagingFileBytes = new Label( wMainComp, SWT.RIGHT );
+    wlStagingFileBytes.setText( BaseMessages.getString( PKG, "VerticaBulkLoaderDialog.StagingFileBytes.Label" ) ); //$NON-NLS-1$
+    wlStagingFileBytes.setToolTipText( BaseMessages.getString( PKG, "VerticaBulkLoaderDialog.StagingFileBytes.Tooltip" ) ); //$NON-NLS-1$
+    props.setLook( wlStagingFileBytes );
+    fdlStagingFileBytes = new FormData();
+    fdlStagingFileBytes.left = new FormAttachment( 0, 0 );
+    fdlStagingFileBytes.right = new FormAttachment( middle, -margin );
+    fdlStagingFileBytes.top = new FormAttachment( wStagingDirectory, margin * 2 );
+    wlStagingFileBytes.setLayoutData( fdlStagingFileBytes );
+
+    wStagingFileBytes = new TextVar( transMeta, wMainComp, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    wStagingFileBytes.setToolTipText( BaseMessages.getString( PKG, "VerticaBulkLoaderDialog.StagingFileBytes.Tooltip" ) ); //$NON-NLS-1$
+    props.setLook( wStagingFileBytes );
+    wStagingFileBytes.addModifyListener( lsMod );
+    wStagingFileBytes.addFocusListener( lsFocusLost );
+    fdStagingFileBytes = new FormData();
+    fdStagingFileBytes.left = new FormAttachment( middle, 0 );
+    fdStagingFileBytes.top = new FormAttachment( wStagingDirectory, margin * 2 );
+    fdStagingFileBytes.right = new FormAttachment( 100, 0 );
+    wStagingFileBytes.setLayoutData( fdStagingFileBytes );
+
+    // Compression line...
+    wlCompression = new Label( wMainComp, SWT.RIGHT );
+    wlCompression.setText( BaseMessages.getString( PKG, "VerticaBulkLoaderDialog.Compression.Label" ) ); //$NON-NLS-1$
+    wlCompression.setToolTipText( BaseMessages.getString( PKG, "VerticaBulkLoaderDialog.Compression.Tooltip" ) ); //$NON-NLS-1$
+    props.setLook( wlCompression );
+    fdlCompression = new FormData();
+    fdlCompression.left = new FormAttachment( 0, 0 );
+    fdlCompression.right = new FormAttachment( middle, -margin );
+    fdlCompression.top = new FormAttachment( wStagingFileBytes, margin * 2 );
+    wlCompression.setLayoutData( fdlCompression );
+
+    wCompression = new TextVar( transMeta, wMainComp, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    wCompression.setToolTipText( BaseMessages.getString( PKG, "VerticaBulkLoaderDialog.Compression.Tooltip" ) ); //$NON-NLS-1$
+    props.setLook( wCompression );
+    wCompression.addModifyListener( lsMod );
+    wCompression.addFocusListener( lsFocusLost );
+    fdCompression = new FormData();
+    fdCompression.left = new FormAttachment( middle, 0 );
+    fdCompression.top = new FormAttachment( wStagingFileBytes, margin * 2 );
+    fdCompression.right = new FormAttachment( 100, 0 );
+    wCompression.setLayoutData( fdCompression );
+
+    // ColumnarEncoding line...
+    wlColumnarEncoding = new Label( wMainComp, SWT.RIGHT );
+    wlColumnarEncoding.setText( BaseMessages.getString( PKG, "VerticaBulkLoaderDialog.ColumnarEncoding.Label" ) ); //$NON-NLS-1$
+    wlColumnarEncoding.setToolTipText( BaseMessages.getString( PKG, "VerticaBulkLoaderDialog.ColumnarEncoding.Tooltip" ) ); //$NON-NLS-1$
+    props.setLook( wlColumnarEncoding );
+    fdlColumnarEncoding = new FormData();
+    fdlColumnarEncoding.left = new FormAttachment( 0, 0 );
+    fdlColumnarEncoding.right = new FormAttachment( middle, -margin );
+    fdlColumnarEncoding.top = new FormAttachment( wCompression, margin * 2 );
+    wlColumnarEncoding.setLayoutData( fdlColumnarEncoding );
+
+    wColumnarEncoding = new Button( wMainComp, SWT.CHECK );
+    wColumnarEncoding.setToolTipText( BaseMessages.getString( PKG, "VerticaBulkLoaderDialog.ColumnarEncoding.Tooltip" ) ); //$NON-NLS-1$
+    props.setLook( wColumnarEncoding );
+    fdColumnarEncoding = new FormData();
+    fdColumnarEncoding.left = new FormAttachment( middle, 0 );
+    fdColumnarEncoding.top = new FormAttachment( wCompression, margin * 2 );
+    fdColumnarEncoding.right = new FormAttachment( 100, 0 );
+    wColumnarEncoding.setLayoutData( fdColumnarEncoding );
+    wColumnarEncoding.addSelectionListener( new SelectionAdapter() {
+      public void widgetSelected( SelectionEvent e ) {
+        input.setChanged();
+      }
+    } );
+
     wMainComp.layout();
     wMainTab.setControl( wMainComp );
 
@@ -824,6 +1201,26 @@ public class VerticaBulkLoaderDialog extends BaseStepDialog implements StepDialo
     if ( input.getStreamName() != null ) {
       wStreamName.setText( input.getStreamName() );
     }
+    wBufferQueueDepth.setText( Integer.toString( input.getBufferQueueDepth() ) );
+    wBufferSize.setText( Integer.toString( input.getBufferSize() ) );
+    wParallelStreams.setText( Integer.toString( input.getParallelStreams() ) );
+    if ( input.getDistributionFields() != null ) {
+      wDistributionFields.setText( input.getDistributionFields() );
+    }
+    wSpreadAcrossNodes.setSelection( input.isSpreadAcrossNodes() );
+    wEncoderThreads.setText( Integer.toString( input.getEncoderThreads() ) );
+    wStackTracePolicy.setText( RejectionLogWriter.StackTracePolicy.fromCode( input.getStackTracePolicy() ).name() );
+    wChunkRows.setText( Long.toString( input.getChunkRows() ) );
+    wChunkBytes.setText( Long.toString( input.getChunkBytes() ) );
+    wCommitLatency.setText( Long.toString( input.getCommitLatency() ) );
+    if ( input.getStagingDirectory() != null ) {
+      wStagingDirectory.setText( input.getStagingDirectory() );
+    }
+    wStagingFileBytes.setText( Long.toString( input.getStagingFileBytes() ) );
+    if ( input.getCompression() != null ) {
+      wCompression.setText( input.getCompression() );
+    }
+    wColumnarEncoding.setSelection( input.isColumnarEncoding() );
 
     wDirect.setSelection( input.isDirect() );
     wAbortOnError.setSelection( input.isAbortOnError() );
@@ -859,6 +1256,20 @@ public class VerticaBulkLoaderDialog extends BaseStepDialog implements StepDialo
     info.setExceptionsFileName( wExceptionsLogFile.getText() );
     info.setRejectedDataFileName( wRejectedDataLogFile.getText() );
     info.setStreamName( wStreamName.getText() );
+    info.setBufferQueueDepth( Const.toInt( wBufferQueueDepth.getText(), ByteBufferRing.DEFAULT_DEPTH ) );
+    info.setBufferSize( Const.toInt( wBufferSize.getText(), StreamEncoder.DEFAULT_BUFFER_SIZE ) );
+    info.setParallelStreams( Const.toInt( wParallelStreams.getText(), 1 ) );
+    info.setDistributionFields( wDistributionFields.getText() );
+    info.setSpreadAcrossNodes( wSpreadAcrossNodes.getSelection() );
+    info.setEncoderThreads( Const.toInt( wEncoderThreads.getText(), 1 ) );
+    info.setStackTracePolicy( wStackTracePolicy.getText() );
+    info.setChunkRows( Const.toLong( wChunkRows.getText(), 0 ) );
+    info.setChunkBytes( Const.toLong( wChunkBytes.getText(), 0 ) );
+    info.setCommitLatency( Const.toLong( wCommitLatency.getText(), 0 ) );
+    info.setStagingDirectory( wStagingDirectory.getText() );
+    info.setStagingFileBytes( Const.toLong( wStagingFileBytes.getText(), 0 ) );
+    info.setCompression( wCompression.getText() );
+    info.setColumnarEncoding( wColumnarEncoding.getSelection() );
 
     info.setDirect( wDirect.getSelection() );
     info.setAbortOnError( wAbortOnError.getSelection() );
@@ -0,0 +1,189 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 - 2026 by Pentaho Canada Inc. : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2030-06-15
+ ******************************************************************************/
+
+
+
+package org.pentaho.di.verticabulkload;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.verticabulkload.nativebinary.ColumnSpec;
+
+/**
+ * The columns of the target table as Vertica describes them in <tt>v_catalog.columns</tt>, read in a single query.
+ * <p>
+ * The JDBC metadata of a table loses part of the Vertica types: every integer is a BIGINT, BINARY reads as VARBINARY,
+ * and types such as UUID or INTERVAL YEAR TO MONTH are not known at all. The catalog gives the exact type, length,
+ * precision, scale and nullability of each column, which maps them to the fixed width NATIVE encodings when there are
+ * some and sends CHAR and BINARY values without the length prefix of their variable width counterparts.
+ * </p>
+ */
+public class CatalogColumns {
+
+  public static final CatalogColumns EMPTY = new CatalogColumns( Collections.<String, Column>emptyMap() );
+
+  private static final String COLUMNS_QUERY = "SELECT column_name, data_type, data_type_length, numeric_precision, "
+      + "numeric_scale, is_nullable FROM v_catalog.columns WHERE %s AND LOWER( table_name ) = LOWER( ? ) "
+      + "ORDER BY ordinal_position";
+
+  /**
+   * A column of the target table
+   */
+  public static class Column {
+    private final String name;
+    private final String dataType;
+    private final int length;
+    private final int precision;
+    private final int scale;
+    private final boolean nullable;
+
+    Column( String name, String dataType, int length, int precision, int scale, boolean nullable ) {
+      this.name = name;
+      this.dataType = dataType;
+      this.length = length;
+      this.precision = precision;
+      this.scale = scale;
+      this.nullable = nullable;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * @return the data type as the catalog shows it, such as <tt>varchar(20)</tt>
+     */
+    public String getDataType() {
+      return dataType;
+    }
+
+    public boolean isNullable() {
+      return nullable;
+    }
+
+    /**
+     * Builds the encoding of the column for values of the given field.
+     *
+     * @throws IllegalArgumentException if the type of the column is not supported or does not accept the field
+     */
+    public ColumnSpec toColumnSpec( ValueMetaInterface inputValueMeta ) {
+      int parenthesis = dataType.indexOf( '(' );
+      String base = ( parenthesis < 0 ? dataType : dataType.substring( 0, parenthesis ) ).trim().toLowerCase(
+          Locale.ROOT );
+      ColumnSpec spec;
+      if ( base.equals( "int" ) ) {
+        spec = new ColumnSpec( ColumnSpec.ConstantWidthType.INTEGER_64 );
+      } else if ( base.equals( "boolean" ) ) {
+        spec = new ColumnSpec( ColumnSpec.ConstantWidthType.BOOLEAN );
+      } else if ( base.equals( "float" ) ) {
+        spec = new ColumnSpec( ColumnSpec.ConstantWidthType.FLOAT );
+      } else if ( base.equals( "char" ) ) {
+        spec = new ColumnSpec( ColumnSpec.UserDefinedWidthType.CHAR, length );
+      } else if ( base.equals( "varchar" ) || base.equals( "long varchar" ) ) {
+        spec = new ColumnSpec( ColumnSpec.VariableWidthType.VARCHAR, length );
+      } else if ( base.equals( "binary" ) ) {
+        spec = new ColumnSpec( ColumnSpec.UserDefinedWidthType.BINARY, length );
+      } else if ( base.equals( "varbinary" ) || base.equals( "long varbinary" ) ) {
+        spec = new ColumnSpec( ColumnSpec.VariableWidthType.VARBINARY, length );
+      } else if ( base.equals( "numeric" ) ) {
+        spec = new ColumnSpec( ColumnSpec.PrecisionScaleWidthType.NUMERIC, precision, scale );
+      } else if ( base.equals( "uuid" ) ) {
+        spec = new ColumnSpec( ColumnSpec.ConstantWidthType.UUID );
+      } else if ( base.startsWith( "interval" ) && ( base.contains( "year" ) || base.contains( "month" ) ) ) {
+        // a number of months
+        spec = new ColumnSpec( ColumnSpec.ConstantWidthType.INTERVAL );
+      } else {
+        spec = new ColumnSpec( temporalType( base, inputValueMeta ) );
+      }
+      spec.setNullable( nullable );
+      return spec;
+    }
+
+    private ColumnSpec.ConstantWidthType temporalType( String base, ValueMetaInterface inputValueMeta ) {
+      ColumnSpec.ConstantWidthType type;
+      if ( base.equals( "date" ) ) {
+        type = ColumnSpec.ConstantWidthType.DATE;
+      } else if ( base.equals( "time" ) ) {
+        type = ColumnSpec.ConstantWidthType.TIME;
+      } else if ( base.equals( "timetz" ) ) {
+        type = ColumnSpec.ConstantWidthType.TIMETZ;
+      } else if ( base.equals( "timestamp" ) ) {
+        type = ColumnSpec.ConstantWidthType.TIMESTAMP;
+      } else if ( base.equals( "timestamptz" ) ) {
+        type = ColumnSpec.ConstantWidthType.TIMESTAMPTZ;
+      } else if ( base.startsWith( "interval" ) ) {
+        type = ColumnSpec.ConstantWidthType.INTERVAL;
+      } else {
+        throw new IllegalArgumentException( "Column type " + dataType + " not supported." );
+      }
+      if ( !inputValueMeta.isDate() ) {
+        throw new IllegalArgumentException( "Field " + inputValueMeta.getName()
+            + " must be a Date compatible type to match target column " + name );
+      }
+      return type;
+    }
+  }
+
+  private final Map<String, Column> columns;
+
+  CatalogColumns( Map<String, Column> columns ) {
+    this.columns = columns;
+  }
+
+  /**
+   * Reads the columns of a table from the catalog.
+   *
+   * @param schema schema of the table, the current schema of the session when empty
+   * @return the columns, empty when the catalog does not know the table
+   */
+  public static CatalogColumns read( Connection connection, String schema, String table ) throws SQLException {
+    boolean currentSchema = Const.isEmpty( schema );
+    String sql = String.format( COLUMNS_QUERY, currentSchema ? "table_schema = CURRENT_SCHEMA()"
+        : "LOWER( table_schema ) = LOWER( ? )" );
+    Map<String, Column> columns = new LinkedHashMap<>();
+    try ( PreparedStatement statement = connection.prepareStatement( sql ) ) {
+      int parameter = 1;
+      if ( !currentSchema ) {
+        statement.setString( parameter++, schema );
+      }
+      statement.setString( parameter, table );
+      try ( ResultSet rows = statement.executeQuery() ) {
+        while ( rows.next() ) {
+          String name = rows.getString( 1 );
+          columns.put( name.toLowerCase( Locale.ROOT ), new Column( name, rows.getString( 2 ), rows.getInt( 3 ),
+              rows.getInt( 4 ), rows.getInt( 5 ), rows.getBoolean( 6 ) ) );
+        }
+      }
+    }
+    return new CatalogColumns( Collections.unmodifiableMap( columns ) );
+  }
+
+  /**
+   * @return the column of the given name, whatever its case, or <tt>null</tt> when the catalog does not know it
+   */
+  public Column get( String name ) {
+    return name == null ? null : columns.get( name.toLowerCase( Locale.ROOT ) );
+  }
+
+  public boolean isEmpty() {
+    return columns.isEmpty();
+  }
+}
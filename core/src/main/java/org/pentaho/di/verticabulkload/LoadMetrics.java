@@ -0,0 +1,222 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 - 2026 by Pentaho Canada Inc. : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2030-06-15
+ ******************************************************************************/
+
+
+
+package org.pentaho.di.verticabulkload;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.verticabulkload.nativebinary.StreamEncoder;
+
+/**
+ * Reads the counters kept by the streams of a step copy when asked, so that keeping them costs the load next to
+ * nothing. The streams must all be open before the metrics are read.
+ */
+public class LoadMetrics implements LoadMetricsMXBean {
+
+  static final String DOMAIN = "org.pentaho.di.verticabulkload";
+
+  private final VerticaBulkLoader step;
+  private final List<LoadStream> streams;
+  private final RowMetaInterface insertRowMeta;
+  private final long startNanos;
+  private volatile long endNanos;
+
+  private ObjectName objectName;
+
+  LoadMetrics( VerticaBulkLoader step, List<LoadStream> streams, RowMetaInterface insertRowMeta ) {
+    this.step = step;
+    this.streams = streams;
+    this.insertRowMeta = insertRowMeta;
+    this.startNanos = System.nanoTime();
+  }
+
+  /**
+   * Registers the metrics with the platform MBean server, as
+   * <tt>org.pentaho.di.verticabulkload:type=LoadMetrics,transformation=...,step=...,copy=...</tt>
+   *
+   * @throws JMException if they cannot be registered, e.g. when the same transformation runs twice at the same time
+   */
+  void register( String transformationName, String stepName, int copy ) throws JMException {
+    ObjectName name = new ObjectName( DOMAIN + ":type=LoadMetrics,transformation="
+        + ObjectName.quote( String.valueOf( transformationName ) ) + ",step=" + ObjectName.quote( stepName ) + ",copy="
+        + copy );
+    ManagementFactory.getPlatformMBeanServer().registerMBean( this, name );
+    objectName = name;
+  }
+
+  void unregister() throws JMException {
+    if ( objectName != null ) {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      if ( server.isRegistered( objectName ) ) {
+        server.unregisterMBean( objectName );
+      }
+      objectName = null;
+    }
+  }
+
+  /**
+   * Stops the clock of the rates.
+   */
+  void stop() {
+    if ( endNanos == 0 ) {
+      endNanos = System.nanoTime();
+    }
+  }
+
+  @Override
+  public int getStreamCount() {
+    return streams.size();
+  }
+
+  @Override
+  public long getRowsSent() {
+    return step.getLinesOutput();
+  }
+
+  @Override
+  public long getRowsLoaded() {
+    long rows = 0;
+    for ( LoadStream stream : streams ) {
+      rows += stream.rowsLoaded;
+    }
+    return rows;
+  }
+
+  @Override
+  public long getRowsRejected() {
+    long rows = 0;
+    for ( LoadStream stream : streams ) {
+      rows += stream.rowsRejected;
+    }
+    return rows;
+  }
+
+  @Override
+  public int getChunksCompleted() {
+    int chunks = 0;
+    for ( LoadStream stream : streams ) {
+      chunks += stream.chunksCompleted;
+    }
+    return chunks;
+  }
+
+  @Override
+  public long getBytesEncoded() {
+    long bytes = 0;
+    for ( LoadStream stream : streams ) {
+      bytes += stream.bufferRing.getPublishedBytes();
+    }
+    return bytes;
+  }
+
+  @Override
+  public long getBytesSent() {
+    long bytes = 0;
+    for ( LoadStream stream : streams ) {
+      bytes += stream.copyRing.getPublishedBytes();
+    }
+    return bytes;
+  }
+
+  @Override
+  public long getBufferFlushes() {
+    long flushes = 0;
+    for ( LoadStream stream : streams ) {
+      flushes += stream.bufferRing.getPublishedBuffers();
+    }
+    return flushes;
+  }
+
+  @Override
+  public double getRowsPerSecond() {
+    return perSecond( getRowsSent() );
+  }
+
+  @Override
+  public double getBytesPerSecond() {
+    return perSecond( getBytesEncoded() );
+  }
+
+  @Override
+  public long getEncoderStallMillis() {
+    long nanos = 0;
+    for ( LoadStream stream : streams ) {
+      nanos += stream.bufferRing.getProducerWaitNanos();
+    }
+    return TimeUnit.NANOSECONDS.toMillis( nanos );
+  }
+
+  @Override
+  public long getWorkerStallMillis() {
+    long nanos = 0;
+    for ( LoadStream stream : streams ) {
+      nanos += stream.bufferRing.getConsumerWaitNanos();
+    }
+    return TimeUnit.NANOSECONDS.toMillis( nanos );
+  }
+
+  @Override
+  public Map<String, Long> getColumnFailures() {
+    Map<String, Long> failures = new LinkedHashMap<>();
+    for ( int i = 0; i < insertRowMeta.size(); i++ ) {
+      long count = 0;
+      for ( LoadStream stream : streams ) {
+        StreamEncoder encoder = stream.encoder;
+        if ( encoder != null ) {
+          count += encoder.getColumnFailures( i );
+        }
+      }
+      if ( count > 0 ) {
+        failures.put( insertRowMeta.getValueMeta( i ).getName(), count );
+      }
+    }
+    return failures;
+  }
+
+  /**
+   * @return a one line summary of the metrics, for the log
+   */
+  public String summary() {
+    StringBuilder summary = new StringBuilder( 200 );
+    summary.append( String.format( Locale.ROOT, "%d rows (%.0f rows/s), %.1f MB (%.1f MB/s) in %d buffers, "
+        + "encoder stalled %d ms, COPY stalled %d ms", getRowsSent(), getRowsPerSecond(),
+        getBytesEncoded() / ( 1024.0 * 1024.0 ), getBytesPerSecond() / ( 1024.0 * 1024.0 ), getBufferFlushes(),
+        getEncoderStallMillis(), getWorkerStallMillis() ) );
+    long bytesSent = getBytesSent();
+    if ( bytesSent != getBytesEncoded() ) {
+      summary.append( String.format( Locale.ROOT, ", %.1f MB sent compressed", bytesSent / ( 1024.0 * 1024.0 ) ) );
+    }
+    Map<String, Long> failures = getColumnFailures();
+    if ( !failures.isEmpty() ) {
+      summary.append( ", encoding failures " ).append( failures );
+    }
+    return summary.toString();
+  }
+
+  private double perSecond( long count ) {
+    long end = endNanos == 0 ? System.nanoTime() : endNanos;
+    double seconds = ( end - startNanos ) / 1e9;
+    return seconds > 0 ? count / seconds : 0;
+  }
+}
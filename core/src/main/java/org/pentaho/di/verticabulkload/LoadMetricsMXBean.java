@@ -0,0 +1,78 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 - 2026 by Pentaho Canada Inc. : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2030-06-15
+ ******************************************************************************/
+
+
+
+package org.pentaho.di.verticabulkload;
+
+import java.util.Map;
+
+/**
+ * Live counters of a copy of the Vertica Bulk Loader step, registered with the platform MBean server while the step
+ * loads. The stall times tell where a slow load is bound: the encoder waiting for the COPY worker means Vertica is the
+ * bottleneck, the worker waiting for the encoder means the encoding or the steps upstream are.
+ */
+public interface LoadMetricsMXBean {
+
+  int getStreamCount();
+
+  /**
+   * @return the rows encoded and passed on to the next steps
+   */
+  long getRowsSent();
+
+  /**
+   * @return the rows loaded by the COPY statements that completed
+   */
+  long getRowsLoaded();
+
+  long getRowsRejected();
+
+  /**
+   * @return the COPY statements completed, one per stream unless the load is committed in chunks
+   */
+  int getChunksCompleted();
+
+  /**
+   * @return the bytes of NATIVE data handed over to the COPY workers
+   */
+  long getBytesEncoded();
+
+  /**
+   * @return the bytes sent to the COPY statements, less than {@link #getBytesEncoded()} when they are compressed
+   */
+  long getBytesSent();
+
+  /**
+   * @return the buffers handed over to the COPY workers
+   */
+  long getBufferFlushes();
+
+  double getRowsPerSecond();
+
+  double getBytesPerSecond();
+
+  /**
+   * @return the time the encoders spent waiting for a COPY worker to free a buffer, in milliseconds
+   */
+  long getEncoderStallMillis();
+
+  /**
+   * @return the time the COPY workers spent waiting for encoded data, in milliseconds
+   */
+  long getWorkerStallMillis();
+
+  /**
+   * @return the values that could not be encoded, by target column, for the columns that had any
+   */
+  Map<String, Long> getColumnFailures();
+}
@@ -0,0 +1,143 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 - 2026 by Pentaho Canada Inc. : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2030-06-15
+ ******************************************************************************/
+
+
+
+package org.pentaho.di.verticabulkload;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.pentaho.di.core.database.Database;
+import org.pentaho.di.verticabulkload.nativebinary.ByteBufferRing;
+import org.pentaho.di.verticabulkload.nativebinary.StreamEncoder;
+
+/**
+ * One COPY stream of a step copy: its own connection, the encoder writing the rows routed to it and the worker thread
+ * feeding them to Vertica.
+ * <p>
+ * When the load is committed in chunks, the stream has a second connection: the chunks alternate between the two, so
+ * that a chunk is committed while the next one is already loading.
+ * </p>
+ */
+public class LoadStream {
+  protected final int index;
+  protected final Database db;
+
+  protected ByteBufferRing bufferRing;
+  /** The ring the COPY statements read, {@link #bufferRing} unless the stream is compressed */
+  protected ByteBufferRing copyRing;
+  protected StreamEncoder encoder;
+  protected volatile Thread workerThread;
+
+  /**
+   * The rows sent in the current chunk, passed on once Vertica loaded them, <tt>null</tt> unless the rows it rejects go
+   * to the error hop. Only updated by the step thread, or by the latency timer holding the stream lock of the step data
+   */
+  protected List<Object[]> heldRows;
+  /** The rows of the chunks ended but not passed on yet, in order, see {@link #heldRows} */
+  protected final Queue<List<Object[]>> heldChunks = new ConcurrentLinkedQueue<>();
+  /** The numbers of the rows Vertica rejected in every completed chunk not passed on yet, in order */
+  protected final Queue<List<Long>> completedChunkRejects = new ConcurrentLinkedQueue<>();
+
+  /** Connection of every other chunk, <tt>null</tt> when the load is not chunked */
+  protected Database chunkDb;
+
+  /**
+   * Rows written to the encoder, only updated by the step thread, or by the latency timer holding the stream lock of
+   * the step data
+   */
+  protected long rowsSent;
+  protected volatile long rowsLoaded;
+  protected volatile long rowsRejected;
+  protected volatile int chunksCompleted;
+
+  /** Rows written to the current chunk, including the rejected ones, see {@link #rowsSent} */
+  protected long chunkRowsWritten;
+  /** Bytes published before the current chunk, see {@link #rowsSent} */
+  protected long chunkStartBytes;
+  /** When the first row of the current chunk was written, see {@link System#nanoTime()} */
+  protected long chunkStartNanos;
+  /** The value of {@link #rowsSent} at the end of every chunk not yet picked up by the worker */
+  protected final Queue<Long> chunkEnds = new ConcurrentLinkedQueue<>();
+
+  protected LoadStream( int index, Database db ) {
+    this.index = index;
+    this.db = db;
+  }
+
+  public int getIndex() {
+    return index;
+  }
+
+  public Database getDatabase() {
+    return db;
+  }
+
+  public long getRowsSent() {
+    return rowsSent;
+  }
+
+  public long getRowsLoaded() {
+    return rowsLoaded;
+  }
+
+  public long getRowsRejected() {
+    return rowsRejected;
+  }
+
+  public int getChunksCompleted() {
+    return chunksCompleted;
+  }
+
+  /**
+   * @return the connection of a chunk
+   */
+  Database sessionFor( int chunk ) {
+    return chunkDb == null || chunk % 2 == 0 ? db : chunkDb;
+  }
+
+  /**
+   * Adds the counts of a completed chunk, chunks may complete on another thread than the worker.
+   */
+  synchronized void chunkCompleted( long loaded, long rejected ) {
+    rowsLoaded += loaded;
+    rowsRejected += rejected;
+    chunksCompleted++;
+  }
+
+  /**
+   * Flushes the last rows and signals the end of the data to the worker.
+   */
+  public void close() throws IOException {
+    if ( encoder != null ) {
+      encoder.close();
+    }
+  }
+
+  /**
+   * Makes both the encoder and the worker fail instead of waiting for each other, and stops the encoder threads.
+   */
+  public void abort() {
+    if ( encoder != null ) {
+      encoder.abort();
+    }
+    if ( bufferRing != null ) {
+      bufferRing.abort();
+    }
+    if ( copyRing != null ) {
+      copyRing.abort();
+    }
+  }
+}
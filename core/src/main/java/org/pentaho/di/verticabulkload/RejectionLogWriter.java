@@ -0,0 +1,233 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 - 2026 by Pentaho Canada Inc. : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2030-06-15
+ ******************************************************************************/
+
+
+
+package org.pentaho.di.verticabulkload;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Appends entries to the exception or rejected data log of the step from a background thread, so that a flood of
+ * rejected rows costs the step thread little more than formatting them.
+ * <p>
+ * There is one writer per file: all the step copies, and all the steps of the JVM, logging to the same file share it
+ * through {@link #open(String)}, and the file is closed when the last of them calls {@link #close()}. The entries wait
+ * in a bounded queue, writing blocks when the background thread falls too far behind.
+ * </p>
+ */
+public class RejectionLogWriter {
+
+  /**
+   * How much of the stack trace of a rejection goes to the exception log
+   */
+  public enum StackTracePolicy {
+    /** The whole stack trace */
+    FULL,
+    /** Only the frame the exception was thrown from */
+    TOP_FRAME,
+    /** The message of the exception only */
+    NONE;
+
+    /**
+     * @return the policy of the given name, {@link #FULL} when not set or unknown
+     */
+    public static StackTracePolicy fromCode( String code ) {
+      if ( code != null ) {
+        for ( StackTracePolicy policy : values() ) {
+          if ( policy.name().equalsIgnoreCase( code.trim() ) ) {
+            return policy;
+          }
+        }
+      }
+      return FULL;
+    }
+  }
+
+  static final int QUEUE_CAPACITY = 4096;
+
+  private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * Tells the background thread to stop once everything before it was written
+   */
+  private static final String END_OF_LOG = new String();
+
+  private static final Map<String, RejectionLogWriter> WRITERS = new HashMap<>();
+
+  private final String path;
+  private final FileChannel channel;
+  private final BlockingQueue<String> queue = new ArrayBlockingQueue<>( QUEUE_CAPACITY );
+  private final Charset charset = Charset.defaultCharset();
+  private final Thread thread;
+
+  private int references;
+  private volatile IOException failure;
+
+  private RejectionLogWriter( String path ) throws IOException {
+    this.path = path;
+    this.channel = FileChannel.open( new File( path ).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+      StandardOpenOption.APPEND );
+    this.thread = new Thread( new Runnable() {
+      @Override
+      public void run() {
+        drain();
+      }
+    }, "vertica-rejection-log-" + new File( path ).getName() );
+    thread.setDaemon( true );
+    thread.start();
+  }
+
+  /**
+   * Returns the writer of a file, opening the file in append mode if nobody has it open yet.
+   *
+   * @param fileName the log file
+   * @return the writer, to be closed once done with it
+   * @throws IOException if the file cannot be opened
+   */
+  public static RejectionLogWriter open( String fileName ) throws IOException {
+    String path = new File( fileName ).getCanonicalPath();
+    synchronized ( WRITERS ) {
+      RejectionLogWriter writer = WRITERS.get( path );
+      if ( writer == null ) {
+        writer = new RejectionLogWriter( path );
+        WRITERS.put( path, writer );
+      }
+      writer.references++;
+      return writer;
+    }
+  }
+
+  /**
+   * Queues an entry for the file, line separators included.
+   *
+   * @throws IOException if an earlier entry could not be written
+   */
+  public void write( String entry ) throws IOException {
+    checkFailure();
+    try {
+      queue.put( entry );
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException( "Interrupted while queueing a log entry" );
+    }
+  }
+
+  /**
+   * Releases the writer. The last user of the file waits for all the entries to be written and closes it.
+   *
+   * @throws IOException if an entry could not be written
+   */
+  public void close() throws IOException {
+    synchronized ( WRITERS ) {
+      if ( --references > 0 ) {
+        return;
+      }
+      WRITERS.remove( path );
+    }
+    try {
+      queue.put( END_OF_LOG );
+      thread.join();
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException( "Interrupted while closing " + path );
+    } finally {
+      channel.close();
+    }
+    checkFailure();
+  }
+
+  public String getPath() {
+    return path;
+  }
+
+  private void checkFailure() throws IOException {
+    if ( failure != null ) {
+      throw new IOException( "Unable to write to " + path, failure );
+    }
+  }
+
+  /**
+   * Writes the queued entries in batches until the end of the log. After a failure the entries are still taken from
+   * the queue, so that nobody waits on it, but dropped.
+   */
+  private void drain() {
+    List<String> batch = new ArrayList<>();
+    ByteBuffer buffer = ByteBuffer.allocate( WRITE_BUFFER_SIZE );
+    boolean end = false;
+    while ( !end ) {
+      try {
+        batch.add( queue.take() );
+      } catch ( InterruptedException e ) {
+        return;
+      }
+      queue.drainTo( batch );
+      for ( String entry : batch ) {
+        if ( entry == END_OF_LOG ) {
+          end = true;
+          break;
+        }
+        if ( failure == null ) {
+          try {
+            append( buffer, entry );
+          } catch ( IOException e ) {
+            failure = e;
+          }
+        }
+      }
+      batch.clear();
+      if ( failure == null ) {
+        try {
+          flush( buffer );
+        } catch ( IOException e ) {
+          failure = e;
+        }
+      }
+    }
+  }
+
+  private void append( ByteBuffer buffer, String entry ) throws IOException {
+    byte[] bytes = entry.getBytes( charset );
+    if ( bytes.length > buffer.remaining() ) {
+      flush( buffer );
+      if ( bytes.length > buffer.capacity() ) {
+        writeFully( ByteBuffer.wrap( bytes ) );
+        return;
+      }
+    }
+    buffer.put( bytes );
+  }
+
+  private void flush( ByteBuffer buffer ) throws IOException {
+    buffer.flip();
+    writeFully( buffer );
+    buffer.clear();
+  }
+
+  private void writeFully( ByteBuffer buffer ) throws IOException {
+    while ( buffer.hasRemaining() ) {
+      channel.write( buffer );
+    }
+  }
+}
@@ -0,0 +1,114 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 - 2026 by Pentaho Canada Inc. : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2030-06-15
+ ******************************************************************************/
+
+
+
+package org.pentaho.di.verticabulkload;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.pentaho.di.core.exception.KettleException;
+
+/**
+ * Columns of the target tables, shared by all the copies of the step in the JVM so that a run with many copies, or
+ * many short runs in a row, query the catalog once rather than once per copy and run.
+ * <p>
+ * An entry expires after a time to live given by each lookup, and can be dropped at any time with
+ * {@link #invalidate(String)}. Copies looking up a table being loaded wait for that load instead of running their own.
+ * The cached values are shared: callers must not modify them.
+ * </p>
+ */
+public class TableMetadataCache {
+
+  /** Variable setting the time to live of the entries in milliseconds, 0 to always query the catalog */
+  public static final String TTL_VARIABLE = "VERTICA_BULKLOADER_METADATA_TTL";
+
+  public static final long DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis( 5 );
+
+  private static final TableMetadataCache INSTANCE = new TableMetadataCache();
+
+  /**
+   * Reads the columns of a table from the database.
+   */
+  public interface Loader<T> {
+    T load() throws KettleException;
+  }
+
+  private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+  public static TableMetadataCache getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * @param connection  identifies the database
+   * @param schemaTable quoted name of the table
+   * @param kind        what is cached about the table
+   * @return the key of a table in the cache
+   */
+  public static String key( String connection, String schemaTable, String kind ) {
+    return connection + "\u0000" + schemaTable + "\u0000" + kind;
+  }
+
+  /**
+   * Returns the columns of a table, loading them when they are not cached or cached for longer than the time to live.
+   *
+   * @param key       key of the table, see {@link #key(String, String, String)}
+   * @param ttlMillis time to live of the entry, the columns are loaded every time if not positive
+   * @param loader    reads the columns from the database
+   * @return the columns
+   */
+  @SuppressWarnings( "unchecked" )
+  public <T> T get( String key, long ttlMillis, Loader<T> loader ) throws KettleException {
+    if ( ttlMillis <= 0 ) {
+      entries.remove( key );
+      return loader.load();
+    }
+    Entry entry = entries.get( key );
+    if ( entry == null ) {
+      Entry created = new Entry();
+      entry = entries.putIfAbsent( key, created );
+      if ( entry == null ) {
+        entry = created;
+      }
+    }
+    long ttlNanos = TimeUnit.MILLISECONDS.toNanos( ttlMillis );
+    synchronized ( entry ) {
+      if ( entry.value == null || System.nanoTime() - entry.loadedNanos >= ttlNanos ) {
+        entry.value = loader.load();
+        entry.loadedNanos = System.nanoTime();
+      }
+      return (T) entry.value;
+    }
+  }
+
+  /**
+   * Drops the columns of a table, the next lookup reads them again.
+   */
+  public void invalidate( String key ) {
+    entries.remove( key );
+  }
+
+  /**
+   * Drops all the entries.
+   */
+  public void clear() {
+    entries.clear();
+  }
+
+  private static class Entry {
+    private Object value;
+    private long loadedNanos;
+  }
+}
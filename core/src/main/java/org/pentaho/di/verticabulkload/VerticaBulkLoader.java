@@ -19,6 +19,7 @@ import com.vertica.jdbc.VerticaConnection;
 import com.vertica.jdbc.VerticaCopyStream;
 import org.apache.commons.dbcp.DelegatingConnection;
 import org.pentaho.di.core.Const;
+import org.pentaho.di.core.DBCache;
 import org.pentaho.di.core.database.Database;
 import org.pentaho.di.core.database.DatabaseMeta;
 import org.pentaho.di.core.exception.KettleDatabaseException;
@@ -36,24 +37,43 @@ import org.pentaho.di.trans.step.StepDataInterface;
 import org.pentaho.di.trans.step.StepInterface;
 import org.pentaho.di.trans.step.StepMeta;
 import org.pentaho.di.trans.step.StepMetaInterface;
+import org.pentaho.di.verticabulkload.nativebinary.ByteBufferRing;
 import org.pentaho.di.verticabulkload.nativebinary.ColumnSpec;
-import org.pentaho.di.verticabulkload.nativebinary.ColumnType;
+import org.pentaho.di.verticabulkload.nativebinary.ColumnarStreamEncoder;
+import org.pentaho.di.verticabulkload.nativebinary.ParallelStreamEncoder;
+import org.pentaho.di.verticabulkload.nativebinary.RingCompressor;
+import org.pentaho.di.verticabulkload.nativebinary.RowHandoffListener;
 import org.pentaho.di.verticabulkload.nativebinary.StreamEncoder;
 
+import javax.management.JMException;
 import javax.sql.PooledConnection;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InterruptedIOException;
-import java.io.PipedInputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.sql.Connection;
 import java.sql.SQLException;
-import java.text.SimpleDateFormat;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Date;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
@@ -62,11 +82,26 @@ import static org.apache.commons.lang3.StringUtils.isNotBlank;
 public class VerticaBulkLoader extends BaseStep implements StepInterface {
   private static Class<?> PKG = VerticaBulkLoader.class; // for i18n purposes, needed by Translator2!!
 
-  private static final SimpleDateFormat SIMPLE_DATE_FORMAT = new SimpleDateFormat( "yyyy/MM/dd HH:mm:ss" );
+  private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern( "yyyy/MM/dd HH:mm:ss" );
+  private static final String NODES_QUERY =
+      "SELECT node_address FROM v_catalog.nodes WHERE node_state = 'UP' ORDER BY node_name";
+  /** Error codes of the rows put on the error hop */
+  private static final String ENCODING_FAILED = "VBL001";
+  private static final String REJECTED_BY_VERTICA = "VBL002";
+  private static final String TABLE_FIELDS = "fields";
+  private static final String CATALOG_COLUMNS = "catalog";
+  private static final int STAGED_FILES_PER_COPY = 8;
+  private static final int STAGED_FILE_ATTEMPTS = 3;
+  private static final long STAGED_FILE_RETRY_MILLIS = 1000;
+
   private VerticaBulkLoaderMeta meta;
   private VerticaBulkLoaderData data;
-  private FileOutputStream exceptionLog;
-  private FileOutputStream rejectedLog;
+  private RejectionLogWriter exceptionLog;
+  private RejectionLogWriter rejectedLog;
+  /** Rows reported by the encoders on the latency timer thread, waiting for the step thread to pass them on */
+  private final Queue<DeferredOutcome> deferredOutcomes = new ConcurrentLinkedQueue<>();
+  /** Whether the latency timer is ending chunks, guarded by the stream lock */
+  private boolean deferringOutcomes;
 
   public VerticaBulkLoader( StepMeta stepMeta, StepDataInterface stepDataInterface, int copyNr, TransMeta transMeta,
       Trans trans ) {
@@ -83,7 +118,16 @@ public class VerticaBulkLoader extends BaseStep implements StepInterface {
     if ( r == null ) { // no more input to be expected...
 
       try {
+        stopLatencyTimer();
+        reportDeferredOutcomes();
+        finishStreams();
         data.close();
+        awaitWorkers();
+        if ( data.routingVerticaRejects ) {
+          // the rows Vertica rejects are only known once the COPY statements are finished
+          passOnCompletedChunks();
+        }
+        commitStreams();
       } catch ( IOException ioe ) {
         throw new KettleStepException( "Error releasing resources", ioe );
       }
@@ -94,10 +138,18 @@ public class VerticaBulkLoader extends BaseStep implements StepInterface {
 
       first = false;
 
+      data.inputRowMeta = getInputRowMeta();
       data.outputRowMeta = getInputRowMeta().clone();
       meta.getFields( data.outputRowMeta, getStepname(), null, null, this );
 
-      RowMetaInterface tableMeta = meta.getTableRowMetaInterface();
+      // the step usually ends the transformation, the error hop having a row set of its own
+      data.hasOutputSteps = !getOutputRowSets().isEmpty();
+      if ( !data.hasOutputSteps ) {
+        logDetailed( "No step takes the loaded rows, they are only passed on to the row listeners" );
+      }
+
+      RowMetaInterface tableMeta = getTableRowMeta();
+      data.catalogColumns = getCatalogColumns();
 
       if ( !meta.specifyFields() ) {
 
@@ -154,14 +206,13 @@ public class VerticaBulkLoader extends BaseStep implements StepInterface {
       }
 
       try {
-        data.pipedInputStream = new PipedInputStream();
         if ( data.colSpecs == null || data.colSpecs.isEmpty() ) {
           return false;
         }
-        data.encoder = createStreamEncoder( data.colSpecs, data.pipedInputStream );
-
-        initializeWorker();
-        data.encoder.writeHeader();
+        data.distributionFieldIndices = resolveDistributionFields();
+        openStreams();
+        startMetrics();
+        startLatencyTimer();
 
       } catch ( IOException ioe ) {
         throw new KettleStepException( "Error creating stream encoder", ioe );
@@ -170,16 +221,15 @@ public class VerticaBulkLoader extends BaseStep implements StepInterface {
     }
 
     try {
-      Object[] outputRowData = writeToOutputStream( r );
-      if ( outputRowData != null ) {
-        putRow( data.outputRowMeta, outputRowData ); // in case we want it
-        // go further...
-        incrementLinesOutput();
+      // the row is passed on by the listener of its stream once encoded, or once loaded when its chunk is held
+      writeToOutputStream( r );
+      if ( data.routingVerticaRejects ) {
+        passOnCompletedChunks();
       }
 
       if ( checkFeedback( getLinesRead() ) ) {
         if ( log.isBasic() ) {
-          logBasic( "linenr " + getLinesRead() );
+          logBasic( "linenr " + getLinesRead() + " - " + data.metrics.summary() );
         } //$NON-NLS-1$
       }
     } catch ( KettleException e ) {
@@ -199,62 +249,102 @@ public class VerticaBulkLoader extends BaseStep implements StepInterface {
   void initializeLogFiles() throws KettleException {
     try {
       if ( isNotBlank( meta.getExceptionsFileName() ) ) {
-        exceptionLog = new FileOutputStream( meta.getExceptionsFileName(),  true );
+        exceptionLog = RejectionLogWriter.open( meta.getExceptionsFileName() );
       }
       if ( isNotBlank( meta.getRejectedDataFileName() ) ) {
-        rejectedLog = new FileOutputStream( meta.getRejectedDataFileName(), true );
+        rejectedLog = RejectionLogWriter.open( meta.getRejectedDataFileName() );
       }
-    } catch ( FileNotFoundException ex ) {
+    } catch ( IOException ex ) {
+      closeLogFilesQuietly();
       throw new KettleException( ex );
     }
   }
+
   @VisibleForTesting
   void writeExceptionRejectionLogs( KettleValueException valueException, Object[] outputRowData ) throws IOException {
-    String dateTimeString = ( SIMPLE_DATE_FORMAT.format( new Date( System.currentTimeMillis() ) ) ) + " - ";
-    logError( BaseMessages.getString( PKG, "VerticaBulkLoader.Exception.RowRejected",
-      Arrays.stream( outputRowData ).map( Object::toString ).collect( Collectors.joining( " | " ) ) ) );
+    String rowString = Arrays.stream( outputRowData ).map( String::valueOf ).collect( Collectors.joining( " | " ) );
+    String rejectedMessage = BaseMessages.getString( PKG, "VerticaBulkLoader.Exception.RowRejected", rowString );
+    logError( rejectedMessage );
+
+    if ( exceptionLog == null && rejectedLog == null ) {
+      return;
+    }
+    String dateTimeString = LocalDateTime.now().format( TIMESTAMP_FORMAT ) + " - ";
+    String lineSeparator = System.lineSeparator();
 
     if ( exceptionLog != null ) {
+      StringBuilder entry = new StringBuilder( 256 );
       // Replace used to ensure timestamps are being added appropriately (some messages are multi-line)
-      exceptionLog.write( ( dateTimeString + valueException.getMessage().replace( System.lineSeparator(),
-        System.lineSeparator() + dateTimeString ) ).getBytes() );
-      exceptionLog.write( System.lineSeparator().getBytes() );
-      for ( StackTraceElement element : valueException.getStackTrace() ) {
-        exceptionLog.write( ( dateTimeString + "at " + element.toString() + System.lineSeparator() ).getBytes() );
-      }
-      exceptionLog.write(
-        ( dateTimeString + "Caused by: " + valueException.getClass().toString() + System.lineSeparator() ).getBytes() );
-      // Replace used to ensure timestamps are being added appropriately (some messages are multi-line)
-      exceptionLog.write( ( ( dateTimeString + valueException.getCause().getMessage().replace( System.lineSeparator(),
-        System.lineSeparator() + dateTimeString ) ).getBytes() ) );
-      exceptionLog.write( System.lineSeparator().getBytes() );
+      entry.append( dateTimeString )
+        .append( String.valueOf( valueException.getMessage() ).replace( lineSeparator, lineSeparator + dateTimeString ) )
+        .append( lineSeparator );
+      StackTraceElement[] stackTrace = valueException.getStackTrace();
+      int frames;
+      switch ( RejectionLogWriter.StackTracePolicy.fromCode( meta.getStackTracePolicy() ) ) {
+        case NONE:
+          frames = 0;
+          break;
+        case TOP_FRAME:
+          frames = Math.min( 1, stackTrace.length );
+          break;
+        default:
+          frames = stackTrace.length;
+          break;
+      }
+      for ( int i = 0; i < frames; i++ ) {
+        entry.append( dateTimeString ).append( "at " ).append( stackTrace[i] ).append( lineSeparator );
+      }
+      entry.append( dateTimeString ).append( "Caused by: " ).append( valueException.getClass() ).append( lineSeparator );
+      if ( valueException.getCause() != null ) {
+        entry.append( dateTimeString ).append( String.valueOf( valueException.getCause().getMessage() )
+          .replace( lineSeparator, lineSeparator + dateTimeString ) ).append( lineSeparator );
+      }
+      exceptionLog.write( entry.toString() );
     }
     if ( rejectedLog != null ) {
-      rejectedLog.write( ( dateTimeString + BaseMessages.getString( PKG, "VerticaBulkLoader.Exception.RowRejected",
-        Arrays.stream( outputRowData ).map( Object::toString ).collect( Collectors.joining( " | " ) ) ) ).getBytes() );
-      for ( Object outputRowDatum : outputRowData ) {
-        rejectedLog.write( ( outputRowDatum.toString() + " | " ).getBytes() );
-      }
-      rejectedLog.write( System.lineSeparator().getBytes() );
+      rejectedLog.write( dateTimeString + rejectedMessage + rowString + " | " + lineSeparator );
     }
   }
 
   @VisibleForTesting
   void closeLogFiles() throws KettleException {
+    RejectionLogWriter exceptionWriter = exceptionLog;
+    RejectionLogWriter rejectedWriter = rejectedLog;
+    exceptionLog = null;
+    rejectedLog = null;
     try {
-      if ( exceptionLog != null ) {
-        exceptionLog.close();
-      }
-      if ( rejectedLog != null ) {
-        rejectedLog.close();
+      try {
+        if ( exceptionWriter != null ) {
+          exceptionWriter.close();
+        }
+      } finally {
+        if ( rejectedWriter != null ) {
+          rejectedWriter.close();
+        }
       }
     } catch ( IOException exception ) {
       throw new KettleException( exception );
     }
   }
 
+  private void closeLogFilesQuietly() {
+    try {
+      closeLogFiles();
+    } catch ( KettleException e ) {
+      logError( BaseMessages.getString( PKG, "VerticaBulkLoader.Exception.ClosingLogError", e ) );
+    }
+  }
+
   private ColumnSpec getColumnSpecFromField( ValueMetaInterface inputValueMeta, ValueMetaInterface insertValueMeta,
       ValueMetaInterface targetValueMeta ) {
+    CatalogColumns.Column column = data.catalogColumns.get( insertValueMeta.getName() );
+    if ( column != null ) {
+      logBasic( "Mapping input field " + inputValueMeta.getName() + " (" + inputValueMeta.getTypeDesc() + ")"
+          + " to target column " + column.getName() + " (" + column.getDataType()
+          + ( column.isNullable() ? "" : " NOT NULL" ) + ") " );
+      return column.toColumnSpec( inputValueMeta );
+    }
+
     logBasic( "Mapping input field " + inputValueMeta.getName() + " (" + inputValueMeta.getTypeDesc() + ")"
         + " to target column " + insertValueMeta.getName() + " (" + targetValueMeta.getOriginalColumnTypeName() + ") " );
 
@@ -317,29 +407,305 @@ public class VerticaBulkLoader extends BaseStep implements StepInterface {
     } else if ( targetColumnTypeName.equals( "VARBINARY" ) ) {
       return new ColumnSpec( ColumnSpec.VariableWidthType.VARBINARY, targetValueMeta.getLength() );
     } else if ( targetColumnTypeName.equals( "NUMERIC" ) ) {
-      return new ColumnSpec( ColumnSpec.PrecisionScaleWidthType.NUMERIC, targetValueMeta.getLength(), targetValueMeta
-          .getPrecision() );
+      int precision = targetValueMeta.getLength();
+      int scale = targetValueMeta.getPrecision();
+      if ( precision < 1 || scale < 0 || scale > precision ) {
+        // not reported by the driver, which is what Vertica defaults to
+        precision = ColumnSpec.DEFAULT_NUMERIC_PRECISION;
+        scale = ColumnSpec.DEFAULT_NUMERIC_SCALE;
+        logBasic( "Precision or scale of target column " + insertValueMeta.getName() + " unknown, loading it as NUMERIC("
+            + precision + "," + scale + ")" );
+      }
+      return new ColumnSpec( ColumnSpec.PrecisionScaleWidthType.NUMERIC, precision, scale );
     }
     throw new IllegalArgumentException( "Column type " + targetColumnTypeName + " not supported." ); //$NON-NLS-1$
   }
 
-  private void initializeWorker() {
-    final String dml = buildCopyStatementSqlString();
+  /**
+   * Opens the COPY streams of this step copy. The first one uses the connection opened in {@link #init}, the others
+   * get a connection of their own.
+   */
+  private void openStreams() throws KettleException, IOException {
+    int streamCount = Math.max( 1, meta.getParallelStreams() );
+    if ( streamCount > 1 && log.isBasic() ) {
+      logBasic( "Loading through " + streamCount + " parallel COPY streams" );
+    }
+    if ( meta.isColumnarEncoding() && meta.getEncoderThreads() > 1 ) {
+      throw new KettleStepException( BaseMessages.getString( PKG,
+          "VerticaBulkLoaderMeta.CheckResult.ColumnarEncodingOnOneThread" ) );
+    }
+    if ( streamCount > 1 && getTransMeta().isUsingUniqueConnections() ) {
+      throw new KettleStepException( BaseMessages.getString( PKG,
+          "VerticaBulkLoaderMeta.CheckResult.ParallelStreamsOutsideTheTransaction" ) );
+    }
+    boolean chunked = isChunked();
+    boolean staged = isStaged();
+    boolean compressed = isCompressed();
+    if ( compressed && staged ) {
+      throw new KettleStepException( BaseMessages.getString( PKG,
+          "VerticaBulkLoaderMeta.CheckResult.CompressionOfStagedFiles" ) );
+    }
+    final String dml = buildCopyStatementSqlString( compressed ? "STDIN GZIP" : "STDIN" );
+    List<String> nodes = meta.isSpreadAcrossNodes() ? findUpNodes() : Collections.<String>emptyList();
+    data.routingRejects = getStepMeta().isDoingErrorHandling() && !meta.isAbortOnError();
+    data.routingVerticaRejects = data.routingRejects && meta.getChunkRows() > 0 && !staged;
+    if ( data.routingRejects && !data.routingVerticaRejects ) {
+      logBasic( "The rows Vertica rejects are only put on the error hop when the load is committed every N rows, "
+          + "without a staging directory" );
+    }
+    boolean committedInParts = chunked || staged;
+    if ( committedInParts && getTransMeta().isUsingUniqueConnections() ) {
+      logBasic( "The parts of the load are committed on their own, outside of the transaction of the transformation" );
+    }
+    for ( int i = 0; i < streamCount; i++ ) {
+      Database db;
+      if ( i == 0 && committedInParts && getTransMeta().isUsingUniqueConnections() ) {
+        db = connectStreamDatabase( meta.getDatabaseMeta() );
+      } else if ( i == 0 && ( nodes.isEmpty() || getTransMeta().isUsingUniqueConnections() ) ) {
+        // the connection of init() stays the one sharing the transaction of the other steps
+        db = data.db;
+      } else if ( nodes.isEmpty() ) {
+        db = connectStreamDatabase( meta.getDatabaseMeta() );
+      } else {
+        db = connectNodeDatabase( nodes, getCopy() * streamCount + i );
+      }
+      LoadStream stream = new LoadStream( i, db );
+      data.streams.add( stream );
+      if ( data.routingVerticaRejects ) {
+        stream.heldRows = new ArrayList<>();
+      }
+      if ( chunked && !staged ) {
+        // on the same node as the first connection
+        stream.chunkDb = connectStreamDatabase( db.getDatabaseMeta() );
+      }
+      int depth = Math.max( 1, meta.getBufferQueueDepth() );
+      if ( meta.getEncoderThreads() > 1 ) {
+        // room for the batches in flight plus the buffer the COPY worker is reading
+        depth = Math.max( depth, meta.getEncoderThreads() * 2 + 1 );
+      }
+      stream.bufferRing = new ByteBufferRing( depth );
+      stream.copyRing = stream.bufferRing;
+      stream.encoder = createStreamEncoder( data.colSpecs, stream.bufferRing );
+      stream.encoder.setListener( new StreamRowListener( stream ) );
 
-    data.workerThread = Executors.defaultThreadFactory().newThread( new Runnable() {
+      if ( compressed && !staged ) {
+        startCompressor( stream );
+      }
+      initializeWorker( stream, dml );
+      stream.encoder.writeHeader();
+    }
+  }
+
+  /**
+   * @return whether the data sent to the COPY statements is compressed
+   */
+  private boolean isCompressed() throws KettleStepException {
+    String compression = environmentSubstitute( meta.getCompression() );
+    if ( Const.isEmpty( compression ) || "NONE".equalsIgnoreCase( compression ) ) {
+      return false;
+    } else if ( "GZIP".equalsIgnoreCase( compression ) ) {
+      return true;
+    }
+    throw new KettleStepException( "Unsupported compression " + compression + ", use NONE or GZIP" );
+  }
+
+  /**
+   * Puts a compression thread between the encoder and the COPY worker of a stream.
+   */
+  private void startCompressor( final LoadStream loadStream ) {
+    loadStream.copyRing = new ByteBufferRing( ByteBufferRing.DEFAULT_DEPTH );
+    final RingCompressor compressor = new RingCompressor( loadStream.bufferRing, loadStream.copyRing );
+    Thread thread = new Thread( new Runnable() {
       @Override
       public void run() {
         try {
-          VerticaCopyStream stream = createVerticaCopyStream( dml );
-          stream.start();
-          stream.addStream( data.pipedInputStream );
-          setLinesRejected( stream.getRejects().size() );
-          stream.execute();
-          long rowsLoaded = stream.finish();
-          if ( getLinesOutput() != rowsLoaded ) {
-            logMinimal( String.format( "%d records loaded out of %d records sent.", rowsLoaded, getLinesOutput() ) );
+          compressor.compress();
+        } catch ( IOException e ) {
+          if ( !data.isStopped() && !loadStream.copyRing.isAborted() ) {
+            logError( "Unable to compress COPY stream " + loadStream.index, e );
+            setErrors( 1 );
+            stopAll();
+          }
+          compressor.abort();
+        }
+      }
+    }, "vertica-gzip-" + getStepname() + "-" + getCopy() + "-" + loadStream.index );
+    thread.setDaemon( true );
+    thread.start();
+  }
+
+  private Database connectStreamDatabase( DatabaseMeta databaseMeta ) throws KettleException {
+    Database db = new Database( this, databaseMeta );
+    db.shareVariablesWith( this );
+    // every stream needs a session of its own, even when the transformation uses unique connections
+    connectDatabase( db, false );
+    return db;
+  }
+
+  /**
+   * Opens a connection with auto-commit off.
+   *
+   * @param sharedTransaction whether the connection joins the transaction shared by the steps of a transformation using
+   *                          unique connections
+   */
+  @VisibleForTesting
+  void connectDatabase( Database db, boolean sharedTransaction ) throws KettleDatabaseException {
+    if ( sharedTransaction ) {
+      synchronized ( getTrans() ) {
+        db.connect( getTrans().getThreadName(), getPartitionID() );
+      }
+    } else {
+      db.connect( getPartitionID() );
+    }
+    db.setAutoCommit( false );
+  }
+
+  /**
+   * @return the addresses of the UP nodes of the cluster, empty if they cannot be listed
+   */
+  private List<String> findUpNodes() {
+    List<String> nodes = new ArrayList<>();
+    try {
+      List<Object[]> rows = data.db.getRows( NODES_QUERY, 0 );
+      if ( rows != null ) {
+        for ( Object[] row : rows ) {
+          if ( row[0] != null ) {
+            nodes.add( row[0].toString() );
           }
-          data.db.disconnect();
+        }
+      }
+    } catch ( KettleDatabaseException e ) {
+      logBasic( "Unable to list the nodes of the Vertica cluster, loading through the connection host: "
+          + e.getMessage() );
+      return Collections.emptyList();
+    }
+    if ( log.isDetailed() ) {
+      logDetailed( "UP nodes of the Vertica cluster: " + nodes );
+    }
+    return nodes;
+  }
+
+  /**
+   * Connects to the node assigned to a stream, or to the next one that answers when it is down. Falls back to the host
+   * of the connection when no node can be reached.
+   *
+   * @param nodes addresses of the UP nodes
+   * @param slot  index of the stream across all the copies of the step
+   */
+  private Database connectNodeDatabase( List<String> nodes, int slot ) throws KettleException {
+    for ( int attempt = 0; attempt < nodes.size(); attempt++ ) {
+      String address = nodes.get( ( slot + attempt ) % nodes.size() );
+      DatabaseMeta nodeMeta = (DatabaseMeta) meta.getDatabaseMeta().clone();
+      nodeMeta.setHostname( address );
+      // a pool would hand out connections to the host the pool was created for
+      nodeMeta.setUsingConnectionPool( false );
+      try {
+        Database db = connectStreamDatabase( nodeMeta );
+        if ( log.isDetailed() ) {
+          logDetailed( "COPY stream connected to Vertica node " + address );
+        }
+        return db;
+      } catch ( KettleDatabaseException e ) {
+        logBasic( "Unable to connect to Vertica node " + address + ", trying the next one: " + e.getMessage() );
+      }
+    }
+    return connectStreamDatabase( meta.getDatabaseMeta() );
+  }
+
+  private void startMetrics() {
+    data.metrics = new LoadMetrics( this, data.streams, data.insertRowMeta );
+    try {
+      data.metrics.register( getTransMeta().getName(), getStepname(), getCopy() );
+    } catch ( JMException e ) {
+      logDetailed( "Load metrics not available through JMX: " + e.getMessage() );
+    }
+  }
+
+  private void stopMetrics() {
+    LoadMetrics metrics = data.metrics;
+    if ( metrics == null ) {
+      return;
+    }
+    metrics.stop();
+    if ( log.isBasic() ) {
+      logBasic( "Load metrics: " + metrics.summary() );
+    }
+    try {
+      metrics.unregister();
+    } catch ( JMException e ) {
+      logDetailed( "Unable to unregister the load metrics from JMX: " + e.getMessage() );
+    }
+  }
+
+  /**
+   * @return the position in the input row of the fields used to distribute the rows, empty for round-robin
+   */
+  private int[] resolveDistributionFields() throws KettleStepException {
+    String fields = environmentSubstitute( meta.getDistributionFields() );
+    if ( Const.isEmpty( fields ) ) {
+      return new int[0];
+    }
+    String[] names = fields.split( "," );
+    int[] indices = new int[names.length];
+    for ( int i = 0; i < names.length; i++ ) {
+      indices[i] = getInputRowMeta().indexOfValue( names[i].trim() );
+      if ( indices[i] < 0 ) {
+        throw new KettleStepException( BaseMessages.getString( PKG,
+            "VerticaBulkLoader.Exception.FieldRequired", names[i].trim() ) ); //$NON-NLS-1$
+      }
+    }
+    return indices;
+  }
+
+  /**
+   * Picks the stream of a row: by a hash of the distribution fields when there are some, round-robin otherwise.
+   */
+  private LoadStream selectStream( Object[] r ) throws KettleValueException {
+    List<LoadStream> streams = data.streams;
+    if ( streams.size() == 1 ) {
+      return streams.get( 0 );
+    }
+    if ( data.distributionFieldIndices.length == 0 ) {
+      LoadStream stream = streams.get( data.nextStream );
+      data.nextStream = ( data.nextStream + 1 ) % streams.size();
+      return stream;
+    }
+    int hash = 1;
+    for ( int idx : data.distributionFieldIndices ) {
+      hash = 31 * hash + getInputRowMeta().getValueMeta( idx ).hashCode( r[idx] );
+    }
+    return streams.get( Math.floorMod( hash, streams.size() ) );
+  }
+
+  /**
+   * Counts the rows Vertica rejected in a chunk that stay off the error hop. Rows put on the error hop are counted by
+   * {@link #putError} instead, the ones rejected by the encoder included.
+   */
+  private void countRejectedByVertica( long rejectedInChunk ) {
+    if ( data.routingRejects ) {
+      for ( long i = 0; i < rejectedInChunk; i++ ) {
+        incrementLinesRejected();
+      }
+      return;
+    }
+    long rejected = 0;
+    for ( LoadStream stream : data.streams ) {
+      rejected += stream.rowsRejected;
+    }
+    setLinesRejected( rejected );
+  }
+
+  private void initializeWorker( final LoadStream loadStream, final String dml ) {
+    loadStream.workerThread = Executors.defaultThreadFactory().newThread( new Runnable() {
+      @Override
+      public void run() {
+        try {
+          loadStream.rowsLoaded = copyStream( loadStream, dml );
+          if ( loadStream.rowsSent != loadStream.rowsLoaded ) {
+            logMinimal( String.format( "%d records loaded out of %d records sent.", loadStream.rowsLoaded,
+                loadStream.rowsSent ) );
+          }
+          // the step thread commits the sessions of all the streams together, dispose() disconnects them
         } catch ( SQLException | IllegalStateException e ) {
           if ( e.getCause() instanceof InterruptedIOException ) {
             logBasic( "SQL statement interrupted by halt of transformation" );
@@ -349,14 +715,500 @@ public class VerticaBulkLoader extends BaseStep implements StepInterface {
             stopAll();
             setOutputDone(); // signal end to receiver(s)
           }
+          // don't leave the encoder waiting for buffers nobody will drain
+          loadStream.abort();
         }
       }
     } );
 
-    data.workerThread.start();
+    loadStream.workerThread.start();
+  }
+
+  /**
+   * Runs the COPY statements of a stream, one per chunk, reading its buffer ring until the encoder closes it. Every
+   * chunk but the last is finished and committed in the background while the next one loads over the other connection
+   * of the stream.
+   *
+   * @return the number of rows loaded
+   */
+  @VisibleForTesting
+  long copyStream( LoadStream loadStream, String dml ) throws SQLException {
+    if ( isStaged() ) {
+      loadStagedFiles( loadStream, stageStream( loadStream ) );
+      return loadStream.rowsLoaded;
+    }
+    ExecutorService committer = null;
+    // the completion of the last chunk of each connection
+    Future<?>[] pending = new Future<?>[2];
+    long chunkStart = 0;
+    try {
+      for ( int chunk = 0; ; chunk++ ) {
+        Database db = loadStream.sessionFor( chunk );
+        awaitChunk( pending[chunk % 2] );
+        VerticaCopyStream stream = createVerticaCopyStream( db, dml );
+        stream.start();
+        stream.addStream( loadStream.copyRing.getInputStream() );
+        stream.execute();
+
+        if ( loadStream.copyRing.isDrained() ) {
+          // complete the chunks in order
+          awaitChunk( pending[( chunk + 1 ) % 2] );
+          completeChunk( loadStream, chunk, db, stream, loadStream.rowsSent - chunkStart );
+          return loadStream.rowsLoaded;
+        }
+
+        long chunkEnd = loadStream.chunkEnds.remove();
+        if ( committer == null ) {
+          committer = Executors.newSingleThreadExecutor( new CommitThreadFactory( loadStream ) );
+        }
+        final int chunkNr = chunk;
+        final long sent = chunkEnd - chunkStart;
+        pending[chunk % 2] = committer.submit( new Callable<Void>() {
+          @Override
+          public Void call() throws SQLException {
+            completeChunk( loadStream, chunkNr, db, stream, sent );
+            return null;
+          }
+        } );
+        chunkStart = chunkEnd;
+      }
+    } finally {
+      if ( committer != null ) {
+        committer.shutdown();
+      }
+    }
+  }
+
+  /**
+   * Finishes the COPY statement of a chunk and, when the load is chunked, commits it. The rows Vertica rejected are
+   * handed to the step thread when they go to the error hop, see {@link #passOnCompletedChunks()}.
+   */
+  private void completeChunk( LoadStream loadStream, int chunk, Database db, VerticaCopyStream stream, long sent )
+    throws SQLException {
+    long loaded = stream.finish();
+    List<Long> rejects = stream.getRejects();
+    long rejected = rejects.size();
+    if ( isChunked() ) {
+      try {
+        commit( db );
+      } catch ( KettleDatabaseException e ) {
+        throw new SQLException( "Unable to commit chunk " + ( chunk + 1 ) + " of COPY stream " + loadStream.index, e );
+      }
+      if ( log.isBasic() ) {
+        logBasic( String.format( "COPY stream %d, chunk %d: %d rows loaded and %d rejected out of %d sent",
+            loadStream.index, chunk + 1, loaded, rejected, sent ) );
+      }
+    }
+    loadStream.chunkCompleted( loaded, rejected );
+    if ( data.routingVerticaRejects ) {
+      loadStream.completedChunkRejects.add( rejects );
+    } else {
+      countRejectedByVertica( rejected );
+    }
+  }
+
+  /**
+   * Passes on the rows of the chunks completed so far, in the order they were written, and puts the ones Vertica
+   * rejected on the error hop instead.
+   */
+  private void passOnCompletedChunks() throws KettleException {
+    for ( LoadStream stream : data.streams ) {
+      List<Long> rejects;
+      while ( ( rejects = stream.completedChunkRejects.poll() ) != null ) {
+        List<Object[]> rows = stream.heldChunks.remove();
+        Set<Long> rejected = new HashSet<>( rejects );
+        for ( int i = 0; i < rows.size(); i++ ) {
+          // numbered from 1 in the COPY statement of the chunk
+          if ( rejected.contains( (long) i + 1 ) ) {
+            putError( data.outputRowMeta, rows.get( i ), 1, "Row " + ( i + 1 )
+                + " of the COPY statement rejected by Vertica", null, REJECTED_BY_VERTICA );
+          } else {
+            passOn( rows.get( i ) );
+          }
+        }
+      }
+    }
+  }
+
+  private void awaitWorkers() throws KettleStepException {
+    for ( LoadStream stream : data.streams ) {
+      Thread workerThread = stream.workerThread;
+      if ( workerThread != null ) {
+        try {
+          workerThread.join();
+        } catch ( InterruptedException e ) {
+          Thread.currentThread().interrupt();
+          throw new KettleStepException( "Interrupted while waiting for the COPY statements to finish", e );
+        }
+      }
+    }
+  }
+
+  /**
+   * Commits the sessions of an unchunked load once all its COPY statements finished, so that the streams succeed or
+   * fail together. The parts of a chunked or staged load are committed as they complete, and the connection shared
+   * with the other steps of a transformation using unique connections is committed by the transformation.
+   */
+  private void commitStreams() throws KettleException {
+    if ( getErrors() > 0 || isChunked() || isStaged() ) {
+      // dispose() rolls the sessions back
+      return;
+    }
+    for ( LoadStream stream : data.streams ) {
+      if ( stream.db != data.db || !getTransMeta().isUsingUniqueConnections() ) {
+        commit( stream.db );
+      }
+    }
+  }
+
+  @VisibleForTesting
+  void commit( Database db ) throws KettleDatabaseException {
+    db.commit();
+  }
+
+  private static void awaitChunk( Future<?> completion ) throws SQLException {
+    if ( completion == null ) {
+      return;
+    }
+    try {
+      completion.get();
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new SQLException( "Interrupted while waiting for a chunk to be committed", new InterruptedIOException() );
+    } catch ( ExecutionException e ) {
+      Throwable cause = e.getCause();
+      if ( cause instanceof SQLException ) {
+        throw (SQLException) cause;
+      } else if ( cause instanceof RuntimeException ) {
+        throw (RuntimeException) cause;
+      }
+      throw new SQLException( cause );
+    }
   }
 
-  private String buildCopyStatementSqlString() {
+  private boolean isChunked() {
+    return meta.getChunkRows() > 0 || meta.getChunkBytes() > 0 || meta.getCommitLatency() > 0;
+  }
+
+  private boolean isChunkFull( LoadStream stream ) {
+    return ( meta.getChunkRows() > 0 && stream.chunkRowsWritten >= meta.getChunkRows() )
+        || ( meta.getChunkBytes() > 0
+        && stream.bufferRing.getPublishedBytes() - stream.chunkStartBytes >= meta.getChunkBytes() )
+        // without a staging directory the chunks would share a single connection, see LoadStream#sessionFor
+        || ( meta.getStagingFileBytes() > 0
+        && stream.bufferRing.getPublishedBytes() - stream.chunkStartBytes >= meta.getStagingFileBytes() && isStaged() );
+  }
+
+  private boolean isStaged() {
+    return !Const.isEmpty( environmentSubstitute( meta.getStagingDirectory() ) );
+  }
+
+  /**
+   * Writes the chunks of a stream to files of the staging directory, one file per chunk.
+   *
+   * @return the staged files, in order
+   */
+  private List<StagedFile> stageStream( LoadStream loadStream ) throws SQLException {
+    File directory = new File( environmentSubstitute( meta.getStagingDirectory() ) );
+    String prefix = ( getStepname() + "-" + getCopy() + "-" + loadStream.index ).replaceAll( "[^\\w.-]", "_" ) + "-"
+        + System.currentTimeMillis() + "-";
+    List<StagedFile> files = new ArrayList<>();
+    long chunkStart = 0;
+    try {
+      Files.createDirectories( directory.toPath() );
+      for ( int chunk = 0; ; chunk++ ) {
+        File file = new File( directory, prefix + chunk + ".native" );
+        try ( FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE ) ) {
+          loadStream.bufferRing.transferChunkTo( channel );
+        }
+        boolean drained = loadStream.bufferRing.isDrained();
+        long chunkEnd = drained ? loadStream.rowsSent : loadStream.chunkEnds.remove();
+        if ( chunkEnd > chunkStart ) {
+          files.add( new StagedFile( file, chunkEnd - chunkStart ) );
+        } else {
+          // only a header
+          Files.delete( file.toPath() );
+        }
+        if ( drained ) {
+          if ( log.isDetailed() ) {
+            logDetailed( "COPY stream " + loadStream.index + " staged to " + files.size() + " files in " + directory );
+          }
+          return files;
+        }
+        chunkStart = chunkEnd;
+      }
+    } catch ( IOException e ) {
+      throw new SQLException( "Unable to stage COPY stream " + loadStream.index + " to " + directory, e );
+    }
+  }
+
+  /**
+   * Loads staged files with COPY FROM LOCAL, several files per statement. The files of a statement that fails are
+   * loaded again one by one, each one up to {@value #STAGED_FILE_ATTEMPTS} times. Every statement is committed on its
+   * own and its files deleted, so a file that cannot be loaded is left behind with only the files after it.
+   */
+  private void loadStagedFiles( LoadStream loadStream, List<StagedFile> files ) throws SQLException {
+    for ( int from = 0; from < files.size(); from += STAGED_FILES_PER_COPY ) {
+      List<StagedFile> group = files.subList( from, Math.min( files.size(), from + STAGED_FILES_PER_COPY ) );
+      try {
+        loadStagedGroup( loadStream, group );
+      } catch ( SQLException e ) {
+        if ( group.size() == 1 ) {
+          retryStagedFile( loadStream, group.get( 0 ), e );
+          continue;
+        }
+        logBasic( "Unable to load " + group.size() + " staged files in one COPY, loading them one by one: "
+            + e.getMessage() );
+        recoverSession( loadStream.db );
+        for ( StagedFile file : group ) {
+          try {
+            loadStagedGroup( loadStream, Collections.singletonList( file ) );
+          } catch ( SQLException fileFailure ) {
+            retryStagedFile( loadStream, file, fileFailure );
+          }
+        }
+      }
+    }
+  }
+
+  private void retryStagedFile( LoadStream loadStream, StagedFile file, SQLException failure ) throws SQLException {
+    for ( int attempt = 1; ; attempt++ ) {
+      if ( attempt == STAGED_FILE_ATTEMPTS ) {
+        throw new SQLException( "Unable to load staged file " + file.file + " after " + attempt
+            + " attempts, the file is kept", failure );
+      }
+      logBasic( "Attempt " + attempt + " to load staged file " + file.file + " failed, retrying: "
+          + failure.getMessage() );
+      try {
+        Thread.sleep( STAGED_FILE_RETRY_MILLIS * attempt );
+      } catch ( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+        throw new SQLException( "Interrupted while waiting to load a staged file", new InterruptedIOException() );
+      }
+      recoverSession( loadStream.db );
+      try {
+        loadStagedGroup( loadStream, Collections.singletonList( file ) );
+        return;
+      } catch ( SQLException e ) {
+        failure = e;
+      }
+    }
+  }
+
+  /**
+   * Loads staged files in one COPY statement, commits it and deletes the files.
+   */
+  private void loadStagedGroup( LoadStream loadStream, List<StagedFile> group ) throws SQLException {
+    StringBuilder source = new StringBuilder( "LOCAL " );
+    long sent = 0;
+    for ( int i = 0; i < group.size(); i++ ) {
+      if ( i > 0 ) {
+        source.append( ", " );
+      }
+      source.append( '\'' ).append( group.get( i ).file.getAbsolutePath().replace( "'", "''" ) ).append( '\'' );
+      sent += group.get( i ).rows;
+    }
+    long loaded = copyLocal( loadStream.db, buildCopyStatementSqlString( source.toString() ) );
+    try {
+      commit( loadStream.db );
+    } catch ( KettleDatabaseException e ) {
+      throw new SQLException( "Unable to commit the staged files of COPY stream " + loadStream.index, e );
+    }
+    for ( StagedFile file : group ) {
+      if ( !file.file.delete() ) {
+        logBasic( "Unable to delete loaded staging file " + file.file );
+      }
+    }
+    if ( log.isBasic() ) {
+      logBasic( String.format( "COPY stream %d: %d rows loaded and %d rejected out of %d sent from %d staged files",
+          loadStream.index, loaded, sent - loaded, sent, group.size() ) );
+    }
+    loadStream.chunkCompleted( loaded, sent - loaded );
+    countRejectedByVertica( sent - loaded );
+  }
+
+  /**
+   * Rolls back a failed statement, or opens a new session when the connection was lost.
+   */
+  private void recoverSession( Database db ) throws SQLException {
+    try {
+      Connection connection = db.getConnection();
+      if ( connection != null && connection.isValid( 10 ) ) {
+        db.rollback();
+        return;
+      }
+      logBasic( "Connection of the staged load lost, reconnecting" );
+      db.disconnect();
+      connectDatabase( db, false );
+    } catch ( KettleDatabaseException e ) {
+      throw new SQLException( "Unable to recover the session of a staged load", e );
+    }
+  }
+
+  /**
+   * Runs a COPY FROM LOCAL statement.
+   *
+   * @return the number of rows loaded
+   */
+  @VisibleForTesting
+  long copyLocal( Database db, String dml ) throws SQLException {
+    try ( Statement statement = db.getConnection().createStatement() ) {
+      return statement.executeUpdate( dml );
+    }
+  }
+
+  /**
+   * A NATIVE file staged by a stream and the number of rows written to it, rejected rows excluded.
+   */
+  private static class StagedFile {
+    private final File file;
+    private final long rows;
+
+    StagedFile( File file, long rows ) {
+      this.file = file;
+      this.rows = rows;
+    }
+  }
+
+  /**
+   * The outcome of a row reported on the latency timer thread, on its way to the step thread.
+   */
+  private static class DeferredOutcome {
+    private final StreamRowListener listener;
+    private final Object tag;
+    /** Why the encoder rejected the row, <tt>null</tt> when it was encoded */
+    private final KettleValueException cause;
+
+    DeferredOutcome( StreamRowListener listener, Object tag, KettleValueException cause ) {
+      this.listener = listener;
+      this.tag = tag;
+      this.cause = cause;
+    }
+  }
+
+  /**
+   * Ends the chunk of a stream, the next rows go to a new COPY statement.
+   */
+  private void rollOver( LoadStream stream ) throws IOException, KettleException {
+    stream.encoder.flush();
+    // the rows of the chunk are all reported once flushed
+    if ( stream.heldRows != null ) {
+      stream.heldChunks.add( stream.heldRows );
+      stream.heldRows = new ArrayList<>();
+    }
+    stream.chunkEnds.add( stream.rowsSent );
+    stream.encoder.endChunk();
+    stream.chunkRowsWritten = 0;
+    stream.chunkStartBytes = stream.bufferRing.getPublishedBytes();
+  }
+
+  /**
+   * Starts the timer ending the chunks whose first row waited for the commit latency, so that rows get committed in
+   * time even when the input goes quiet. The timer checks the streams four times per latency period.
+   */
+  private void startLatencyTimer() {
+    if ( meta.getCommitLatency() <= 0 ) {
+      return;
+    }
+    data.latencyTimer = Executors.newSingleThreadScheduledExecutor( new ThreadFactory() {
+      @Override
+      public Thread newThread( Runnable runnable ) {
+        Thread thread = new Thread( runnable, "vertica-latency-" + getStepname() + "-" + getCopy() );
+        thread.setDaemon( true );
+        return thread;
+      }
+    } );
+    long period = Math.max( 1, meta.getCommitLatency() / 4 );
+    data.latencyTimer.scheduleWithFixedDelay( new Runnable() {
+      @Override
+      public void run() {
+        rollOverLateChunks();
+      }
+    }, period, period, TimeUnit.MILLISECONDS );
+  }
+
+  /**
+   * Ends the chunks holding rows older than the commit latency. Runs on the timer thread while the step thread is kept
+   * out of the encoders, the rows reported by a flush are queued for the step thread to pass them on, see
+   * {@link #reportDeferredOutcomes()}.
+   */
+  private void rollOverLateChunks() {
+    long latency = TimeUnit.MILLISECONDS.toNanos( meta.getCommitLatency() );
+    synchronized ( data.streamLock ) {
+      deferringOutcomes = true;
+      try {
+        long now = System.nanoTime();
+        for ( LoadStream stream : data.streams ) {
+          if ( stream.chunkRowsWritten > 0 && now - stream.chunkStartNanos >= latency ) {
+            rollOver( stream );
+          }
+        }
+      } catch ( IOException | KettleException e ) {
+        if ( !data.isStopped() ) {
+          logError( "Unable to end a chunk after the commit latency.", e );
+          setErrors( 1 );
+          stopAll();
+        }
+        data.latencyTimer.shutdown();
+      } finally {
+        deferringOutcomes = false;
+      }
+    }
+  }
+
+  /**
+   * Passes on the rows the encoders reported while the latency timer ended their chunks, in the order they were
+   * reported, before the rows written after them.
+   */
+  private void reportDeferredOutcomes() throws KettleException {
+    DeferredOutcome outcome;
+    while ( ( outcome = deferredOutcomes.poll() ) != null ) {
+      if ( outcome.cause == null ) {
+        passOn( (Object[]) outcome.tag );
+      } else {
+        outcome.listener.reject( outcome.tag, outcome.cause );
+      }
+    }
+  }
+
+  /**
+   * Stops the latency timer and waits for a running check to end.
+   */
+  private void stopLatencyTimer() {
+    ScheduledExecutorService timer = data.latencyTimer;
+    if ( timer == null ) {
+      return;
+    }
+    timer.shutdownNow();
+    try {
+      timer.awaitTermination( 1, TimeUnit.MINUTES );
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+    }
+    data.latencyTimer = null;
+  }
+
+  private class CommitThreadFactory implements ThreadFactory {
+    private final LoadStream loadStream;
+
+    CommitThreadFactory( LoadStream loadStream ) {
+      this.loadStream = loadStream;
+    }
+
+    @Override
+    public Thread newThread( Runnable runnable ) {
+      Thread thread = new Thread( runnable, "vertica-commit-" + getStepname() + "-" + getCopy() + "-"
+          + loadStream.index );
+      thread.setDaemon( true );
+      return thread;
+    }
+  }
+
+  /**
+   * @param source what follows FROM in the statement, <tt>STDIN</tt> or a list of local files
+   */
+  private String buildCopyStatementSqlString( String source ) {
     final DatabaseMeta databaseMeta = data.db.getDatabaseMeta();
 
     StringBuilder sb = new StringBuilder( 150 );
@@ -371,25 +1223,12 @@ public class VerticaBulkLoader extends BaseStep implements StepInterface {
       if ( i > 0 ) {
         sb.append( ", " );
       }
-      ColumnType columnType = data.colSpecs.get( i ).type;
-      ValueMetaInterface valueMeta = fields.getValueMeta( i );
-      switch ( columnType ) {
-        case NUMERIC:
-          sb.append( "TMPFILLERCOL" ).append( i ).append( " FILLER VARCHAR(1000), " );
-          // Force columns to be quoted:
-          sb.append( databaseMeta.getStartQuote() + valueMeta.getName() + databaseMeta.getEndQuote() );
-          sb.append( " AS CAST(" ).append( "TMPFILLERCOL" ).append( i ).append( " AS NUMERIC" );
-          sb.append( ")" );
-          break;
-        default:
-          // Force columns to be quoted:
-          sb.append( databaseMeta.getStartQuote() + valueMeta.getName() + databaseMeta.getEndQuote() );
-          break;
-      }
+      // Force columns to be quoted:
+      sb.append( databaseMeta.getStartQuote() + fields.getValueMeta( i ).getName() + databaseMeta.getEndQuote() );
     }
     sb.append( ")" );
 
-    sb.append( " FROM STDIN NATIVE " );
+    sb.append( " FROM " ).append( source ).append( " NATIVE " );
 
     if ( !Const.isEmpty( meta.getExceptionsFileName() ) ) {
       sb.append( "EXCEPTIONS E'" ).append( meta.getExceptionsFileName().replace( "'", "\\'" ) ).append( "' " );
@@ -425,42 +1264,124 @@ public class VerticaBulkLoader extends BaseStep implements StepInterface {
     return sb.toString();
   }
 
-  private Object[] writeToOutputStream( Object[] r ) throws KettleException, IOException {
+  private void writeToOutputStream( Object[] r ) throws KettleException, IOException {
     assert ( r != null );
 
-    Object[] insertRowData = r;
-    Object[] outputRowData = r;
+    try {
+      LoadStream stream = selectStream( r );
+      if ( data.latencyTimer == null ) {
+        writeToStream( stream, r );
+      } else {
+        // the timer ends the chunks between two rows
+        synchronized ( data.streamLock ) {
+          // the rows of the chunks it ended first
+          reportDeferredOutcomes();
+          writeToStream( stream, r );
+        }
+      }
+    } catch ( IOException e ) {
+      if ( !data.isStopped() ) {
+        throw new KettleException( "I/O Error during row write.", e );
+      }
+    }
+  }
+
+  private void writeToStream( LoadStream stream, Object[] r ) throws KettleException, IOException {
+    if ( isChunkFull( stream ) ) {
+      rollOver( stream );
+    }
+    if ( stream.chunkRowsWritten == 0 ) {
+      stream.chunkStartNanos = System.nanoTime();
+    }
+    // the encoder picks the values of the columns from the input row, without copying them
+    stream.encoder.writeRow( data.inputRowMeta, r, data.selectedRowFieldIndices, r );
+    stream.chunkRowsWritten++;
+  }
+
+  /**
+   * Encodes the rows still pending in the streams and hands them over to the COPY workers.
+   */
+  private void finishStreams() throws KettleException {
+    for ( LoadStream stream : data.streams ) {
+      try {
+        stream.encoder.writeRow( data.insertRowMeta, null, null );
+      } catch ( IOException e ) {
+        if ( !data.isStopped() ) {
+          throw new KettleException( "I/O Error during row write.", e );
+        }
+      }
+      if ( stream.heldRows != null ) {
+        // the last chunk
+        stream.heldChunks.add( stream.heldRows );
+        stream.heldRows = null;
+      }
+    }
+  }
+
+  /**
+   * Passes a loaded row on to the next steps.
+   */
+  private void passOn( Object[] row ) throws KettleException {
+    // listeners, e.g. of a preview, may be added while the step runs
+    if ( data.hasOutputSteps || !getRowListeners().isEmpty() ) {
+      putRow( data.outputRowMeta, row ); // in case we want it
+    }
+    // go further...
+    incrementLinesOutput();
+  }
 
-    if ( meta.specifyFields() ) {
-      insertRowData = new Object[data.selectedRowFieldIndices.length];
-      for ( int idx = 0; idx < data.selectedRowFieldIndices.length; idx++ ) {
-        insertRowData[idx] = r[data.selectedRowFieldIndices[idx]];
+  /**
+   * Passes a row on to the next steps once its stream encoded it, or logs it as rejected, on the step thread. When the
+   * rows Vertica rejects go to the error hop, the encoded rows are held until their chunk is completed.
+   */
+  private class StreamRowListener implements RowHandoffListener {
+    private final LoadStream stream;
+
+    StreamRowListener( LoadStream stream ) {
+      this.stream = stream;
+    }
+
+    @Override
+    public void rowEncoded( Object tag ) throws KettleException {
+      // the chunk ends the timer records include the rows it flushed
+      stream.rowsSent++;
+      if ( stream.heldRows != null ) {
+        // passed on once Vertica loaded it, see passOnCompletedChunks()
+        stream.heldRows.add( (Object[]) tag );
+      } else if ( deferringOutcomes ) {
+        deferredOutcomes.add( new DeferredOutcome( this, tag, null ) );
+      } else {
+        passOn( (Object[]) tag );
       }
     }
 
-    try {
-      data.encoder.writeRow( data.insertRowMeta, insertRowData );
-    } catch ( KettleValueException valueException ) {
+    @Override
+    public void rowRejected( Object tag, KettleValueException cause ) throws KettleException {
+      if ( deferringOutcomes ) {
+        deferredOutcomes.add( new DeferredOutcome( this, tag, cause ) );
+      } else {
+        reject( tag, cause );
+      }
+    }
+
+    private void reject( Object tag, KettleValueException cause ) throws KettleException {
       /*
-      *  If we are to abort, we should continue throwing the exception. If we are not aborting, we need to set the
-      *  outputRowData to null, so the next step knows not to add it and continue. We also need to write to the
-      *  rejected log what data failed (print out the outputRowData before null'ing it) and write to the error log the
-      *  issue.
+      *  If we are to abort, we should continue throwing the exception. If we are not aborting, the row is not passed
+      *  on, so the next step knows not to add it and continue. We also need to write to the rejected log what data
+      *  failed and write to the error log the issue.
       */
-      //write outputRowData -> Rejected Row
-      //write Error Log as to why it was rejected
-      writeExceptionRejectionLogs( valueException, outputRowData );
+      try {
+        writeExceptionRejectionLogs( cause, (Object[]) tag );
+      } catch ( IOException e ) {
+        throw new KettleException( "Unable to log the rejected row.", e );
+      }
       if ( meta.isAbortOnError() ) {
-        throw valueException;
+        throw cause;
       }
-      outputRowData = null;
-    } catch ( IOException e ) {
-      if ( !data.isStopped() ) {
-        throw new KettleException( "I/O Error during row write.", e );
+      if ( data.routingRejects ) {
+        putError( data.outputRowMeta, (Object[]) tag, 1, cause.getMessage(), null, ENCODING_FAILED );
       }
     }
-
-    return outputRowData;
   }
 
   protected void verifyDatabaseConnection() throws KettleException {
@@ -485,20 +1406,12 @@ public class VerticaBulkLoader extends BaseStep implements StepInterface {
         data.db = new Database( this, meta.getDatabaseMeta() );
         data.db.shareVariablesWith( this );
 
-        if ( getTransMeta().isUsingUniqueConnections() ) {
-          synchronized ( getTrans() ) {
-            data.db.connect( getTrans().getThreadName(), getPartitionID() );
-          }
-        } else {
-          data.db.connect( getPartitionID() );
-        }
+        connectDatabase( data.db, getTransMeta().isUsingUniqueConnections() );
 
         if ( log.isBasic() ) {
           logBasic( "Connected to database [" + meta.getDatabaseMeta() + "]" );
         }
 
-        data.db.setAutoCommit( false );
-
         return true;
       } catch ( KettleException e ) {
         logError( "An error occurred intialising this step: " + e.getMessage() );
@@ -524,15 +1437,21 @@ public class VerticaBulkLoader extends BaseStep implements StepInterface {
   public void stopRunning( StepMetaInterface stepMetaInterface, StepDataInterface stepDataInterface )
     throws KettleException {
     setStopped( true );
-    if ( data.workerThread != null ) {
-      synchronized ( data.workerThread ) {
-        if ( data.workerThread.isAlive() && !data.workerThread.isInterrupted() ) {
-          try {
-            data.workerThread.interrupt();
-            data.workerThread.join();
-          } catch ( InterruptedException e ) { // Checkstyle:OFF:
+    for ( LoadStream stream : data.streams ) {
+      stream.abort();
+    }
+    for ( LoadStream stream : data.streams ) {
+      Thread workerThread = stream.workerThread;
+      if ( workerThread != null ) {
+        synchronized ( workerThread ) {
+          if ( workerThread.isAlive() && !workerThread.isInterrupted() ) {
+            try {
+              workerThread.interrupt();
+              workerThread.join();
+            } catch ( InterruptedException e ) { // Checkstyle:OFF:
+            }
+            // Checkstyle:ONN:
           }
-          // Checkstyle:ONN:
         }
       }
     }
@@ -547,24 +1466,58 @@ public class VerticaBulkLoader extends BaseStep implements StepInterface {
 
     // allow data to be garbage collected immediately:
     data.colSpecs = null;
-    data.encoder = null;
 
     setOutputDone();
+    stopLatencyTimer();
+    if ( getErrors() > 0 && meta.getDatabaseMeta() != null ) {
+      // the table may have changed under the step, the fields read through the DBCache included
+      TableMetadataCache.getInstance().invalidate( getTableCacheKey( TABLE_FIELDS ) );
+      TableMetadataCache.getInstance().invalidate( getTableCacheKey( CATALOG_COLUMNS ) );
+      DBCache.getInstance().clear( meta.getDatabaseMeta().getName() );
+    }
 
-    try {
-      if ( getErrors() > 0 ) {
-        data.db.rollback();
+    for ( LoadStream stream : data.streams ) {
+      try {
+        if ( getErrors() > 0 ) {
+          stream.db.rollback();
+          if ( stream.chunkDb != null ) {
+            stream.chunkDb.rollback();
+          }
+        }
+      } catch ( KettleDatabaseException e ) {
+        logError( "Unexpected error rolling back the database connection.", e );
       }
-    } catch ( KettleDatabaseException e ) {
-      logError( "Unexpected error rolling back the database connection.", e );
     }
-
-    if ( data.workerThread != null ) {
+    if ( data.streams.isEmpty() ) {
       try {
-        data.workerThread.join();
-      } catch ( InterruptedException e ) { // Checkstyle:OFF:
+        if ( getErrors() > 0 && data.db != null ) {
+          data.db.rollback();
+        }
+      } catch ( KettleDatabaseException e ) {
+        logError( "Unexpected error rolling back the database connection.", e );
+      }
+    }
+
+    for ( LoadStream stream : data.streams ) {
+      if ( stream.workerThread != null ) {
+        try {
+          stream.workerThread.join();
+        } catch ( InterruptedException e ) { // Checkstyle:OFF:
+        }
+        // Checkstyle:ONN:
+      }
+      stream.db.disconnect();
+      if ( stream.chunkDb != null ) {
+        stream.chunkDb.disconnect();
       }
-      // Checkstyle:ONN:
+    }
+    stopMetrics();
+    for ( LoadStream stream : data.streams ) {
+      if ( stream.encoder != null ) {
+        // a load that did not reach the end of its rows still has its encoder threads
+        stream.encoder.abort();
+      }
+      stream.encoder = null;
     }
 
     if ( data.db != null ) {
@@ -573,19 +1526,86 @@ public class VerticaBulkLoader extends BaseStep implements StepInterface {
     super.dispose( smi, sdi );
   }
 
+  /**
+   * @return the columns of the target table, read over the connection of the step unless another copy or run of the
+   * step read them recently
+   */
   @VisibleForTesting
-  StreamEncoder createStreamEncoder( List<ColumnSpec> colSpecs, PipedInputStream pipedInputStream ) throws IOException {
-    return new StreamEncoder( colSpecs, pipedInputStream );
+  RowMetaInterface getTableRowMeta() throws KettleException {
+    RowMetaInterface rowMeta = TableMetadataCache.getInstance().get( getTableCacheKey( TABLE_FIELDS ),
+        getMetadataTtl(), new TableMetadataCache.Loader<RowMetaInterface>() {
+          @Override
+          public RowMetaInterface load() throws KettleException {
+            return meta.getTableRowMetaInterface( data.db );
+          }
+        } );
+    return rowMeta.clone();
   }
 
+  /**
+   * @return the columns of the target table from <tt>v_catalog.columns</tt>, empty when they cannot be read, in which
+   * case the columns are typed from the JDBC metadata
+   */
   @VisibleForTesting
-  VerticaCopyStream createVerticaCopyStream( String dml ) throws SQLException {
-    return new VerticaCopyStream( getVerticaConnection(), dml );
+  CatalogColumns getCatalogColumns() {
+    final Connection connection = data.db == null ? null : data.db.getConnection();
+    if ( connection == null ) {
+      return CatalogColumns.EMPTY;
+    }
+    try {
+      return TableMetadataCache.getInstance().get( getTableCacheKey( CATALOG_COLUMNS ), getMetadataTtl(),
+          new TableMetadataCache.Loader<CatalogColumns>() {
+            @Override
+            public CatalogColumns load() throws KettleException {
+              try {
+                return CatalogColumns.read( connection, environmentSubstitute( meta.getSchemaName() ),
+                    environmentSubstitute( meta.getTableName() ) );
+              } catch ( SQLException e ) {
+                throw new KettleDatabaseException( e );
+              }
+            }
+          } );
+    } catch ( KettleException e ) {
+      logBasic( "Unable to read the column types from v_catalog.columns, using the JDBC metadata: " + e.getMessage() );
+      return CatalogColumns.EMPTY;
+    }
+  }
+
+  private long getMetadataTtl() {
+    return Const.toLong( getVariable( TableMetadataCache.TTL_VARIABLE ), TableMetadataCache.DEFAULT_TTL_MILLIS );
+  }
+
+  private String getTableCacheKey( String kind ) {
+    DatabaseMeta databaseMeta = meta.getDatabaseMeta();
+    String connection = databaseMeta.getName() + "@" + environmentSubstitute( databaseMeta.getHostname() ) + ":"
+        + environmentSubstitute( databaseMeta.getDatabasePortNumberString() ) + "/"
+        + environmentSubstitute( databaseMeta.getDatabaseName() );
+    return TableMetadataCache.key( connection, databaseMeta.getQuotedSchemaTableCombination(
+        environmentSubstitute( meta.getSchemaName() ), environmentSubstitute( meta.getTableName() ) ), kind );
+  }
+
+  @VisibleForTesting
+  StreamEncoder createStreamEncoder( List<ColumnSpec> colSpecs, ByteBufferRing bufferRing ) throws IOException {
+    if ( meta.getEncoderThreads() > 1 ) {
+      return new ParallelStreamEncoder( colSpecs, bufferRing, meta.getBufferSize(), meta.getEncoderThreads() );
+    } else if ( meta.isColumnarEncoding() ) {
+      return new ColumnarStreamEncoder( colSpecs, bufferRing, meta.getBufferSize() );
+    }
+    return new StreamEncoder( colSpecs, bufferRing, meta.getBufferSize() );
+  }
+
+  @VisibleForTesting
+  VerticaCopyStream createVerticaCopyStream( Database db, String dml ) throws SQLException {
+    return new VerticaCopyStream( getVerticaConnection( db ), dml );
   }
 
   @VisibleForTesting
   VerticaConnection getVerticaConnection() throws SQLException {
-    Connection conn = data.db.getConnection();
+    return getVerticaConnection( data.db );
+  }
+
+  private VerticaConnection getVerticaConnection( Database db ) throws SQLException {
+    Connection conn = db.getConnection();
     if ( conn != null ) {
       if ( conn instanceof VerticaConnection ) {
         return (VerticaConnection) conn;
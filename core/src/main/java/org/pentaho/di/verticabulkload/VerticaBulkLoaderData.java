@@ -21,28 +21,54 @@ import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.step.BaseStepData;
 import org.pentaho.di.trans.step.StepDataInterface;
 
-import org.pentaho.di.verticabulkload.nativebinary.StreamEncoder;
 import java.io.IOException;
-import java.io.PipedInputStream;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
 
 public class VerticaBulkLoaderData extends BaseStepData implements StepDataInterface {
   protected Database db;
   protected DatabaseMeta databaseMeta;
 
-  protected StreamEncoder encoder;
-
+  /** Position in the input row of the value of each column, the field map of the encoders */
   protected int[] selectedRowFieldIndices;
+  /** The input row metadata the encoders are compiled for, the same object for every row */
+  protected RowMetaInterface inputRowMeta;
 
   protected RowMetaInterface outputRowMeta;
   protected RowMetaInterface insertRowMeta;
 
-  protected PipedInputStream pipedInputStream;
+  /** The COPY streams of this step copy, the first one uses {@link #db} */
+  protected List<LoadStream> streams = new ArrayList<>();
 
-  protected volatile Thread workerThread;
+  /** Position in the input row of the fields used to pick the stream of a row, empty for round-robin */
+  protected int[] distributionFieldIndices = new int[0];
+  protected int nextStream;
 
   protected List<ColumnSpec> colSpecs;
 
+  /** The columns of the target table from the catalog, empty when the JDBC metadata is used instead */
+  protected CatalogColumns catalogColumns = CatalogColumns.EMPTY;
+
+  /** Whether the rows rejected by the encoder are put on the error hop */
+  protected boolean routingRejects;
+  /**
+   * Whether the rows rejected by Vertica are put on the error hop as well, the loaded rows being passed on once their
+   * chunk is completed
+   */
+  protected boolean routingVerticaRejects;
+
+  /** Whether a step takes the loaded rows, the row listeners being checked for every row */
+  protected boolean hasOutputSteps = true;
+
+  /** Counters of the load, available once the streams are open */
+  protected LoadMetrics metrics;
+
+  /** Ends the chunks waiting for longer than the commit latency, <tt>null</tt> when there is no commit latency */
+  protected volatile ScheduledExecutorService latencyTimer;
+  /** Held while writing to the encoders when the latency timer may end a chunk at the same time */
+  protected final Object streamLock = new Object();
+
   protected VerticaBulkLoaderData() {
     super();
 
@@ -53,10 +79,18 @@ public class VerticaBulkLoaderData extends BaseStepData implements StepDataInter
     return insertRowMeta;
   }
 
+  public List<LoadStream> getStreams() {
+    return streams;
+  }
+
+  public LoadMetrics getMetrics() {
+    return metrics;
+  }
+
   public void close() throws IOException {
 
-    if ( encoder != null ) {
-      encoder.close();
+    for ( LoadStream stream : streams ) {
+      stream.close();
     }
 
   }
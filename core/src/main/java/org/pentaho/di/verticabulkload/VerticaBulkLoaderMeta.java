@@ -53,6 +53,8 @@ import org.pentaho.di.trans.step.StepDataInterface;
 import org.pentaho.di.trans.step.StepInterface;
 import org.pentaho.di.trans.step.StepMeta;
 import org.pentaho.di.trans.step.StepMetaInterface;
+import org.pentaho.di.verticabulkload.nativebinary.ByteBufferRing;
+import org.pentaho.di.verticabulkload.nativebinary.StreamEncoder;
 import org.w3c.dom.Node;
 
 @Step( id = "VerticaBulkLoader", image = "vertica.svg",
@@ -89,6 +91,62 @@ public class VerticaBulkLoaderMeta extends BaseStepMeta implements StepMetaInter
   @Injection( name = "STREAMNAME", group = "MAIN_OPTIONS" )
   private String streamName;
 
+  /** Number of encoded buffers that can be in flight between the encoder and the COPY stream */
+  @Injection( name = "BUFFERQUEUEDEPTH", group = "MAIN_OPTIONS" )
+  private int bufferQueueDepth = ByteBufferRing.DEFAULT_DEPTH;
+
+  /** Byte budget of an encoded buffer */
+  @Injection( name = "BUFFERSIZE", group = "MAIN_OPTIONS" )
+  private int bufferSize = StreamEncoder.DEFAULT_BUFFER_SIZE;
+
+  /** Number of COPY streams loading in parallel from one step copy */
+  @Injection( name = "PARALLELSTREAMS", group = "MAIN_OPTIONS" )
+  private int parallelStreams = 1;
+
+  /** Comma separated stream fields the rows are distributed on, round-robin when empty */
+  @Injection( name = "DISTRIBUTIONFIELDS", group = "MAIN_OPTIONS" )
+  private String distributionFields;
+
+  /** Do we connect each COPY stream to its own node of the cluster */
+  @Injection( name = "SPREADACROSSNODES", group = "MAIN_OPTIONS" )
+  private boolean spreadAcrossNodes;
+
+  /** Number of threads encoding the rows of each COPY stream */
+  @Injection( name = "ENCODERTHREADS", group = "MAIN_OPTIONS" )
+  private int encoderThreads = 1;
+
+  /** How much of the stack trace of a rejection goes to the exception log: FULL, TOP_FRAME or NONE */
+  @Injection( name = "STACKTRACEPOLICY", group = "MAIN_OPTIONS" )
+  private String stackTracePolicy;
+
+  /** Rows after which a stream commits its COPY and starts a new one, 0 for a single COPY */
+  @Injection( name = "CHUNKROWS", group = "MAIN_OPTIONS" )
+  private long chunkRows;
+
+  /** Encoded bytes after which a stream commits its COPY and starts a new one, 0 for no byte limit */
+  @Injection( name = "CHUNKBYTES", group = "MAIN_OPTIONS" )
+  private long chunkBytes;
+
+  /** Milliseconds after which the rows of a stream are committed even when the chunk is not full, 0 for none */
+  @Injection( name = "COMMITLATENCY", group = "MAIN_OPTIONS" )
+  private long commitLatency;
+
+  /** Directory the rows are staged to as NATIVE files before they are loaded, empty to stream them to Vertica */
+  @Injection( name = "STAGINGDIRECTORY", group = "MAIN_OPTIONS" )
+  private String stagingDirectory;
+
+  /** Encoded bytes after which a stream starts a new staging file, 0 for one file per stream */
+  @Injection( name = "STAGINGFILEBYTES", group = "MAIN_OPTIONS" )
+  private long stagingFileBytes;
+
+  /** Compression of the data sent to the COPY statements: NONE or GZIP */
+  @Injection( name = "COMPRESSION", group = "MAIN_OPTIONS" )
+  private String compression;
+
+  /** Do we encode the rows by batch, one column at a time */
+  @Injection( name = "COLUMNARENCODING", group = "MAIN_OPTIONS" )
+  private boolean columnarEncoding;
+
   /** Do we explicitly select the fields to update in the database */
   private boolean specifyFields;
 
@@ -238,6 +296,118 @@ public class VerticaBulkLoaderMeta extends BaseStepMeta implements StepMetaInter
     return specifyFields;
   }
 
+  public int getBufferQueueDepth() {
+    return bufferQueueDepth;
+  }
+
+  public void setBufferQueueDepth( int bufferQueueDepth ) {
+    this.bufferQueueDepth = bufferQueueDepth;
+  }
+
+  public int getBufferSize() {
+    return bufferSize;
+  }
+
+  public void setBufferSize( int bufferSize ) {
+    this.bufferSize = bufferSize;
+  }
+
+  public int getParallelStreams() {
+    return parallelStreams;
+  }
+
+  public void setParallelStreams( int parallelStreams ) {
+    this.parallelStreams = parallelStreams;
+  }
+
+  public String getDistributionFields() {
+    return distributionFields;
+  }
+
+  public void setDistributionFields( String distributionFields ) {
+    this.distributionFields = distributionFields;
+  }
+
+  public boolean isSpreadAcrossNodes() {
+    return spreadAcrossNodes;
+  }
+
+  public void setSpreadAcrossNodes( boolean spreadAcrossNodes ) {
+    this.spreadAcrossNodes = spreadAcrossNodes;
+  }
+
+  public int getEncoderThreads() {
+    return encoderThreads;
+  }
+
+  public void setEncoderThreads( int encoderThreads ) {
+    this.encoderThreads = encoderThreads;
+  }
+
+  public String getStackTracePolicy() {
+    return stackTracePolicy;
+  }
+
+  public void setStackTracePolicy( String stackTracePolicy ) {
+    this.stackTracePolicy = stackTracePolicy;
+  }
+
+  public long getChunkRows() {
+    return chunkRows;
+  }
+
+  public void setChunkRows( long chunkRows ) {
+    this.chunkRows = chunkRows;
+  }
+
+  public long getChunkBytes() {
+    return chunkBytes;
+  }
+
+  public void setChunkBytes( long chunkBytes ) {
+    this.chunkBytes = chunkBytes;
+  }
+
+  public long getCommitLatency() {
+    return commitLatency;
+  }
+
+  public void setCommitLatency( long commitLatency ) {
+    this.commitLatency = commitLatency;
+  }
+
+  public String getStagingDirectory() {
+    return stagingDirectory;
+  }
+
+  public void setStagingDirectory( String stagingDirectory ) {
+    this.stagingDirectory = stagingDirectory;
+  }
+
+  public long getStagingFileBytes() {
+    return stagingFileBytes;
+  }
+
+  public void setStagingFileBytes( long stagingFileBytes ) {
+    this.stagingFileBytes = stagingFileBytes;
+  }
+
+  public String getCompression() {
+    return compression;
+  }
+
+  public void setCompression( String compression ) {
+    this.compression = compression;
+  }
+
+  public boolean isColumnarEncoding() {
+    return columnarEncoding;
+  }
+
+  public void setColumnarEncoding( boolean columnarEncoding ) {
+    this.columnarEncoding = columnarEncoding;
+  }
+
   private void readData( Node stepnode, List<? extends SharedObjectInterface> databases ) throws KettleXMLException {
     try {
       this.databases = databases;
@@ -266,6 +436,21 @@ public class VerticaBulkLoaderMeta extends BaseStepMeta implements StepMetaInter
       abortOnError = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "abort_on_error" ) );
       direct = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "direct" ) );
       streamName = XMLHandler.getTagValue( stepnode, "stream_name" );
+      bufferQueueDepth =
+          Const.toInt( XMLHandler.getTagValue( stepnode, "buffer_queue_depth" ), ByteBufferRing.DEFAULT_DEPTH );
+      bufferSize = Const.toInt( XMLHandler.getTagValue( stepnode, "buffer_size" ), StreamEncoder.DEFAULT_BUFFER_SIZE );
+      parallelStreams = Const.toInt( XMLHandler.getTagValue( stepnode, "parallel_streams" ), 1 );
+      distributionFields = XMLHandler.getTagValue( stepnode, "distribution_fields" );
+      spreadAcrossNodes = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "spread_across_nodes" ) );
+      encoderThreads = Const.toInt( XMLHandler.getTagValue( stepnode, "encoder_threads" ), 1 );
+      stackTracePolicy = XMLHandler.getTagValue( stepnode, "stack_trace_policy" );
+      chunkRows = Const.toLong( XMLHandler.getTagValue( stepnode, "chunk_rows" ), 0 );
+      chunkBytes = Const.toLong( XMLHandler.getTagValue( stepnode, "chunk_bytes" ), 0 );
+      commitLatency = Const.toLong( XMLHandler.getTagValue( stepnode, "commit_latency" ), 0 );
+      stagingDirectory = XMLHandler.getTagValue( stepnode, "staging_directory" );
+      stagingFileBytes = Const.toLong( XMLHandler.getTagValue( stepnode, "staging_file_bytes" ), 0 );
+      compression = XMLHandler.getTagValue( stepnode, "compression" );
+      columnarEncoding = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "columnar_encoding" ) );
 
     } catch ( Exception e ) {
       throw new KettleXMLException( "Unable to load step info from XML", e );
@@ -278,6 +463,15 @@ public class VerticaBulkLoaderMeta extends BaseStepMeta implements StepMetaInter
 
     // To be compatible with pre-v3.2 (SB)
     specifyFields = false;
+
+    bufferQueueDepth = ByteBufferRing.DEFAULT_DEPTH;
+    bufferSize = StreamEncoder.DEFAULT_BUFFER_SIZE;
+    parallelStreams = 1;
+    encoderThreads = 1;
+    chunkRows = 0;
+    chunkBytes = 0;
+    commitLatency = 0;
+    stagingFileBytes = 0;
   }
 
   public String getXML() {
@@ -303,6 +497,20 @@ public class VerticaBulkLoaderMeta extends BaseStepMeta implements StepMetaInter
     retval.append( "    " + XMLHandler.addTagValue( "abort_on_error", abortOnError ) );
     retval.append( "    " + XMLHandler.addTagValue( "direct", direct ) );
     retval.append( "    " + XMLHandler.addTagValue( "stream_name", streamName ) );
+    retval.append( "    " + XMLHandler.addTagValue( "buffer_queue_depth", bufferQueueDepth ) );
+    retval.append( "    " + XMLHandler.addTagValue( "buffer_size", bufferSize ) );
+    retval.append( "    " + XMLHandler.addTagValue( "parallel_streams", parallelStreams ) );
+    retval.append( "    " + XMLHandler.addTagValue( "distribution_fields", distributionFields ) );
+    retval.append( "    " + XMLHandler.addTagValue( "spread_across_nodes", spreadAcrossNodes ) );
+    retval.append( "    " + XMLHandler.addTagValue( "encoder_threads", encoderThreads ) );
+    retval.append( "    " + XMLHandler.addTagValue( "stack_trace_policy", stackTracePolicy ) );
+    retval.append( "    " + XMLHandler.addTagValue( "chunk_rows", chunkRows ) );
+    retval.append( "    " + XMLHandler.addTagValue( "chunk_bytes", chunkBytes ) );
+    retval.append( "    " + XMLHandler.addTagValue( "commit_latency", commitLatency ) );
+    retval.append( "    " + XMLHandler.addTagValue( "staging_directory", stagingDirectory ) );
+    retval.append( "    " + XMLHandler.addTagValue( "staging_file_bytes", stagingFileBytes ) );
+    retval.append( "    " + XMLHandler.addTagValue( "compression", compression ) );
+    retval.append( "    " + XMLHandler.addTagValue( "columnar_encoding", columnarEncoding ) );
 
     return retval.toString();
   }
@@ -332,6 +540,32 @@ public class VerticaBulkLoaderMeta extends BaseStepMeta implements StepMetaInter
       abortOnError = rep.getStepAttributeBoolean( id_step, "abort_on_error" );
       direct = rep.getStepAttributeBoolean( id_step, "direct" );
       streamName = rep.getStepAttributeString( id_step, "stream_name" );
+      bufferQueueDepth = (int) rep.getStepAttributeInteger( id_step, "buffer_queue_depth" );
+      if ( bufferQueueDepth <= 0 ) {
+        bufferQueueDepth = ByteBufferRing.DEFAULT_DEPTH;
+      }
+      bufferSize = (int) rep.getStepAttributeInteger( id_step, "buffer_size" );
+      if ( bufferSize <= 0 ) {
+        bufferSize = StreamEncoder.DEFAULT_BUFFER_SIZE;
+      }
+      parallelStreams = (int) rep.getStepAttributeInteger( id_step, "parallel_streams" );
+      if ( parallelStreams <= 0 ) {
+        parallelStreams = 1;
+      }
+      distributionFields = rep.getStepAttributeString( id_step, "distribution_fields" );
+      spreadAcrossNodes = rep.getStepAttributeBoolean( id_step, "spread_across_nodes" );
+      encoderThreads = (int) rep.getStepAttributeInteger( id_step, "encoder_threads" );
+      if ( encoderThreads <= 0 ) {
+        encoderThreads = 1;
+      }
+      stackTracePolicy = rep.getStepAttributeString( id_step, "stack_trace_policy" );
+      chunkRows = rep.getStepAttributeInteger( id_step, "chunk_rows" );
+      chunkBytes = rep.getStepAttributeInteger( id_step, "chunk_bytes" );
+      commitLatency = rep.getStepAttributeInteger( id_step, "commit_latency" );
+      stagingDirectory = rep.getStepAttributeString( id_step, "staging_directory" );
+      stagingFileBytes = rep.getStepAttributeInteger( id_step, "staging_file_bytes" );
+      compression = rep.getStepAttributeString( id_step, "compression" );
+      columnarEncoding = rep.getStepAttributeBoolean( id_step, "columnar_encoding" );
     } catch ( Exception e ) {
       throw new KettleException( "Unexpected error reading step information from the repository", e );
     }
@@ -357,6 +591,20 @@ public class VerticaBulkLoaderMeta extends BaseStepMeta implements StepMetaInter
       rep.saveStepAttribute( id_transformation, id_step, "abort_on_error", abortOnError );
       rep.saveStepAttribute( id_transformation, id_step, "direct", direct );
       rep.saveStepAttribute( id_transformation, id_step, "stream_name", streamName );
+      rep.saveStepAttribute( id_transformation, id_step, "buffer_queue_depth", bufferQueueDepth );
+      rep.saveStepAttribute( id_transformation, id_step, "buffer_size", bufferSize );
+      rep.saveStepAttribute( id_transformation, id_step, "parallel_streams", parallelStreams );
+      rep.saveStepAttribute( id_transformation, id_step, "distribution_fields", distributionFields );
+      rep.saveStepAttribute( id_transformation, id_step, "spread_across_nodes", spreadAcrossNodes );
+      rep.saveStepAttribute( id_transformation, id_step, "encoder_threads", encoderThreads );
+      rep.saveStepAttribute( id_transformation, id_step, "stack_trace_policy", stackTracePolicy );
+      rep.saveStepAttribute( id_transformation, id_step, "chunk_rows", chunkRows );
+      rep.saveStepAttribute( id_transformation, id_step, "chunk_bytes", chunkBytes );
+      rep.saveStepAttribute( id_transformation, id_step, "commit_latency", commitLatency );
+      rep.saveStepAttribute( id_transformation, id_step, "staging_directory", stagingDirectory );
+      rep.saveStepAttribute( id_transformation, id_step, "staging_file_bytes", stagingFileBytes );
+      rep.saveStepAttribute( id_transformation, id_step, "compression", compression );
+      rep.saveStepAttribute( id_transformation, id_step, "columnar_encoding", columnarEncoding );
     } catch ( Exception e ) {
       throw new KettleException( "Unable to save step information to the repository for id_step=" + id_step, e );
     }
@@ -552,6 +800,31 @@ public class VerticaBulkLoaderMeta extends BaseStepMeta implements StepMetaInter
               "VerticaBulkLoaderMeta.CheckResult.ExpectedInputError" ), stepMeta );
       remarks.add( cr );
     }
+
+    checkLoadOptions( remarks, transMeta, stepMeta );
+  }
+
+  /**
+   * Reports the loading options that do not go together.
+   */
+  void checkLoadOptions( List<CheckResultInterface> remarks, TransMeta transMeta, StepMeta stepMeta ) {
+    if ( columnarEncoding && encoderThreads > 1 ) {
+      remarks.add( new CheckResult( CheckResultInterface.TYPE_RESULT_ERROR, BaseMessages.getString( PKG,
+          "VerticaBulkLoaderMeta.CheckResult.ColumnarEncodingOnOneThread" ), stepMeta ) );
+    }
+    if ( stepMeta.isDoingErrorHandling() && !abortOnError && ( chunkRows <= 0 || !Const.isEmpty( stagingDirectory ) ) ) {
+      remarks.add( new CheckResult( CheckResultInterface.TYPE_RESULT_ERROR, BaseMessages.getString( PKG,
+          "VerticaBulkLoaderMeta.CheckResult.VerticaRejectsNeedChunkRows" ), stepMeta ) );
+    }
+    if ( !Const.isEmpty( compression ) && !"NONE".equalsIgnoreCase( compression )
+        && !Const.isEmpty( stagingDirectory ) ) {
+      remarks.add( new CheckResult( CheckResultInterface.TYPE_RESULT_ERROR, BaseMessages.getString( PKG,
+          "VerticaBulkLoaderMeta.CheckResult.CompressionOfStagedFiles" ), stepMeta ) );
+    }
+    if ( parallelStreams > 1 && transMeta.isUsingUniqueConnections() ) {
+      remarks.add( new CheckResult( CheckResultInterface.TYPE_RESULT_ERROR, BaseMessages.getString( PKG,
+          "VerticaBulkLoaderMeta.CheckResult.ParallelStreamsOutsideTheTransaction" ), stepMeta ) );
+    }
   }
 
   public StepInterface getStep( StepMeta stepMeta, StepDataInterface stepDataInterface, int cnr, TransMeta transMeta,
@@ -718,20 +991,8 @@ public class VerticaBulkLoaderMeta extends BaseStepMeta implements StepMetaInter
       Database db = new Database( loggingObject, databaseMeta );
       try {
         db.connect();
-
-        if ( !Const.isEmpty( tablename ) ) {
-          String schemaTable = databaseMeta.getQuotedSchemaTableCombination( schemaName, tablename );
-
-          // Check if this table exists...
-          if ( db.checkTableExists( schemaTable ) ) {
-            return db.getTableFields( schemaTable );
-          } else {
-            throw new KettleException( BaseMessages.getString( PKG, "VerticaBulkLoaderMeta.Exception.TableNotFound" ) );
-          }
-        } else {
-          throw new KettleException( BaseMessages.getString( PKG, "VerticaBulkLoaderMeta.Exception.TableNotSpecified" ) );
-        }
-      } catch ( Exception e ) {
+        return getTableRowMetaInterface( db );
+      } catch ( KettleDatabaseException e ) {
         throw new KettleException( BaseMessages.getString( PKG, "VerticaBulkLoaderMeta.Exception.ErrorGettingFields" ),
             e );
       } finally {
@@ -743,6 +1004,31 @@ public class VerticaBulkLoaderMeta extends BaseStepMeta implements StepMetaInter
 
   }
 
+  /**
+   * Reads the columns of the target table over a connection already open.
+   */
+  public RowMetaInterface getTableRowMetaInterface( Database db ) throws KettleException {
+    try {
+      if ( !Const.isEmpty( tablename ) ) {
+        String schemaTable = databaseMeta.getQuotedSchemaTableCombination( schemaName, tablename );
+
+        // Check if this table exists...
+        if ( db.checkTableExists( schemaTable ) ) {
+          return db.getTableFields( schemaTable );
+        } else {
+          throw new KettleException( BaseMessages.getString( PKG, "VerticaBulkLoaderMeta.Exception.TableNotFound" ) );
+        }
+      } else {
+        throw new KettleException( BaseMessages.getString( PKG, "VerticaBulkLoaderMeta.Exception.TableNotSpecified" ) );
+      }
+    } catch ( KettleException e ) {
+      throw e;
+    } catch ( Exception e ) {
+      throw new KettleException( BaseMessages.getString( PKG, "VerticaBulkLoaderMeta.Exception.ErrorGettingFields" ),
+          e );
+    }
+  }
+
   @Override
   public String getMissingDatabaseConnectionInformationMessage() {
     // use default message
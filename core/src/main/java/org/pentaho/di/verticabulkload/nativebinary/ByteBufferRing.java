@@ -0,0 +1,341 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 - 2026 by Pentaho Canada Inc. : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2030-06-15
+ ******************************************************************************/
+
+
+
+package org.pentaho.di.verticabulkload.nativebinary;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands encoded buffers from the {@link StreamEncoder} (the producer) to the COPY worker thread (the consumer) without
+ * copying them through a pipe.
+ * <p>
+ * The ring owns at most <tt>depth</tt> buffers of the same capacity. The producer takes an empty buffer with
+ * {@link #acquire(int)}, fills it and hands it over with {@link #publish(ByteBuffer)}. The consumer reads the published
+ * buffers in order through {@link #getInputStream()}, which returns every drained buffer back to the ring. When all the
+ * buffers are in flight the producer blocks until the consumer releases one, which bounds the memory used by a load.
+ * </p>
+ * <p>
+ * A stream can be cut into chunks with {@link #endChunk()}: the input stream then reads as ended at the end of each
+ * chunk, and reading on continues with the next one. {@link #isDrained()} tells the last chunk from the others.
+ * </p>
+ * <p>
+ * The ring counts the buffers and bytes published and the time each side spent waiting for the other, which tells
+ * whether a load is bound by the producer or by the consumer. The clock is only read when a side has to wait.
+ * </p>
+ */
+public class ByteBufferRing {
+
+  public static final int DEFAULT_DEPTH = 4;
+
+  private static final long POLL_INTERVAL_MILLIS = 500;
+
+  /**
+   * Marks the end of the stream in the queue of filled buffers
+   */
+  private static final ByteBuffer END_OF_STREAM = ByteBuffer.allocate( 0 );
+
+  /**
+   * Marks the end of a chunk in the queue of filled buffers
+   */
+  private static final ByteBuffer END_OF_CHUNK = ByteBuffer.allocate( 0 );
+
+  private final int depth;
+  private final BlockingQueue<ByteBuffer> free;
+  private final BlockingQueue<ByteBuffer> filled;
+  private final RingInputStream inputStream;
+
+  private final AtomicLong publishedBuffers = new AtomicLong();
+  private final AtomicLong publishedBytes = new AtomicLong();
+  private final AtomicLong producerWaitNanos = new AtomicLong();
+  private final AtomicLong consumerWaitNanos = new AtomicLong();
+
+  private int allocated;
+  private int bufferCapacity = -1;
+  private volatile boolean closed;
+  private volatile boolean aborted;
+
+  public ByteBufferRing( int depth ) {
+    if ( depth < 1 ) {
+      throw new IllegalArgumentException( "Buffer ring depth must be positive" );
+    }
+    this.depth = depth;
+    this.free = new LinkedBlockingQueue<>( depth );
+    this.filled = new LinkedBlockingQueue<>();
+    this.inputStream = new RingInputStream();
+  }
+
+  /**
+   * Returns an empty buffer of the given capacity, allocating a new one while fewer than <tt>depth</tt> buffers exist and
+   * waiting for the consumer to release one otherwise.
+   *
+   * @param capacity capacity of the buffer, all the buffers of a ring have the same capacity
+   * @return an empty buffer
+   * @throws IOException if the ring is aborted or the thread is interrupted while waiting
+   */
+  public ByteBuffer acquire( int capacity ) throws IOException {
+    synchronized ( this ) {
+      if ( bufferCapacity < 0 ) {
+        bufferCapacity = capacity;
+      } else if ( bufferCapacity != capacity ) {
+        throw new IllegalArgumentException( "All the buffers of the ring must have the same capacity" );
+      }
+    }
+    ByteBuffer buffer = free.poll();
+    if ( buffer == null ) {
+      synchronized ( this ) {
+        if ( allocated < depth ) {
+          allocated++;
+          return ByteBuffer.allocate( capacity );
+        }
+      }
+      long waitStart = System.nanoTime();
+      try {
+        buffer = take( free );
+      } finally {
+        producerWaitNanos.addAndGet( System.nanoTime() - waitStart );
+      }
+    }
+    buffer.clear();
+    return buffer;
+  }
+
+  /**
+   * Hands a filled buffer over to the consumer. The buffer must be flipped, i.e. ready to be read.
+   *
+   * @param buffer filled buffer
+   * @throws IOException if the ring is already closed or aborted
+   */
+  public void publish( ByteBuffer buffer ) throws IOException {
+    checkNotAborted();
+    if ( closed ) {
+      throw new IOException( "Buffer ring is closed" );
+    }
+    publishedBuffers.incrementAndGet();
+    publishedBytes.addAndGet( buffer.remaining() );
+    filled.add( buffer );
+  }
+
+  /**
+   * Ends the current chunk: the consumer reads the end of the stream once it drained the buffers published so far.
+   *
+   * @throws IOException if the ring is already closed or aborted
+   */
+  public void endChunk() throws IOException {
+    checkNotAborted();
+    if ( closed ) {
+      throw new IOException( "Buffer ring is closed" );
+    }
+    filled.add( END_OF_CHUNK );
+  }
+
+  /**
+   * Signals the end of the stream to the consumer.
+   */
+  public void close() {
+    if ( !closed ) {
+      closed = true;
+      filled.add( END_OF_STREAM );
+    }
+  }
+
+  /**
+   * Releases both sides of the ring when one of them stops unexpectedly: the producer fails on its next call instead of
+   * waiting for a buffer forever, and the consumer fails instead of loading a partial stream.
+   */
+  public void abort() {
+    aborted = true;
+    filled.add( END_OF_STREAM );
+  }
+
+  public boolean isAborted() {
+    return aborted;
+  }
+
+  public InputStream getInputStream() {
+    return inputStream;
+  }
+
+  /**
+   * Writes the buffers of the current chunk to a channel straight from the ring, as an alternative to reading them
+   * through {@link #getInputStream()}.
+   *
+   * @param channel channel to write to
+   * @return the number of bytes written
+   * @throws IOException if the channel fails, the ring is aborted or the thread is interrupted while waiting
+   */
+  public long transferChunkTo( WritableByteChannel channel ) throws IOException {
+    return inputStream.transferTo( channel );
+  }
+
+  /**
+   * @return whether the consumer read the end of the whole stream, rather than the end of a chunk
+   */
+  public boolean isDrained() {
+    return inputStream.eof;
+  }
+
+  public int getDepth() {
+    return depth;
+  }
+
+  /**
+   * @return the number of buffers published so far
+   */
+  public long getPublishedBuffers() {
+    return publishedBuffers.get();
+  }
+
+  /**
+   * @return the number of bytes published so far
+   */
+  public long getPublishedBytes() {
+    return publishedBytes.get();
+  }
+
+  /**
+   * @return the time the producer spent waiting for the consumer to release a buffer, in nanoseconds
+   */
+  public long getProducerWaitNanos() {
+    return producerWaitNanos.get();
+  }
+
+  /**
+   * @return the time the consumer spent waiting for the producer to publish a buffer, in nanoseconds
+   */
+  public long getConsumerWaitNanos() {
+    return consumerWaitNanos.get();
+  }
+
+  private void release( ByteBuffer buffer ) {
+    if ( buffer != END_OF_STREAM && buffer.capacity() == bufferCapacity ) {
+      free.offer( buffer );
+    }
+  }
+
+  private ByteBuffer take( BlockingQueue<ByteBuffer> queue ) throws IOException {
+    try {
+      ByteBuffer buffer;
+      do {
+        checkNotAborted();
+        buffer = queue.poll( POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS );
+      } while ( buffer == null );
+      return buffer;
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException( "Interrupted while waiting for a buffer" );
+    }
+  }
+
+  private void checkNotAborted() throws IOException {
+    if ( aborted ) {
+      throw new IOException( "Buffer ring was aborted" );
+    }
+  }
+
+  /**
+   * Reads the published buffers in order, straight from their backing arrays.
+   */
+  private class RingInputStream extends InputStream {
+    private ByteBuffer current;
+    private volatile boolean eof;
+
+    @Override
+    public int read() throws IOException {
+      if ( !nextReadable() ) {
+        return -1;
+      }
+      return current.get() & 0xFF;
+    }
+
+    @Override
+    public int read( byte[] b, int off, int len ) throws IOException {
+      if ( len == 0 ) {
+        return 0;
+      }
+      if ( !nextReadable() ) {
+        return -1;
+      }
+      int count = Math.min( len, current.remaining() );
+      current.get( b, off, count );
+      return count;
+    }
+
+    long transferTo( WritableByteChannel channel ) throws IOException {
+      long written = 0;
+      while ( nextReadable() ) {
+        written += current.remaining();
+        while ( current.hasRemaining() ) {
+          channel.write( current );
+        }
+      }
+      return written;
+    }
+
+    @Override
+    public int available() {
+      return current == null ? 0 : current.remaining();
+    }
+
+    @Override
+    public void close() {
+      if ( current != null ) {
+        release( current );
+        current = null;
+      }
+    }
+
+    private boolean nextReadable() throws IOException {
+      if ( eof ) {
+        return false;
+      }
+      while ( current == null || !current.hasRemaining() ) {
+        if ( current != null ) {
+          release( current );
+          current = null;
+        }
+        ByteBuffer next = filled.poll();
+        try {
+          if ( next == null ) {
+            long waitStart = System.nanoTime();
+            try {
+              next = filled.take();
+            } finally {
+              consumerWaitNanos.addAndGet( System.nanoTime() - waitStart );
+            }
+          }
+        } catch ( InterruptedException e ) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException( "Interrupted while waiting for encoded data" );
+        }
+        if ( next == END_OF_STREAM ) {
+          checkNotAborted();
+          eof = true;
+          return false;
+        } else if ( next == END_OF_CHUNK ) {
+          return false;
+        }
+        current = next;
+      }
+      return true;
+    }
+  }
+}
@@ -15,5 +15,6 @@
 package org.pentaho.di.verticabulkload.nativebinary;
 
 public enum ColumnType {
-  INTEGER, BOOLEAN, FLOAT, CHAR, VARCHAR, DATE, TIME, TIMETZ, TIMESTAMP, TIMESTAMPTZ, INTERVAL, BINARY, VARBINARY, NUMERIC
+  INTEGER, BOOLEAN, FLOAT, CHAR, VARCHAR, DATE, TIME, TIMETZ, TIMESTAMP, TIMESTAMPTZ, INTERVAL, BINARY, VARBINARY, NUMERIC,
+  UUID
 }
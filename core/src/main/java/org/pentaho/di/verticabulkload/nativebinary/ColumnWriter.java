@@ -0,0 +1,36 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 - 2026 by Pentaho Canada Inc. : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2030-06-15
+ ******************************************************************************/
+
+
+
+package org.pentaho.di.verticabulkload.nativebinary;
+
+import java.nio.ByteBuffer;
+
+import org.pentaho.di.core.exception.KettleValueException;
+
+/**
+ * Writes the values of one column in NATIVE format. A writer is specialised for a target column type and for the type
+ * and storage of the incoming Kettle value, see {@link ColumnWriters}.
+ */
+public interface ColumnWriter {
+
+  /**
+   * Encodes a non-null value at the current position of the buffer.
+   *
+   * @param buffer little-endian buffer to write to
+   * @param value  the value, as found in the incoming row
+   * @return <tt>false</tt> if the value converts to <tt>null</tt>, in which case nothing is written
+   * @throws KettleValueException if the value cannot be converted to the column type
+   */
+  boolean write( ByteBuffer buffer, Object value ) throws KettleValueException;
+}
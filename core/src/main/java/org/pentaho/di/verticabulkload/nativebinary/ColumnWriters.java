@@ -0,0 +1,668 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 - 2026 by Pentaho Canada Inc. : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2030-06-15
+ ******************************************************************************/
+
+
+
+package org.pentaho.di.verticabulkload.nativebinary;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.sql.Timestamp;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+/**
+ * Creates the {@link ColumnWriter} matching a target column and an incoming Kettle value.
+ * <p>
+ * When the incoming value already has the Java type of the target column (e.g. a <tt>Long</tt> in normal storage for an
+ * INTEGER column) the writer casts it directly. Any other type or storage goes through the conversions of the value
+ * meta, exactly as {@link ColumnSpec#encode(ValueMetaInterface, Object)} used to do for every value.
+ * </p>
+ * <p>
+ * The writers also reject the values Vertica would reject, as they write them: strings and binaries longer than the
+ * column, integers out of the range of the column and numbers beyond the precision of a NUMERIC column. The row is then
+ * rejected by the encoder instead of by the COPY statement.
+ * </p>
+ */
+public final class ColumnWriters {
+
+  private static final byte BYTE_ZERO = (byte) 0;
+  private static final byte BYTE_ONE = (byte) 1;
+  private static final byte BYTE_SPACE = (byte) 0x20;
+
+  private static final long MILLIS_PER_DAY = TimeUnit.DAYS.toMillis( 1 );
+  private static final long NANOS_PER_MILLI = 1000000L;
+  private static final long NANOS_PER_MICRO = 1000L;
+
+  /**
+   * Days between 1970-01-01 and Vertica's base date, 2000-01-01
+   */
+  private static final long BASE_DATE_EPOCH_DAY = 10957;
+
+  /**
+   * Vertica's NULL for 8 byte integers, which is out of the range of its INTEGER type
+   */
+  private static final long INTEGER_NULL = Long.MIN_VALUE;
+
+  private ColumnWriters() {
+  }
+
+  public static ColumnWriter create( ColumnSpec spec, ValueMetaInterface valueMeta ) {
+    boolean normalStorage = valueMeta.getStorageType() == ValueMetaInterface.STORAGE_TYPE_NORMAL;
+    int inputType = normalStorage ? valueMeta.getType() : ValueMetaInterface.TYPE_NONE;
+
+    switch ( spec.type ) {
+      case BINARY:
+        return new BinaryWriter( valueMeta, spec.bytes );
+      case BOOLEAN:
+        return inputType == ValueMetaInterface.TYPE_BOOLEAN
+          ? new BooleanFromBooleanWriter() : new BooleanWriter( valueMeta );
+      case CHAR:
+        return new CharWriter( valueMeta, spec.bytes );
+      case DATE:
+        return new DateWriter( valueMeta, isNativeDate( inputType ) );
+      case FLOAT:
+        return inputType == ValueMetaInterface.TYPE_NUMBER
+          ? new FloatFromDoubleWriter() : new FloatWriter( valueMeta );
+      case INTEGER:
+        if ( spec.bytes == 8 && inputType == ValueMetaInterface.TYPE_INTEGER ) {
+          return new IntegerFromLongWriter();
+        }
+        return new IntegerWriter( valueMeta, spec.bytes );
+      case INTERVAL:
+        return new IntegerWriter( valueMeta, 8 );
+      case TIME:
+        return new TimeWriter( valueMeta, isNativeDate( inputType ) );
+      case TIMETZ:
+        return new TimeTzWriter( valueMeta, isNativeDate( inputType ) );
+      case TIMESTAMP:
+        return new TimestampWriter( valueMeta, isNativeDate( inputType ) );
+      case TIMESTAMPTZ:
+        return new TimestampTzWriter( valueMeta, isNativeDate( inputType ) );
+      case VARBINARY:
+        return new VarbinaryWriter( valueMeta, spec.getMaxLength() );
+      case UUID:
+        return new UuidWriter( valueMeta );
+      case NUMERIC:
+        if ( inputType == ValueMetaInterface.TYPE_INTEGER && spec.getPrecision() <= 18 ) {
+          return new NumericFromLongWriter( spec );
+        }
+        return new NumericWriter( valueMeta, spec, inputType == ValueMetaInterface.TYPE_BIGNUMBER );
+      case VARCHAR:
+        return inputType == ValueMetaInterface.TYPE_STRING
+          ? new VarcharFromStringWriter( spec.getMaxLength() ) : new VarcharWriter( valueMeta, spec.getMaxLength() );
+      default:
+        throw new IllegalArgumentException( "Invalid ColumnType" );
+    }
+  }
+
+  private static boolean isNativeDate( int inputType ) {
+    return inputType == ValueMetaInterface.TYPE_DATE || inputType == ValueMetaInterface.TYPE_TIMESTAMP;
+  }
+
+  static final class IntegerFromLongWriter implements ColumnWriter {
+    @Override
+    public boolean write( ByteBuffer buffer, Object value ) throws KettleValueException {
+      long integer = (Long) value;
+      if ( integer == INTEGER_NULL ) {
+        throw outOfRange( integer, 8 );
+      }
+      buffer.putLong( integer );
+      return true;
+    }
+  }
+
+  static final class IntegerWriter implements ColumnWriter {
+    private final ValueMetaInterface valueMeta;
+    private final int bytes;
+
+    IntegerWriter( ValueMetaInterface valueMeta, int bytes ) {
+      if ( bytes != 1 && bytes != 2 && bytes != 4 && bytes != 8 ) {
+        throw new IllegalArgumentException( "Invalid byte size for Integer type" );
+      }
+      this.valueMeta = valueMeta;
+      this.bytes = bytes;
+    }
+
+    @Override
+    public boolean write( ByteBuffer buffer, Object value ) throws KettleValueException {
+      Long integer = valueMeta.getInteger( value );
+      if ( integer == null ) {
+        return false;
+      }
+      long number = integer;
+      switch ( bytes ) {
+        case 1:
+          if ( number < Byte.MIN_VALUE || number > Byte.MAX_VALUE ) {
+            throw outOfRange( number, bytes );
+          }
+          buffer.put( (byte) number );
+          break;
+        case 2:
+          if ( number < Short.MIN_VALUE || number > Short.MAX_VALUE ) {
+            throw outOfRange( number, bytes );
+          }
+          buffer.putShort( (short) number );
+          break;
+        case 4:
+          if ( number < Integer.MIN_VALUE || number > Integer.MAX_VALUE ) {
+            throw outOfRange( number, bytes );
+          }
+          buffer.putInt( (int) number );
+          break;
+        default:
+          if ( number == INTEGER_NULL ) {
+            throw outOfRange( number, bytes );
+          }
+          buffer.putLong( number );
+          break;
+      }
+      return true;
+    }
+  }
+
+  private static KettleValueException outOfRange( long value, int bytes ) {
+    return new KettleValueException( "Value " + value + " is out of the range of a " + bytes + " byte integer column" );
+  }
+
+  private static KettleValueException tooLong( int length, int maxBytes ) {
+    return new KettleValueException( "Value of " + length + " bytes exceeds the column length of " + maxBytes
+      + " bytes" );
+  }
+
+  static final class BooleanFromBooleanWriter implements ColumnWriter {
+    @Override
+    public boolean write( ByteBuffer buffer, Object value ) {
+      buffer.put( ( (Boolean) value ).booleanValue() ? BYTE_ONE : BYTE_ZERO );
+      return true;
+    }
+  }
+
+  static final class BooleanWriter implements ColumnWriter {
+    private final ValueMetaInterface valueMeta;
+
+    BooleanWriter( ValueMetaInterface valueMeta ) {
+      this.valueMeta = valueMeta;
+    }
+
+    @Override
+    public boolean write( ByteBuffer buffer, Object value ) throws KettleValueException {
+      Boolean bool = valueMeta.getBoolean( value );
+      if ( bool == null ) {
+        return false;
+      }
+      buffer.put( bool.booleanValue() ? BYTE_ONE : BYTE_ZERO );
+      return true;
+    }
+  }
+
+  static final class FloatFromDoubleWriter implements ColumnWriter {
+    @Override
+    public boolean write( ByteBuffer buffer, Object value ) {
+      buffer.putDouble( (Double) value );
+      return true;
+    }
+  }
+
+  static final class FloatWriter implements ColumnWriter {
+    private final ValueMetaInterface valueMeta;
+
+    FloatWriter( ValueMetaInterface valueMeta ) {
+      this.valueMeta = valueMeta;
+    }
+
+    @Override
+    public boolean write( ByteBuffer buffer, Object value ) throws KettleValueException {
+      Double number = valueMeta.getNumber( value );
+      if ( number == null ) {
+        return false;
+      }
+      buffer.putDouble( number );
+      return true;
+    }
+  }
+
+  /**
+   * Base class of the date and time writers: takes the incoming <tt>Date</tt> as is when the input is a date in normal
+   * storage, converts it otherwise.
+   * <p>
+   * The values are computed from the epoch millis of the date and the offsets of a {@link ZoneOffsetTable}, without
+   * going through a <tt>Calendar</tt>. The microseconds of a <tt>java.sql.Timestamp</tt> are kept.
+   * </p>
+   */
+  abstract static class TemporalWriter implements ColumnWriter {
+    private final ValueMetaInterface valueMeta;
+    private final boolean nativeDate;
+
+    TemporalWriter( ValueMetaInterface valueMeta, boolean nativeDate ) {
+      this.valueMeta = valueMeta;
+      this.nativeDate = nativeDate;
+    }
+
+    @Override
+    public final boolean write( ByteBuffer buffer, Object value ) throws KettleValueException {
+      Date date = nativeDate ? (Date) value : valueMeta.getDate( value );
+      if ( date == null ) {
+        return false;
+      }
+      buffer.putLong( encode( date ) );
+      return true;
+    }
+
+    abstract long encode( Date date );
+
+    /**
+     * @return the microseconds below the millisecond of a <tt>java.sql.Timestamp</tt>, 0 for any other date
+     */
+    static long subMillisMicros( Date date ) {
+      if ( date instanceof Timestamp ) {
+        return ( ( (Timestamp) date ).getNanos() % NANOS_PER_MILLI ) / NANOS_PER_MICRO;
+      }
+      return 0;
+    }
+  }
+
+  /**
+   * Base class of the writers of the types stored in local time. Dates outside of the zone offset table are converted
+   * with a calendar, as they may predate the Gregorian calendar.
+   */
+  abstract static class LocalTemporalWriter extends TemporalWriter {
+    private final ZoneOffsetTable zoneOffsets = ZoneOffsetTable.forDefaultZone();
+    private GregorianCalendar calendarLocalTZ;
+
+    LocalTemporalWriter( ValueMetaInterface valueMeta, boolean nativeDate ) {
+      super( valueMeta, nativeDate );
+    }
+
+    @Override
+    final long encode( Date date ) {
+      long utcMillis = date.getTime();
+      if ( zoneOffsets.covers( utcMillis ) ) {
+        return encodeLocal( zoneOffsets.toLocalMillis( utcMillis ), date );
+      }
+      if ( calendarLocalTZ == null ) {
+        calendarLocalTZ = new GregorianCalendar( zoneOffsets.getTimeZone() );
+      }
+      calendarLocalTZ.setTime( date );
+      return encodeCalendar( calendarLocalTZ, date );
+    }
+
+    /**
+     * @param localMillis milliseconds since 1970-01-01T00:00:00 in local time
+     */
+    abstract long encodeLocal( long localMillis, Date date );
+
+    abstract long encodeCalendar( GregorianCalendar calendar, Date date );
+  }
+
+  static final class DateWriter extends LocalTemporalWriter {
+    DateWriter( ValueMetaInterface valueMeta, boolean nativeDate ) {
+      super( valueMeta, nativeDate );
+    }
+
+    // 64-bit integer in little-endian format containing the Julian day
+    // since Jan 01 2000 (J2451545)
+
+    @Override
+    long encodeLocal( long localMillis, Date date ) {
+      return Math.floorDiv( localMillis, MILLIS_PER_DAY ) - BASE_DATE_EPOCH_DAY;
+    }
+
+    @Override
+    long encodeCalendar( GregorianCalendar calendar, Date date ) {
+      return ColumnSpec.computeJdn( calendar ) - ColumnSpec.BASE_DATE_JDN;
+    }
+  }
+
+  static final class TimeWriter extends LocalTemporalWriter {
+    TimeWriter( ValueMetaInterface valueMeta, boolean nativeDate ) {
+      super( valueMeta, nativeDate );
+    }
+
+    // 64-bit integer in little-endian format containing the number of microseconds since midnight in the UTC time
+    // zone.
+    // We actually use the local time instead of the UTC time because UTC time was giving wrong results.
+
+    @Override
+    long encodeLocal( long localMillis, Date date ) {
+      return TimeUnit.MILLISECONDS.toMicros( Math.floorMod( localMillis, MILLIS_PER_DAY ) ) + subMillisMicros( date );
+    }
+
+    @Override
+    long encodeCalendar( GregorianCalendar calendar, Date date ) {
+      long milliSeconds = TimeUnit.HOURS.toMillis( calendar.get( Calendar.HOUR_OF_DAY ) )
+          + TimeUnit.MINUTES.toMillis( calendar.get( Calendar.MINUTE ) )
+          + TimeUnit.SECONDS.toMillis( calendar.get( Calendar.SECOND ) )
+          + calendar.get( Calendar.MILLISECOND );
+      return TimeUnit.MILLISECONDS.toMicros( milliSeconds ) + subMillisMicros( date );
+    }
+  }
+
+  static final class TimeTzWriter extends TemporalWriter {
+    TimeTzWriter( ValueMetaInterface valueMeta, boolean nativeDate ) {
+      super( valueMeta, nativeDate );
+    }
+
+    @Override
+    long encode( Date date ) {
+      // HP Vertica Documentation. Software Version: 7.1.x (Document Release Date: 3/31/2015)
+      // 64-bit value where
+      //  - Upper 40 bits contain the number of microseconds since midnight
+      //  - Lower 24 bits contain time zone as the UTC offset in microseconds calculated as follows: Time zone is
+      //    logically from -24hrs to +24hrs from UTC. Instead it is represented here as a number between 0hrs to
+      //    48hrs. Therefore, 24hrs should be added to the actual time zone to calculate it.
+
+      // AK: there is an obvious mistake in the description above
+      //        48 hours is 48*3600000=172800000 microseconds
+      //        24 bits can store 2^24= 16777216 values
+      // Here is what another doc says
+      // (https://my.vertica.com/docs/5.0/SDK/html/_timestamp_u_dx_shared_8h.htm#a143e616e0854a9dcded5dd314162e5dd):
+      // typedef int64 TimeTzADT
+      //    Represents time within a day in a timezone
+      //    The value in TimeADT consists of 2 parts:
+      //
+      //    1. The lower 24 bits (defined as ZoneFieldWidth) contains the timezone plus 24 hours, specified in
+      // seconds SQL-2008 limits the timezone itself to range between +/-14 hours
+
+      // We can store either local time and local time zone's offset or convert local time to UTC and the offset is
+      // constant in this case. The latter approach is implemented below
+
+      long micros = TimeUnit.MILLISECONDS.toMicros( Math.floorMod( date.getTime(), MILLIS_PER_DAY ) )
+          + subMillisMicros( date );
+      final long utcOffsetInSeconds = 24 * 3600;
+      return ( micros << 24 ) + utcOffsetInSeconds;
+    }
+  }
+
+  static final class TimestampWriter extends LocalTemporalWriter {
+    TimestampWriter( ValueMetaInterface valueMeta, boolean nativeDate ) {
+      super( valueMeta, nativeDate );
+    }
+
+    // 64-bit integer in little-endian format containing the number of microseconds since Julian day: Jan 01 2000
+    // 00:00:00. The local wall-clock time is used, disrespecting DST.
+
+    @Override
+    long encodeLocal( long localMillis, Date date ) {
+      return TimeUnit.MILLISECONDS.toMicros( localMillis - ColumnSpec.BASE_DATE_UTC_MILLIS ) + subMillisMicros( date );
+    }
+
+    @Override
+    long encodeCalendar( GregorianCalendar calendar, Date date ) {
+      return TimeUnit.MILLISECONDS.toMicros( ColumnSpec.computeDiffInMillisDisrespectingDst( calendar ) )
+        + subMillisMicros( date );
+    }
+  }
+
+  static final class TimestampTzWriter extends TemporalWriter {
+    TimestampTzWriter( ValueMetaInterface valueMeta, boolean nativeDate ) {
+      super( valueMeta, nativeDate );
+    }
+
+    @Override
+    long encode( Date date ) {
+      // A 64-bit integer in little-endian format containing the number of microseconds since Julian day: Jan 01 2000
+      // 00:00:00 in the UTC timezone.
+      return TimeUnit.MILLISECONDS.toMicros( date.getTime() - ColumnSpec.BASE_DATE_UTC_MILLIS )
+        + subMillisMicros( date );
+    }
+  }
+
+  /**
+   * Writes a NUMERIC value as its unscaled value at the column scale, in two's complement, as a sequence of 64-bit
+   * little-endian words with the most significant word first.
+   */
+  static final class NumericWriter implements ColumnWriter {
+    private final ValueMetaInterface valueMeta;
+    private final boolean nativeBigNumber;
+    private final int words;
+    private final int scale;
+    private final BigInteger limit;
+
+    NumericWriter( ValueMetaInterface valueMeta, ColumnSpec spec, boolean nativeBigNumber ) {
+      this.valueMeta = valueMeta;
+      this.nativeBigNumber = nativeBigNumber;
+      this.words = spec.bytes / 8;
+      this.scale = spec.scale;
+      this.limit = BigInteger.TEN.pow( spec.getPrecision() );
+    }
+
+    @Override
+    public boolean write( ByteBuffer buffer, Object value ) throws KettleValueException {
+      BigDecimal number = nativeBigNumber ? (BigDecimal) value : valueMeta.getBigNumber( value );
+      if ( number == null ) {
+        return false;
+      }
+      BigInteger unscaled = number.setScale( scale, RoundingMode.HALF_UP ).unscaledValue();
+      if ( unscaled.abs().compareTo( limit ) >= 0 ) {
+        throw new KettleValueException( "Value " + number + " does not fit into the precision of the column" );
+      }
+      if ( unscaled.bitLength() < 64 ) {
+        putNumeric( buffer, words, unscaled.longValue() );
+      } else {
+        for ( int i = words - 1; i >= 0; i-- ) {
+          buffer.putLong( unscaled.shiftRight( 64 * i ).longValue() );
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Writes an integer into a NUMERIC column of at most 18 digits, whose unscaled values always fit into a long.
+   */
+  static final class NumericFromLongWriter implements ColumnWriter {
+    private final int words;
+    private final long multiplier;
+    private final long limit;
+
+    NumericFromLongWriter( ColumnSpec spec ) {
+      this.words = spec.bytes / 8;
+      this.multiplier = powerOfTen( spec.scale );
+      this.limit = powerOfTen( spec.getPrecision() - spec.scale );
+    }
+
+    @Override
+    public boolean write( ByteBuffer buffer, Object value ) throws KettleValueException {
+      long integer = (Long) value;
+      if ( integer >= limit || integer <= -limit ) {
+        throw new KettleValueException( "Value " + integer + " does not fit into the precision of the column" );
+      }
+      putNumeric( buffer, words, integer * multiplier );
+      return true;
+    }
+
+    private static long powerOfTen( int exponent ) {
+      long power = 1;
+      for ( int i = 0; i < exponent; i++ ) {
+        power *= 10;
+      }
+      return power;
+    }
+  }
+
+  /**
+   * Writes an unscaled value that fits into a long, sign-extended to the given number of words.
+   */
+  private static void putNumeric( ByteBuffer buffer, int words, long unscaled ) {
+    long signExtension = unscaled < 0 ? -1L : 0L;
+    for ( int i = 1; i < words; i++ ) {
+      buffer.putLong( signExtension );
+    }
+    buffer.putLong( unscaled );
+  }
+
+  static final class BinaryWriter implements ColumnWriter {
+    private final ValueMetaInterface valueMeta;
+    private final int bytes;
+
+    BinaryWriter( ValueMetaInterface valueMeta, int bytes ) {
+      this.valueMeta = valueMeta;
+      this.bytes = bytes;
+    }
+
+    @Override
+    public boolean write( ByteBuffer buffer, Object value ) throws KettleValueException {
+      byte[] inputBinary = valueMeta.getBinaryString( value );
+      if ( inputBinary == null ) {
+        return false;
+      }
+      if ( inputBinary.length > bytes ) {
+        throw tooLong( inputBinary.length, bytes );
+      }
+      buffer.put( inputBinary );
+      for ( int i = inputBinary.length; i < bytes; i++ ) {
+        buffer.put( BYTE_ZERO );
+      }
+      return true;
+    }
+  }
+
+  static final class VarbinaryWriter implements ColumnWriter {
+    private final ValueMetaInterface valueMeta;
+    private final int maxBytes;
+
+    /**
+     * @param maxBytes maximum length allowed by the target column, not checked if not positive
+     */
+    VarbinaryWriter( ValueMetaInterface valueMeta, int maxBytes ) {
+      this.valueMeta = valueMeta;
+      this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public boolean write( ByteBuffer buffer, Object value ) throws KettleValueException {
+      byte[] inputBinary = valueMeta.getBinaryString( value );
+      if ( inputBinary == null ) {
+        return false;
+      }
+      if ( maxBytes > 0 && inputBinary.length > maxBytes ) {
+        throw tooLong( inputBinary.length, maxBytes );
+      }
+      buffer.putInt( inputBinary.length );
+      buffer.put( inputBinary );
+      return true;
+    }
+  }
+
+  /**
+   * Writes a length-prefixed UTF-8 string, for VARCHAR columns and NUMERIC columns loaded as text.
+   */
+  static final class VarcharFromStringWriter implements ColumnWriter {
+    private final int maxBytes;
+
+    VarcharFromStringWriter( int maxBytes ) {
+      this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public boolean write( ByteBuffer buffer, Object value ) throws KettleValueException {
+      int sizePosition = buffer.position();
+      buffer.putInt( 0 );
+      buffer.putInt( sizePosition, Utf8Encoder.encode( buffer, (String) value, maxBytes ) );
+      return true;
+    }
+  }
+
+  static final class VarcharWriter implements ColumnWriter {
+    private final ValueMetaInterface valueMeta;
+    private final int maxBytes;
+
+    VarcharWriter( ValueMetaInterface valueMeta, int maxBytes ) {
+      this.valueMeta = valueMeta;
+      this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public boolean write( ByteBuffer buffer, Object value ) throws KettleValueException {
+      String string = valueMeta.getString( value );
+      if ( string == null ) {
+        return false;
+      }
+      int sizePosition = buffer.position();
+      buffer.putInt( 0 );
+      buffer.putInt( sizePosition, Utf8Encoder.encode( buffer, string, maxBytes ) );
+      return true;
+    }
+  }
+
+  /**
+   * Writes the 16 bytes of a UUID in network order, from its text form or from 16 bytes.
+   */
+  static final class UuidWriter implements ColumnWriter {
+    private final ValueMetaInterface valueMeta;
+
+    UuidWriter( ValueMetaInterface valueMeta ) {
+      this.valueMeta = valueMeta;
+    }
+
+    @Override
+    public boolean write( ByteBuffer buffer, Object value ) throws KettleValueException {
+      if ( valueMeta.isBinary() ) {
+        byte[] bytes = valueMeta.getBinary( value );
+        if ( bytes == null ) {
+          return false;
+        }
+        if ( bytes.length != 16 ) {
+          throw new KettleValueException( "A UUID takes 16 bytes, not " + bytes.length );
+        }
+        buffer.put( bytes );
+        return true;
+      }
+      String string = valueMeta.getString( value );
+      if ( string == null ) {
+        return false;
+      }
+      UUID uuid;
+      try {
+        uuid = UUID.fromString( string.trim() );
+      } catch ( IllegalArgumentException e ) {
+        throw new KettleValueException( "Value " + string + " is not a UUID", e );
+      }
+      // the buffer is little endian
+      buffer.putLong( Long.reverseBytes( uuid.getMostSignificantBits() ) );
+      buffer.putLong( Long.reverseBytes( uuid.getLeastSignificantBits() ) );
+      return true;
+    }
+  }
+
+  static final class CharWriter implements ColumnWriter {
+    private final ValueMetaInterface valueMeta;
+    private final int bytes;
+
+    CharWriter( ValueMetaInterface valueMeta, int bytes ) {
+      this.valueMeta = valueMeta;
+      this.bytes = bytes;
+    }
+
+    @Override
+    public boolean write( ByteBuffer buffer, Object value ) throws KettleValueException {
+      String string = valueMeta.getString( value );
+      if ( string == null ) {
+        return false;
+      }
+      int encodedLength = Utf8Encoder.encode( buffer, string, bytes );
+      for ( int i = encodedLength; i < bytes; i++ ) {
+        buffer.put( BYTE_SPACE );
+      }
+      return true;
+    }
+  }
+}
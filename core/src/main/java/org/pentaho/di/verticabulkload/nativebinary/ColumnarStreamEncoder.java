@@ -0,0 +1,394 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 - 2026 by Pentaho Canada Inc. : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2030-06-15
+ ******************************************************************************/
+
+
+
+package org.pentaho.di.verticabulkload.nativebinary;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.List;
+
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMetaInterface;
+
+/**
+ * A {@link StreamEncoder} that encodes the rows by batch, one column at a time, for tables made mostly of 8 byte
+ * columns such as INTEGER, FLOAT and the date and time types.
+ * <p>
+ * The values of the 8 byte columns of a batch are first converted column by column into <tt>long</tt> arrays, with a
+ * bitmap of their nulls, so that each conversion loop runs a single writer. The rows are then written from the arrays,
+ * the other columns going through their writers as usual. When all the columns of the table are 8 byte columns, the
+ * rows without nulls all have the same layout and are written at fixed offsets, one column at a time.
+ * </p>
+ * <p>
+ * The outcome of the rows is reported to the {@link RowHandoffListener} once their batch is encoded, in the order they
+ * were written. A row with a value that cannot be written is encoded on its own, like {@link StreamEncoder} does, which
+ * counts and reports the failure.
+ * </p>
+ */
+public class ColumnarStreamEncoder extends StreamEncoder {
+
+  private static final int VALUE_BYTES = 8;
+
+  private final int columnCount;
+  /** Whether each column is converted into {@link #values} */
+  private final boolean[] fixed;
+  private final boolean allFixed;
+  private final boolean[] nullable;
+  private final byte[] rowNulls;
+  /** Where a writer puts a value before it is moved into the arrays */
+  private final ByteBuffer scratch = ByteBuffer.allocate( VALUE_BYTES ).order( ByteOrder.LITTLE_ENDIAN );
+
+  private final Object[][] rows;
+  private final Object[] tags;
+  /** The values of the fixed columns, by column and row, <tt>null</tt> for the other columns */
+  private final long[][] values;
+  /** The nulls of the fixed columns, a bit per row */
+  private final long[][] nulls;
+  private final boolean[] rowHasNull;
+  /** The rows to encode on their own */
+  private final boolean[] single;
+  private int rowCount;
+  private RowMetaInterface batchRowMeta;
+  /** The field map of the batch, <tt>null</tt> when the columns are the first values of the rows */
+  private int[] batchFields;
+  /** Position in the rows of the batch of the value of each column */
+  private int[] batchPositions;
+
+  private RowMetaInterface planRowMeta;
+  private int[] planFields;
+  private ColumnWriter[] writers;
+  /** Position of each column in rows written without a field map */
+  private final int[] positions;
+
+  public ColumnarStreamEncoder( List<ColumnSpec> columns, ByteBufferRing ring ) throws IOException {
+    this( columns, ring, DEFAULT_BUFFER_SIZE );
+  }
+
+  /**
+   * @param columns    the target columns
+   * @param ring       the ring the filled buffers are published to
+   * @param bufferSize the byte budget of a buffer, see {@link StreamEncoder#StreamEncoder(List, ByteBufferRing, int)}
+   */
+  public ColumnarStreamEncoder( List<ColumnSpec> columns, ByteBufferRing ring, int bufferSize ) throws IOException {
+    super( columns, ring, bufferSize );
+    this.columnCount = getColumnCount();
+    this.fixed = new boolean[ columnCount ];
+    this.nullable = new boolean[ columnCount ];
+    this.values = new long[ columnCount ][];
+    this.nulls = new long[ columnCount ][];
+    // the arrays of a batch take at most about as much as the buffer its rows fill
+    int batchRows = getRowsPerBuffer();
+    boolean all = true;
+    for ( int c = 0; c < columnCount; c++ ) {
+      ColumnSpec column = this.columns.get( c );
+      // every writer of an 8 byte column writes exactly 8 bytes
+      fixed[ c ] = column.bytes == VALUE_BYTES;
+      nullable[ c ] = column.isNullable();
+      if ( fixed[ c ] ) {
+        values[ c ] = new long[ batchRows ];
+        nulls[ c ] = new long[ ( batchRows + 63 ) / 64 ];
+      } else {
+        all = false;
+      }
+    }
+    this.allFixed = all;
+    this.rowNulls = new byte[ getNullBytes() ];
+    this.rows = new Object[ batchRows ][];
+    this.tags = new Object[ batchRows ];
+    this.rowHasNull = new boolean[ batchRows ];
+    this.single = new boolean[ batchRows ];
+    this.positions = new int[ columnCount ];
+    for ( int c = 0; c < columnCount; c++ ) {
+      positions[ c ] = c;
+    }
+  }
+
+  @Override
+  public void writeRow( RowMetaInterface rowMeta, Object[] row ) throws IOException, KettleValueException {
+    try {
+      writeRow( rowMeta, row, null );
+    } catch ( KettleValueException | IOException ex ) {
+      throw ex;
+    } catch ( KettleException ex ) {
+      throw new IOException( ex );
+    }
+  }
+
+  @Override
+  public void writeRow( RowMetaInterface rowMeta, Object[] row, int[] fields, Object tag )
+    throws IOException, KettleException {
+    if ( row == null ) {
+      encodeBatch();
+      super.close();
+      return;
+    }
+    checkRow( row, fields );
+
+    if ( rowCount > 0 && ( batchRowMeta != rowMeta || batchFields != fields ) ) {
+      // the writers of a batch are compiled for a single row metadata and field map
+      encodeBatch();
+    }
+    batchRowMeta = rowMeta;
+    batchFields = fields;
+    batchPositions = fields == null ? positions : fields;
+    rows[ rowCount ] = row;
+    tags[ rowCount ] = tag;
+    rowCount++;
+    if ( rowCount == rows.length ) {
+      encodeBatch();
+    }
+  }
+
+  /**
+   * Encodes the pending rows, reporting them to the listener, and hands all the rows written so far over to the ring.
+   */
+  @Override
+  public void flush() throws IOException, KettleException {
+    encodeBatch();
+    super.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      encodeBatch();
+    } catch ( KettleException ex ) {
+      throw new IOException( ex );
+    }
+    super.close();
+  }
+
+  private void encodeBatch() throws IOException, KettleException {
+    if ( rowCount == 0 ) {
+      return;
+    }
+    try {
+      ColumnWriter[] batchWriters = prepare( batchRowMeta, batchFields );
+      for ( int c = 0; c < columnCount; c++ ) {
+        if ( fixed[ c ] ) {
+          convertColumn( c, batchWriters[ c ] );
+        }
+      }
+      int i = 0;
+      while ( i < rowCount ) {
+        if ( single[ i ] ) {
+          encodeSingle( i++ );
+        } else if ( allFixed && !rowHasNull[ i ] ) {
+          int end = i + 1;
+          while ( end < rowCount && !single[ end ] && !rowHasNull[ end ] ) {
+            end++;
+          }
+          writeFixedRows( i, end );
+          i = end;
+        } else {
+          if ( writeFromArrays( batchWriters, i ) ) {
+            reportEncoded( i );
+          } else {
+            encodeSingle( i );
+          }
+          i++;
+        }
+      }
+    } finally {
+      Arrays.fill( rows, 0, rowCount, null );
+      Arrays.fill( tags, 0, rowCount, null );
+      Arrays.fill( rowHasNull, 0, rowCount, false );
+      Arrays.fill( single, 0, rowCount, false );
+      rowCount = 0;
+    }
+  }
+
+  private ColumnWriter[] prepare( RowMetaInterface rowMeta, int[] fields ) {
+    if ( writers == null || planRowMeta != rowMeta || planFields != fields ) {
+      writers = EncodingPlan.compile( columns, rowMeta, fields ).getWriters();
+      planRowMeta = rowMeta;
+      planFields = fields;
+    }
+    return writers;
+  }
+
+  /**
+   * Converts the values of a fixed column of the batch into its array. A row whose value cannot be written, or is
+   * <tt>null</tt> for a NOT NULL column, is left to be encoded on its own.
+   */
+  private void convertColumn( int c, ColumnWriter writer ) {
+    int field = batchPositions[ c ];
+    long[] columnValues = values[ c ];
+    long[] columnNulls = nulls[ c ];
+    Arrays.fill( columnNulls, 0L );
+    if ( writer instanceof ColumnWriters.IntegerFromLongWriter ) {
+      for ( int i = 0; i < rowCount; i++ ) {
+        Long value = (Long) rows[ i ][ field ];
+        if ( value == null ) {
+          setNull( c, i );
+        } else if ( value == Long.MIN_VALUE ) {
+          // out of range, rejected by the writer
+          single[ i ] = true;
+        } else {
+          columnValues[ i ] = value;
+        }
+      }
+    } else if ( writer instanceof ColumnWriters.FloatFromDoubleWriter ) {
+      for ( int i = 0; i < rowCount; i++ ) {
+        Double value = (Double) rows[ i ][ field ];
+        if ( value == null ) {
+          setNull( c, i );
+        } else {
+          columnValues[ i ] = Double.doubleToRawLongBits( value );
+        }
+      }
+    } else {
+      for ( int i = 0; i < rowCount; i++ ) {
+        Object value = rows[ i ][ field ];
+        try {
+          scratch.clear();
+          if ( value != null && writer.write( scratch, value ) ) {
+            columnValues[ i ] = scratch.getLong( 0 );
+          } else {
+            setNull( c, i );
+          }
+        } catch ( KettleValueException | BufferOverflowException ex ) {
+          // e.g. a CHAR value longer than the column, the row encoder rejects it as such
+          single[ i ] = true;
+        }
+      }
+    }
+  }
+
+  private void setNull( int c, int i ) {
+    if ( nullable[ c ] ) {
+      nulls[ c ][ i >>> 6 ] |= 1L << ( i & 63 );
+      rowHasNull[ i ] = true;
+    } else {
+      single[ i ] = true;
+    }
+  }
+
+  private boolean isNull( int c, int i ) {
+    return ( nulls[ c ][ i >>> 6 ] & ( 1L << ( i & 63 ) ) ) != 0;
+  }
+
+  /**
+   * Writes rows of a table of fixed columns only, none of them with a null: every row has the same size and every value
+   * the same offset in its row.
+   */
+  private void writeFixedRows( int from, int to ) throws IOException, KettleException {
+    int dataSize = VALUE_BYTES * columnCount;
+    int rowSize = 4 + rowNulls.length + dataSize;
+    int i = from;
+    while ( i < to ) {
+      ByteBuffer buffer = getBuffer();
+      int count = Math.min( to - i, buffer.remaining() / rowSize );
+      if ( count == 0 ) {
+        // the buffers hold at least one row of maximum size
+        flushBuffer();
+        continue;
+      }
+      int base = buffer.position();
+      for ( int r = 0; r < count; r++ ) {
+        int rowStart = base + r * rowSize;
+        buffer.putInt( rowStart, dataSize );
+        for ( int k = 0; k < rowNulls.length; k++ ) {
+          buffer.put( rowStart + 4 + k, (byte) 0 );
+        }
+      }
+      for ( int c = 0; c < columnCount; c++ ) {
+        long[] columnValues = values[ c ];
+        int offset = base + 4 + rowNulls.length + VALUE_BYTES * c;
+        for ( int r = 0; r < count; r++ ) {
+          buffer.putLong( offset + r * rowSize, columnValues[ i + r ] );
+        }
+      }
+      buffer.position( base + count * rowSize );
+      countRows( count, rowSize );
+      for ( int r = 0; r < count; r++ ) {
+        reportEncoded( i + r );
+      }
+      i += count;
+    }
+  }
+
+  /**
+   * Writes a row from the arrays of the fixed columns and the writers of the others.
+   *
+   * @return <tt>false</tt> if a value could not be written or the row did not fit, nothing is written then
+   */
+  private boolean writeFromArrays( ColumnWriter[] batchWriters, int i ) throws IOException {
+    checkAndFlushBuffer();
+    ByteBuffer buffer = getBuffer();
+    int rowStart = buffer.position();
+    try {
+      buffer.putInt( 0 );
+      int nullsPosition = buffer.position();
+      int dataPosition = nullsPosition + rowNulls.length;
+      buffer.position( dataPosition );
+      Arrays.fill( rowNulls, (byte) 0 );
+      Object[] row = rows[ i ];
+      for ( int c = 0; c < columnCount; c++ ) {
+        if ( fixed[ c ] ) {
+          if ( !isNull( c, i ) ) {
+            buffer.putLong( values[ c ][ i ] );
+            continue;
+          }
+        } else {
+          Object value = row[ batchPositions[ c ] ];
+          if ( value != null && batchWriters[ c ].write( buffer, value ) ) {
+            continue;
+          } else if ( !nullable[ c ] ) {
+            buffer.position( rowStart );
+            return false;
+          }
+        }
+        rowNulls[ c >>> 3 ] |= (byte) ( 0x80 >>> ( c & 7 ) );
+      }
+      buffer.putInt( rowStart, buffer.position() - dataPosition );
+      for ( int k = 0; k < rowNulls.length; k++ ) {
+        buffer.put( nullsPosition + k, rowNulls[ k ] );
+      }
+      countRows( 1, buffer.position() - rowStart );
+      return true;
+    } catch ( KettleValueException | BufferOverflowException ex ) {
+      buffer.position( rowStart );
+      return false;
+    }
+  }
+
+  /**
+   * Encodes a row the way {@link StreamEncoder} does and reports what became of it.
+   */
+  private void encodeSingle( int i ) throws IOException, KettleException {
+    RowHandoffListener listener = getListener();
+    try {
+      encodeRow( batchRowMeta, rows[ i ], batchFields );
+    } catch ( KettleValueException ex ) {
+      if ( listener == null ) {
+        throw ex;
+      }
+      listener.rowRejected( tags[ i ], ex );
+      return;
+    }
+    reportEncoded( i );
+  }
+
+  private void reportEncoded( int i ) throws KettleException {
+    RowHandoffListener listener = getListener();
+    if ( listener != null ) {
+      listener.rowEncoded( tags[ i ] );
+    }
+  }
+}
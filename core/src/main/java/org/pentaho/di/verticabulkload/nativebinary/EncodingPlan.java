@@ -0,0 +1,52 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 - 2026 by Pentaho Canada Inc. : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2030-06-15
+ ******************************************************************************/
+
+
+
+package org.pentaho.di.verticabulkload.nativebinary;
+
+import java.util.List;
+
+import org.pentaho.di.core.row.RowMetaInterface;
+
+/**
+ * The writers of all the columns of a stream, resolved once for the row metadata of the incoming rows so that the row
+ * encoding loop does not switch on the column type for every value.
+ */
+public final class EncodingPlan {
+
+  private final ColumnWriter[] writers;
+
+  private EncodingPlan( ColumnWriter[] writers ) {
+    this.writers = writers;
+  }
+
+  public static EncodingPlan compile( List<ColumnSpec> columns, RowMetaInterface rowMeta ) {
+    return compile( columns, rowMeta, null );
+  }
+
+  /**
+   * @param fields position in the rows of the value of each column, <tt>null</tt> when the columns are the first values
+   *               of the rows
+   */
+  public static EncodingPlan compile( List<ColumnSpec> columns, RowMetaInterface rowMeta, int[] fields ) {
+    ColumnWriter[] writers = new ColumnWriter[ columns.size() ];
+    for ( int i = 0; i < writers.length; i++ ) {
+      writers[ i ] = ColumnWriters.create( columns.get( i ), rowMeta.getValueMeta( fields == null ? i : fields[ i ] ) );
+    }
+    return new EncodingPlan( writers );
+  }
+
+  ColumnWriter[] getWriters() {
+    return writers;
+  }
+}
@@ -0,0 +1,368 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 - 2026 by Pentaho Canada Inc. : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2030-06-15
+ ******************************************************************************/
+
+
+
+package org.pentaho.di.verticabulkload.nativebinary;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMetaInterface;
+
+/**
+ * A {@link StreamEncoder} that encodes the rows on a pool of threads instead of the thread writing them.
+ * <p>
+ * The rows are collected into batches of as many rows of the largest recent size as a buffer holds. Each batch is
+ * encoded by one of the encoder threads into a buffer taken from the ring. A row that does not fit into the space left
+ * ends the work of the thread: the rest of the batch is encoded on the writing thread like {@link StreamEncoder} does,
+ * into buffers of the ring, so the encoders never hold more buffers than the ring has. Once encoded, the buffers of the
+ * batches are published to the ring in the order the rows were written, and the outcome of every row is reported to
+ * the {@link RowHandoffListener}, on the writing thread.
+ * </p>
+ * <p>
+ * At most <tt>depth - 1</tt> batches of the ring are in flight, so the writing thread can always get a buffer back from
+ * the COPY worker and never waits on a batch that waits on it.
+ * </p>
+ */
+public class ParallelStreamEncoder extends StreamEncoder {
+
+  private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+
+  private final ExecutorService executor;
+  private final BlockingQueue<RowEncoder> rowEncoders;
+  private final List<RowEncoder> allRowEncoders;
+  private final Deque<Batch> inFlight = new ArrayDeque<>();
+  private final int maxInFlight;
+
+  private Batch batch;
+  private boolean closed;
+
+  /**
+   * @param columns    the target columns
+   * @param ring       the ring the filled buffers are published to, at least 2 deep
+   * @param bufferSize the byte budget of a buffer, see {@link StreamEncoder#StreamEncoder(List, ByteBufferRing, int)}
+   * @param threads    the number of encoder threads
+   */
+  public ParallelStreamEncoder( List<ColumnSpec> columns, ByteBufferRing ring, int bufferSize, int threads )
+    throws IOException {
+    super( columns, ring, bufferSize );
+    if ( threads < 1 ) {
+      throw new IllegalArgumentException( "At least one encoder thread is needed" );
+    }
+    if ( ring.getDepth() < 2 ) {
+      throw new IllegalArgumentException( "Parallel encoding needs a buffer ring at least 2 deep" );
+    }
+    this.maxInFlight = Math.min( threads * 2, ring.getDepth() - 1 );
+    this.rowEncoders = new ArrayBlockingQueue<>( threads );
+    this.allRowEncoders = new ArrayList<>( threads );
+    for ( int i = 0; i < threads; i++ ) {
+      RowEncoder rowEncoder = new RowEncoder( this.columns, true, columnFailures );
+      rowEncoders.add( rowEncoder );
+      allRowEncoders.add( rowEncoder );
+    }
+    this.executor = Executors.newFixedThreadPool( threads, new EncoderThreadFactory() );
+  }
+
+  @Override
+  public void writeRow( RowMetaInterface rowMeta, Object[] row ) throws IOException, KettleValueException {
+    try {
+      writeRow( rowMeta, row, null );
+    } catch ( KettleValueException | IOException ex ) {
+      throw ex;
+    } catch ( KettleException ex ) {
+      throw new IOException( ex );
+    }
+  }
+
+  @Override
+  public void writeRow( RowMetaInterface rowMeta, Object[] row, int[] fields, Object tag )
+    throws IOException, KettleException {
+    if ( row == null ) {
+      finish();
+      return;
+    }
+    checkRow( row, fields );
+
+    if ( batch != null && ( batch.rowMeta != rowMeta || batch.fields != fields ) ) {
+      // the writers of a batch are compiled for a single row metadata and field map
+      submit();
+    }
+    if ( batch == null ) {
+      batch = new Batch( rowMeta, fields, getBatchRows() );
+    }
+    batch.add( row, tag );
+    if ( batch.size == batch.rows.length ) {
+      submit();
+    }
+  }
+
+  /**
+   * Encodes the last rows, hands all the batches over and closes the stream.
+   */
+  public void finish() throws IOException, KettleException {
+    if ( closed ) {
+      return;
+    }
+    try {
+      flush();
+      ring.close();
+    } finally {
+      closed = true;
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Encodes the pending rows and hands all the batches over, reporting their rows to the listener.
+   */
+  @Override
+  public void flush() throws IOException, KettleException {
+    if ( batch != null ) {
+      submit();
+    }
+    while ( !inFlight.isEmpty() ) {
+      handOff( inFlight.removeFirst() );
+    }
+    // a header not followed by any batch yet
+    ByteBuffer pending = takeBuffer();
+    if ( pending != null ) {
+      pending.flip();
+      ring.publish( pending );
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      finish();
+    } catch ( KettleException ex ) {
+      throw new IOException( ex );
+    }
+  }
+
+  /**
+   * Stops the encoder threads, which {@link #finish()} only does once the last rows are encoded.
+   */
+  @Override
+  public void abort() {
+    closed = true;
+    executor.shutdownNow();
+  }
+
+  boolean isShutdown() {
+    return executor.isShutdown();
+  }
+
+  private void submit() throws IOException, KettleException {
+    while ( inFlight.size() >= maxInFlight ) {
+      handOff( inFlight.removeFirst() );
+    }
+    while ( !inFlight.isEmpty() && inFlight.peekFirst().future.isDone() ) {
+      handOff( inFlight.removeFirst() );
+    }
+
+    // the first batch goes after the header
+    ByteBuffer target = takeBuffer();
+    if ( target == null ) {
+      target = ring.acquire( getBufferSize() );
+      target.order( ByteOrder.LITTLE_ENDIAN );
+    }
+    batch.buffer = target;
+    batch.future = executor.submit( batch );
+    inFlight.addLast( batch );
+    batch = null;
+  }
+
+  /**
+   * @return the number of rows of the largest recent size a buffer holds, a single row until the first batch tells
+   * that size
+   */
+  private int getBatchRows() {
+    int largestRow = getFlushThreshold();
+    return largestRow == 0 ? 1 : Math.max( 1, getBufferSize() / largestRow );
+  }
+
+  /**
+   * Waits for a batch to be encoded, publishes its buffer, encodes the rows its thread left and reports all its rows
+   * to the listener.
+   */
+  private void handOff( Batch done ) throws IOException, KettleException {
+    try {
+      done.future.get();
+    } catch ( InterruptedException ex ) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException( "Interrupted while waiting for a batch to be encoded" );
+    } catch ( ExecutionException ex ) {
+      Throwable cause = ex.getCause();
+      if ( cause instanceof RuntimeException ) {
+        throw (RuntimeException) cause;
+      } else if ( cause instanceof Error ) {
+        throw (Error) cause;
+      }
+      throw new IOException( "Unable to encode a batch of rows", cause );
+    }
+
+    done.buffer.flip();
+    ring.publish( done.buffer );
+    rowsBuffered( done.encodedTo, done.largestRow );
+
+    for ( int i = 0; i < done.encodedTo; i++ ) {
+      report( done.tags[ i ], done.rejections == null ? null : done.rejections[ i ] );
+    }
+    if ( done.encodedTo < done.size ) {
+      // rows larger than the recent ones, in the buffers of the ring like any row of the serial encoder
+      ensureBuffer();
+      for ( int i = done.encodedTo; i < done.size; i++ ) {
+        KettleValueException rejection = null;
+        try {
+          encodeRow( done.rowMeta, done.rows[ i ], done.fields );
+        } catch ( KettleValueException ex ) {
+          rejection = ex;
+        }
+        done.rows[ i ] = null;
+        report( done.tags[ i ], rejection );
+      }
+      // before the buffer of the next batch
+      flushBuffer();
+    }
+  }
+
+  private void report( Object tag, KettleValueException rejection ) throws KettleException {
+    RowHandoffListener listener = getListener();
+    if ( rejection != null ) {
+      if ( listener == null ) {
+        throw rejection;
+      }
+      listener.rowRejected( tag, rejection );
+    } else if ( listener != null ) {
+      listener.rowEncoded( tag );
+    }
+  }
+
+  @Override
+  public int getLargestRowSize() {
+    // the rows left by the encoder threads included
+    int largest = super.getLargestRowSize();
+    for ( RowEncoder rowEncoder : allRowEncoders ) {
+      largest = Math.max( largest, rowEncoder.getLargestRowSize() );
+    }
+    return largest;
+  }
+
+  @Override
+  public double getAverageRowSize() {
+    long rows = getRowCount();
+    long bytes = getEncodedBytes();
+    for ( RowEncoder rowEncoder : allRowEncoders ) {
+      rows += rowEncoder.getRowCount();
+      bytes += rowEncoder.getEncodedBytes();
+    }
+    return rows == 0 ? 0 : (double) bytes / rows;
+  }
+
+  int getMaxInFlight() {
+    return maxInFlight;
+  }
+
+  /**
+   * Rows encoded together by one encoder thread, into a buffer of the ring.
+   */
+  private class Batch implements Callable<Void> {
+    private final RowMetaInterface rowMeta;
+    private final int[] fields;
+    private final Object[][] rows;
+    private final Object[] tags;
+    private ByteBuffer buffer;
+    private int size;
+
+    private KettleValueException[] rejections;
+    /** The number of rows done by the encoder thread, the ones after did not fit into the buffer */
+    private int encodedTo;
+    private int largestRow;
+    private Future<Void> future;
+
+    private Batch( RowMetaInterface rowMeta, int[] fields, int capacity ) {
+      this.rowMeta = rowMeta;
+      this.fields = fields;
+      this.rows = new Object[ capacity ][];
+      this.tags = new Object[ capacity ];
+    }
+
+    private void add( Object[] row, Object tag ) {
+      rows[ size ] = row;
+      tags[ size ] = tag;
+      size++;
+    }
+
+    @Override
+    public Void call() throws Exception {
+      RowEncoder rowEncoder = rowEncoders.take();
+      try {
+        ColumnWriter[] writers = rowEncoder.prepare( rowMeta, fields );
+        for ( int i = 0; i < size; i++ ) {
+          int rowStart = buffer.position();
+          try {
+            rowEncoder.encode( buffer, writers, fields, rows[ i ] );
+            largestRow = Math.max( largestRow, buffer.position() - rowStart );
+          } catch ( BufferOverflowException ex ) {
+            // left to the writing thread, with the rows after it
+            buffer.position( rowStart );
+            return null;
+          } catch ( KettleValueException ex ) {
+            if ( rejections == null ) {
+              rejections = new KettleValueException[ size ];
+            }
+            rejections[ i ] = ex;
+          }
+          // the batch does not need the row anymore
+          rows[ i ] = null;
+          encodedTo = i + 1;
+        }
+      } finally {
+        rowEncoders.put( rowEncoder );
+      }
+      return null;
+    }
+  }
+
+  private static class EncoderThreadFactory implements ThreadFactory {
+    private final int poolNumber = POOL_NUMBER.incrementAndGet();
+    private final AtomicInteger threadNumber = new AtomicInteger();
+
+    @Override
+    public Thread newThread( Runnable runnable ) {
+      Thread thread =
+        new Thread( runnable, "vertica-encoder-" + poolNumber + "-" + threadNumber.incrementAndGet() );
+      thread.setDaemon( true );
+      return thread;
+    }
+  }
+}
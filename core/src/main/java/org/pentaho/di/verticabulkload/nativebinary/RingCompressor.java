@@ -0,0 +1,125 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 - 2026 by Pentaho Canada Inc. : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2030-06-15
+ ******************************************************************************/
+
+
+
+package org.pentaho.di.verticabulkload.nativebinary;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compresses the data of a buffer ring with GZIP into a second ring, between the encoder and the COPY worker, so that
+ * the compression runs on a thread of its own.
+ * <p>
+ * Every chunk of the source becomes a GZIP stream of its own and a chunk of the target: each COPY statement reads
+ * complete GZIP data. The fastest compression level is used, the point is to save bandwidth without becoming the
+ * bottleneck of the load.
+ * </p>
+ */
+public class RingCompressor {
+
+  static final int BUFFER_SIZE = 256 * 1024;
+
+  private final ByteBufferRing source;
+  private final ByteBufferRing target;
+  private final byte[] input = new byte[ 64 * 1024 ];
+
+  public RingCompressor( ByteBufferRing source, ByteBufferRing target ) {
+    this.source = source;
+    this.target = target;
+  }
+
+  /**
+   * Compresses the source until the encoder closes it, then closes the target.
+   *
+   * @throws IOException if either ring is aborted or the thread is interrupted
+   */
+  public void compress() throws IOException {
+    InputStream in = source.getInputStream();
+    RingOutputStream out = new RingOutputStream();
+    while ( true ) {
+      GZIPOutputStream gzip = new FastGzipOutputStream( out );
+      int read;
+      while ( ( read = in.read( input, 0, input.length ) ) != -1 ) {
+        gzip.write( input, 0, read );
+      }
+      gzip.finish();
+      out.publish();
+      if ( source.isDrained() ) {
+        target.close();
+        return;
+      }
+      target.endChunk();
+    }
+  }
+
+  /**
+   * Releases both rings when the compression or one of its sides fails.
+   */
+  public void abort() {
+    source.abort();
+    target.abort();
+  }
+
+  private static class FastGzipOutputStream extends GZIPOutputStream {
+    FastGzipOutputStream( OutputStream out ) throws IOException {
+      super( out, BUFFER_SIZE );
+      def.setLevel( Deflater.BEST_SPEED );
+    }
+  }
+
+  /**
+   * Writes into buffers of the target ring, publishing each one once full.
+   */
+  private class RingOutputStream extends OutputStream {
+    private ByteBuffer buffer;
+
+    @Override
+    public void write( int b ) throws IOException {
+      ensureRemaining();
+      buffer.put( (byte) b );
+    }
+
+    @Override
+    public void write( byte[] b, int off, int len ) throws IOException {
+      while ( len > 0 ) {
+        ensureRemaining();
+        int count = Math.min( len, buffer.remaining() );
+        buffer.put( b, off, count );
+        off += count;
+        len -= count;
+      }
+    }
+
+    void publish() throws IOException {
+      if ( buffer != null && buffer.position() > 0 ) {
+        buffer.flip();
+        target.publish( buffer );
+        buffer = null;
+      }
+    }
+
+    private void ensureRemaining() throws IOException {
+      if ( buffer != null && !buffer.hasRemaining() ) {
+        publish();
+      }
+      if ( buffer == null ) {
+        buffer = target.acquire( BUFFER_SIZE );
+      }
+    }
+  }
+}
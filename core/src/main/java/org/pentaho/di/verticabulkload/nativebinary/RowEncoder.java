@@ -0,0 +1,229 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 - 2026 by Pentaho Canada Inc. : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2030-06-15
+ ******************************************************************************/
+
+
+
+package org.pentaho.di.verticabulkload.nativebinary;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMetaInterface;
+
+/**
+ * Encodes rows in NATIVE format: the row length, the null bitmap and the values of the columns. An instance is used by
+ * one thread at a time and keeps the statistics of the rows it encoded.
+ */
+class RowEncoder {
+
+  private static final byte BYTE_ZERO = (byte) 0;
+
+  private final List<ColumnSpec> columns;
+  private final int columnCount;
+  private final BitSet rowNulls;
+  /** Whether each column is NOT NULL */
+  private final boolean[] notNull;
+  /** Position of each column in rows written without a field map */
+  private final int[] positions;
+
+  /**
+   * Compile the writers against a copy of the row metadata, for encoders running next to each other: the conversions
+   * of a value meta use formatters that are not thread safe.
+   */
+  private final boolean isolated;
+
+  /** Values that could not be encoded, by column, shared by the encoders of a stream */
+  private final AtomicLongArray columnFailures;
+
+  private RowMetaInterface planRowMeta;
+  private int[] planFields;
+  private ColumnWriter[] writers;
+
+  private int largestRowSize;
+  private long rowCount;
+  private long encodedBytes;
+
+  RowEncoder( List<ColumnSpec> columns, boolean isolated, AtomicLongArray columnFailures ) {
+    this.columns = columns;
+    this.columnCount = columns.size();
+    this.rowNulls = new BitSet( columnCount );
+    this.notNull = new boolean[ columnCount ];
+    this.positions = new int[ columnCount ];
+    for ( int i = 0; i < columnCount; i++ ) {
+      notNull[ i ] = !columns.get( i ).isNullable();
+      positions[ i ] = i;
+    }
+    this.isolated = isolated;
+    this.columnFailures = columnFailures;
+  }
+
+  /**
+   * @return the size of the null bitmap of a row, in bytes
+   */
+  int nullBytes() {
+    return rowNulls.numBytes();
+  }
+
+  /**
+   * Resolves the column writers for rows of the given metadata, reusing the previous ones when it did not change.
+   */
+  ColumnWriter[] prepare( RowMetaInterface rowMeta ) {
+    return prepare( rowMeta, null );
+  }
+
+  /**
+   * Resolves the column writers for rows of the given metadata and field map, see
+   * {@link EncodingPlan#compile(List, RowMetaInterface, int[])}.
+   */
+  ColumnWriter[] prepare( RowMetaInterface rowMeta, int[] fields ) {
+    if ( writers == null || planRowMeta != rowMeta || planFields != fields ) {
+      writers = EncodingPlan.compile( columns, isolated ? rowMeta.clone() : rowMeta, fields ).getWriters();
+      planRowMeta = rowMeta;
+      planFields = fields;
+    }
+    return writers;
+  }
+
+  /**
+   * Encodes a row at the current position of the buffer. If a value cannot be encoded, the position of the buffer is
+   * restored to the start of the row.
+   */
+  void encode( ByteBuffer target, ColumnWriter[] writers, Object[] row ) throws KettleValueException {
+    encode( target, writers, null, row );
+  }
+
+  /**
+   * Encodes the values of a row picked by a field map, see {@link #encode(ByteBuffer, ColumnWriter[], Object[])}.
+   *
+   * @param fields position in the row of the value of each column, <tt>null</tt> for the first values of the row
+   */
+  void encode( ByteBuffer target, ColumnWriter[] writers, int[] fields, Object[] row ) throws KettleValueException {
+    int[] rowFields = fields == null ? positions : fields;
+    rowNulls.clear();
+
+    // record the start of this row so we can come back and update the size and nulls
+    int rowDataSizeFieldPosition = target.position();
+    target.putInt( 0 );
+    int rowNullsFieldPosition = target.position();
+    rowNulls.writeBytesTo( target );
+    int rowDataPosition = target.position();
+
+    int i = 0;
+    try {
+      for ( ; i < columnCount; i++ ) {
+        Object value = row[ rowFields[ i ] ];
+        if ( value == null || !writers[ i ].write( target, value ) ) {
+          if ( notNull[ i ] ) {
+            throw new KettleValueException( "Null value for NOT NULL column " + ( i + 1 ) );
+          }
+          rowNulls.setBit( i );
+        }
+      }
+    } catch ( KettleValueException ex ) {
+      //restore the buffer before the row
+      target.position( rowDataSizeFieldPosition );
+      columnFailures.incrementAndGet( i );
+      throw ex;
+    }
+
+    // Now fill in the row header
+    target.putInt( rowDataSizeFieldPosition, target.position() - rowDataPosition );
+    rowNulls.writeBytesTo( rowNullsFieldPosition, target );
+
+    int rowSize = target.position() - rowDataSizeFieldPosition;
+    if ( rowSize > largestRowSize ) {
+      largestRowSize = rowSize;
+    }
+    rowCount++;
+    encodedBytes += rowSize;
+  }
+
+  /**
+   * Adds rows encoded without this encoder to its statistics.
+   */
+  void countRows( int rows, int rowSize ) {
+    if ( rowSize > largestRowSize ) {
+      largestRowSize = rowSize;
+    }
+    rowCount += rows;
+    encodedBytes += (long) rows * rowSize;
+  }
+
+  int getLargestRowSize() {
+    return largestRowSize;
+  }
+
+  long getRowCount() {
+    return rowCount;
+  }
+
+  long getEncodedBytes() {
+    return encodedBytes;
+  }
+
+  private static class BitSet {
+    private byte[] bytes;
+    private boolean dirty = false;
+    private int numBits;
+    private int numBytes;
+
+    private BitSet( int numBits ) {
+      this.numBits = numBits;
+      this.numBytes = (int) Math.ceil( (double) numBits / 8.0d );
+      bytes = new byte[this.numBytes];
+    }
+
+    /**
+     * Sets the bit in the BitSet to 1. The first column (index 0) bit is the msb.
+     * 
+     * @param bitIndex
+     *          bit index (first bit index is 0)
+     */
+    private void setBit( int bitIndex ) {
+      if ( bitIndex < 0 || bitIndex >= numBits ) {
+        throw new IllegalArgumentException( "Invalid bit index" );
+      }
+
+      int byteIdx = (int) Math.floor( (double) bitIndex / 8.0d );
+
+      int bitIdx = bitIndex - ( byteIdx * 8 );
+      bytes[byteIdx] |= ( 1 << ( 7 - bitIdx ) );
+
+      dirty = true;
+    }
+
+    private void clear() {
+      if ( dirty ) {
+        for ( int i = 0; i < numBytes; i++ ) {
+          bytes[i] = BYTE_ZERO;
+        }
+        dirty = false;
+      }
+    }
+
+    private int numBytes() {
+      return bytes.length;
+    }
+
+    private void writeBytesTo( ByteBuffer buf ) {
+      buf.put( bytes );
+    }
+
+    private void writeBytesTo( int index, ByteBuffer buf ) {
+      for ( int i = 0; i < bytes.length; i++ ) {
+        buf.put( index + i, bytes[i] );
+      }
+    }
+  }
+}
@@ -0,0 +1,40 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 - 2026 by Pentaho Canada Inc. : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2030-06-15
+ ******************************************************************************/
+
+
+
+package org.pentaho.di.verticabulkload.nativebinary;
+
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleValueException;
+
+/**
+ * Told what became of the rows written with {@link StreamEncoder#writeRow(org.pentaho.di.core.row.RowMetaInterface,
+ * Object[], Object)}, in the order they were written and on the thread that writes them.
+ */
+public interface RowHandoffListener {
+
+  /**
+   * The row was encoded and its data handed over to the COPY stream.
+   *
+   * @param tag the tag the row was written with
+   */
+  void rowEncoded( Object tag ) throws KettleException;
+
+  /**
+   * The row could not be encoded and is not part of the stream.
+   *
+   * @param tag   the tag the row was written with
+   * @param cause why the row could not be encoded
+   */
+  void rowRejected( Object tag, KettleValueException cause ) throws KettleException;
+}
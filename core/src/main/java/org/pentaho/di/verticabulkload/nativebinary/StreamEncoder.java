@@ -15,104 +15,94 @@
 package org.pentaho.di.verticabulkload.nativebinary;
 
 import java.io.IOException;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.nio.CharBuffer;
-import java.nio.channels.Channels;
-import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
-import java.nio.charset.CharsetEncoder;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
 
+import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleValueException;
 import org.pentaho.di.core.row.RowMetaInterface;
-import org.pentaho.di.core.row.ValueMetaInterface;
 
 public class StreamEncoder {
 
-  // public for test purposes
-  // TODO: maybe this needs to be a configurable setting, but I don't know how important it is.
-  public static final int NUM_ROWS_TO_BUFFER = 500;
-
   private static final byte BYTE_ZERO = (byte) 0;
   private static final byte BYTE_FULL = (byte) 0xFF;
   private static final byte BYTE_LF = (byte) 0x0A;
   private static final byte BYTE_CR = (byte) 0x0D;
 
-  private static final int MAX_CHAR_LENGTH = 65000;
+  static final int MAXIMUM_BUFFER_SIZE = Integer.MAX_VALUE - 8;
 
-  private static final int MAXIMUM_BUFFER_SIZE = Integer.MAX_VALUE - 8;
+  /**
+   * Default size of a stream buffer, in bytes
+   */
+  public static final int DEFAULT_BUFFER_SIZE = 4 * 1024 * 1024;
+
+  /**
+   * Smallest buffer size accepted, in bytes
+   */
+  public static final int MINIMUM_BUFFER_SIZE = 64 * 1024;
 
-  protected WritableByteChannel channel;
-  private PipedOutputStream pipedOutputStream;
+  final ByteBufferRing ring;
 
   private int columnCount;
-  private int rowMaxSize;
+  private int rowMinSize;
+  private int bufferSize;
+  private int maximumRowSize = MAXIMUM_BUFFER_SIZE;
 
   private ByteBuffer buffer;
 
   private Charset charset;
 
-  private final List<ColumnSpec> columns;
-  private final BitSet rowNulls;
+  final List<ColumnSpec> columns;
+  final AtomicLongArray columnFailures;
+  private final RowEncoder rowEncoder;
+
+  private RowHandoffListener listener;
+
+  /**
+   * Space kept for the next row before the buffer is flushed: the largest recent row written into a shared buffer. It
+   * decays by 1/1024 with every row and leaves out the rows written into buffers of their own, so that an occasional
+   * large row does not make every later row start a new buffer.
+   */
+  private int flushThreshold;
 
   public void close() throws IOException {
     flushAndClose();
   }
 
-  public StreamEncoder( List<ColumnSpec> columns, PipedInputStream inputStream ) throws IOException {
+  public StreamEncoder( List<ColumnSpec> columns, ByteBufferRing ring ) throws IOException {
+    this( columns, ring, DEFAULT_BUFFER_SIZE );
+  }
+
+  /**
+   * @param columns    the target columns
+   * @param ring       the ring the filled buffers are published to
+   * @param bufferSize the byte budget of a buffer, never smaller than {@link #MINIMUM_BUFFER_SIZE}. Rows that do not
+   *                   fit into an empty buffer are written into buffers of their own.
+   */
+  public StreamEncoder( List<ColumnSpec> columns, ByteBufferRing ring, int bufferSize ) throws IOException {
     this.columns = Collections.unmodifiableList( columns );
     this.columnCount = this.columns.size();
-    this.rowNulls = new BitSet( this.columnCount );
+    this.columnFailures = new AtomicLongArray( columnCount );
+    this.rowEncoder = new RowEncoder( this.columns, false, columnFailures );
 
     this.charset = Charset.forName( "UTF-8" );
 
-    CharBuffer charBuffer = CharBuffer.allocate( MAX_CHAR_LENGTH );
-    CharsetEncoder charEncoder = charset.newEncoder();
-
-    this.pipedOutputStream = new PipedOutputStream( inputStream );
-    this.channel = Channels.newChannel( pipedOutputStream );
-
-    this.rowMaxSize = 4 + this.rowNulls.numBytes();
-
-    for ( ColumnSpec column : columns ) {
-      switch ( column.type ) {
-        case VARBINARY:
-          this.rowMaxSize += 4; // consider data size bytes for variable length field
-          break;
-        case VARCHAR:
-          this.rowMaxSize += 4; // consider data size bytes for variable length field
-        case NUMERIC:
-        case CHAR:
-          column.setCharBuffer( charBuffer );
-          column.setCharEncoder( charEncoder );
-          break;
-        default:
-          break;
-      }
-      this.rowMaxSize += column.getMaxLength();
-    }
+    this.ring = ring;
 
-    this.buffer = ByteBuffer.allocate( countMainByteBufferSize() );
-    this.buffer.order( ByteOrder.LITTLE_ENDIAN );
-    this.buffer.clear();
+    this.rowMinSize = 4 + this.rowEncoder.nullBytes();
 
     for ( ColumnSpec column : columns ) {
-      column.setMainBuffer( buffer );
+      // the data size of a variable length value, the value itself for the others
+      this.rowMinSize += column.bytes < 0 ? 4 : column.bytes;
     }
-  }
 
-  /**
-   * For junit test purpose
-   * 
-   * @return the rowMaxSize
-   */
-  int countMainByteBufferSize() {
-    long bufferSize = (long) getRowMaxSize() * NUM_ROWS_TO_BUFFER;
-    return (int) ( bufferSize > 0 && bufferSize < MAXIMUM_BUFFER_SIZE ? bufferSize : MAXIMUM_BUFFER_SIZE );
+    this.bufferSize = Math.max( bufferSize, MINIMUM_BUFFER_SIZE );
+    nextBuffer();
   }
 
   public void writeHeader() throws IOException {
@@ -138,134 +128,341 @@ public class StreamEncoder {
 
   }
 
+  /**
+   * Writes a row and tells the listener, if any, what became of it. A row that cannot be encoded is reported to the
+   * listener instead of failing the call.
+   *
+   * @param rowMeta metadata of the row
+   * @param row     the row, <tt>null</tt> to flush the last rows and close the stream
+   * @param tag     handed back to the listener with the outcome of the row
+   */
+  public void writeRow( RowMetaInterface rowMeta, Object[] row, Object tag ) throws IOException, KettleException {
+    writeRow( rowMeta, row, null, tag );
+  }
+
+  /**
+   * Writes the values of a row picked by a field map, without copying them into a row of their own, and tells the
+   * listener what became of it, see {@link #writeRow(RowMetaInterface, Object[], Object)}.
+   *
+   * @param rowMeta metadata of the row
+   * @param row     the row, <tt>null</tt> to flush the last rows and close the stream
+   * @param fields  position in the row of the value of each column, <tt>null</tt> when the columns are the first values
+   *                of the row. The encoder keeps the writers compiled for the same metadata and map, so both should be
+   *                the same objects from one row to the next.
+   * @param tag     handed back to the listener with the outcome of the row
+   */
+  public void writeRow( RowMetaInterface rowMeta, Object[] row, int[] fields, Object tag )
+    throws IOException, KettleException {
+    try {
+      writeFields( rowMeta, row, fields );
+    } catch ( KettleValueException ex ) {
+      if ( listener == null ) {
+        throw ex;
+      }
+      listener.rowRejected( tag, ex );
+      return;
+    }
+    if ( listener != null && row != null ) {
+      listener.rowEncoded( tag );
+    }
+  }
+
   public void writeRow( RowMetaInterface rowMeta, Object[] row ) throws IOException, KettleValueException {
+    writeFields( rowMeta, row, null );
+  }
+
+  private void writeFields( RowMetaInterface rowMeta, Object[] row, int[] fields )
+    throws IOException, KettleValueException {
     if ( row == null ) {
       flushAndClose();
       return;
-    } else if ( row.length < columnCount ) {
-      throw new IllegalArgumentException( "Invalid incoming row for given column spec." );
     }
+    checkRow( row, fields );
+    encodeRow( rowMeta, row, fields );
+  }
 
-    rowNulls.clear();
-    checkAndFlushBuffer();
+  /**
+   * Checks that a row holds a value for every column, when it is written without a field map.
+   */
+  final void checkRow( Object[] row, int[] fields ) {
+    if ( fields == null && row.length < columnCount ) {
+      throw new IllegalArgumentException( "Invalid incoming row for given column spec." );
+    }
+  }
 
-    int rowDataSize = 0;
+  /**
+   * Encodes a row into the current buffer, or into buffers of its own when it does not fit. The buffer is flushed
+   * beforehand when the largest recent row would not fit, so a row only overflows it when it is larger than that.
+   *
+   * @param fields position in the row of the value of each column, <tt>null</tt> for the first values of the row
+   */
+  final void encodeRow( RowMetaInterface rowMeta, Object[] row, int[] fields )
+    throws IOException, KettleValueException {
+    ColumnWriter[] writers = rowEncoder.prepare( rowMeta, fields );
 
-    // record the start of this row so we can come back and update the size and nulls
-    int rowDataSizeFieldPosition = buffer.position();
-    // Marking the original position, in case we need to reset
-    buffer.mark();
-    buffer.putInt( rowDataSize );
-    int rowNullsFieldPosition = buffer.position();
-    rowNulls.writeBytesTo( buffer );
+    checkAndFlushBuffer();
 
+    int rowStart = buffer.position();
     try {
-      for ( int i = 0; i < columnCount; i++ ) {
-        ColumnSpec colSpec = columns.get( i );
-        Object value = row[ i ];
-        ValueMetaInterface valueMeta = rowMeta.getValueMeta( i );
-
-        if ( value == null ) {
-          rowNulls.setBit( i );
-        } else {
-          colSpec.encode( valueMeta, value );
-          rowDataSize += colSpec.bytes;
+      rowEncoder.encode( buffer, writers, fields, row );
+      rowBuffered( buffer.position() - rowStart );
+    } catch ( BufferOverflowException ex ) {
+      // the row is larger than the space left: retry in an empty buffer, then in a dedicated one
+      buffer.position( rowStart );
+      if ( rowStart > 0 ) {
+        flushBuffer();
+        try {
+          rowEncoder.encode( buffer, writers, fields, row );
+          rowBuffered( buffer.position() );
+        } catch ( BufferOverflowException ex2 ) {
+          buffer.position( 0 );
+          writeOversizedRow( writers, fields, row );
         }
+      } else {
+        writeOversizedRow( writers, fields, row );
+      }
+    }
+  }
+
+  /**
+   * Encodes a row that does not fit into an empty buffer into a buffer of its own. That buffer is not recycled by the
+   * ring, so the occasional huge row does not make all the buffers grow.
+   *
+   * @throws KettleValueException if the row does not fit into the largest buffer either, the row is rejected then
+   */
+  private void writeOversizedRow( ColumnWriter[] writers, int[] fields, Object[] row )
+    throws IOException, KettleValueException {
+    long size = (long) bufferSize * 2;
+    while ( true ) {
+      ByteBuffer oversized = ByteBuffer.allocate( (int) Math.min( size, maximumRowSize ) );
+      oversized.order( ByteOrder.LITTLE_ENDIAN );
+      try {
+        rowEncoder.encode( oversized, writers, fields, row );
+        oversized.flip();
+        ring.publish( oversized );
+        return;
+      } catch ( BufferOverflowException ex ) {
+        if ( size >= maximumRowSize ) {
+          throw rowTooLarge( maximumRowSize );
+        }
+        size *= 2;
       }
-    } catch ( KettleValueException ex ) {
-      //restore the buffer before the row
-      buffer.reset();
-      throw ex;
     }
+  }
 
-    // Now fill in the row header
-    buffer.putInt( rowDataSizeFieldPosition, rowDataSize );
-    rowNulls.writeBytesTo( rowNullsFieldPosition, buffer );
+  /**
+   * @return the failure of a row larger than the given size, which the listener rejects like a value that cannot be
+   * encoded
+   */
+  static KettleValueException rowTooLarge( int maximumRowSize ) {
+    return new KettleValueException( "Row larger than " + maximumRowSize + " bytes, the largest NATIVE row supported" );
+  }
+
+  /**
+   * Hands all the rows written so far over to the ring.
+   */
+  public void flush() throws IOException, KettleException {
+    flushBuffer();
+  }
+
+  /**
+   * Releases what the encoder holds when the load stops before the end of the rows, e.g. on a failure. The rows not
+   * handed over yet are dropped.
+   */
+  public void abort() {
+    // nothing to release, the buffers belong to the ring
+  }
+
+  /**
+   * Ends the NATIVE stream written so far and starts a new one, with a header of its own, for the next COPY statement.
+   * See {@link ByteBufferRing#endChunk()}.
+   */
+  public void endChunk() throws IOException, KettleException {
+    flush();
+    ring.endChunk();
+    startChunk();
+  }
+
+  /**
+   * Writes the header of a new chunk, into a new buffer if the current one was taken.
+   */
+  void startChunk() throws IOException {
+    ensureBuffer();
+    writeHeader();
+  }
+
+  /**
+   * Takes a buffer from the ring if the current one was taken.
+   */
+  void ensureBuffer() throws IOException {
+    if ( buffer == null ) {
+      nextBuffer();
+    }
   }
 
   private void flushAndClose() throws IOException {
     flushBuffer();
-    channel.close();
-    pipedOutputStream.flush();
-    pipedOutputStream.close();
+    ring.close();
   }
 
-  private void checkAndFlushBuffer() throws IOException {
-    if ( buffer.position() + rowMaxSize > buffer.capacity() ) {
+  /**
+   * Flushes the buffer when the largest recent row would not fit into the space left, see {@link #flushThreshold}. Rows
+   * are usually much smaller than the maximum row size, so this fills the buffers far better than reserving the worst
+   * case.
+   */
+  void checkAndFlushBuffer() throws IOException {
+    if ( buffer.remaining() < flushThreshold ) {
       flushBuffer();
     }
   }
 
-  private void flushBuffer() throws IOException {
-    buffer.flip();
-    channel.write( buffer );
-    buffer.clear();
+  private void rowBuffered( int rowSize ) {
+    flushThreshold = Math.max( rowSize, flushThreshold - ( flushThreshold >> 10 ) );
+  }
+
+  /**
+   * Takes rows encoded by a subclass into shared buffers of its own into account in the flush threshold, as if they
+   * were buffered one by one.
+   *
+   * @param largestRowSize the size of the largest of the rows, in bytes
+   */
+  void rowsBuffered( int rows, int largestRowSize ) {
+    int decayed = (int) ( flushThreshold * Math.pow( 1 - 1.0 / 1024, rows ) );
+    flushThreshold = Math.max( largestRowSize, decayed );
   }
 
-  private class BitSet {
-    private byte[] bytes;
-    private boolean dirty = false;
-    private int numBits;
-    private int numBytes;
+  /**
+   * @return the size of the largest recent row written into a shared buffer, 0 before the first one
+   */
+  int getFlushThreshold() {
+    return flushThreshold;
+  }
 
-    private BitSet( int numBits ) {
-      this.numBits = numBits;
-      this.numBytes = (int) Math.ceil( (double) numBits / 8.0d );
-      bytes = new byte[this.numBytes];
+  void flushBuffer() throws IOException {
+    if ( buffer.position() == 0 ) {
+      return;
     }
+    buffer.flip();
+    ring.publish( buffer );
+    nextBuffer();
+  }
 
-    /**
-     * Sets the bit in the BitSet to 1. The first column (index 0) bit is the msb.
-     * 
-     * @param bitIndex
-     *          bit index (first bit index is 0)
-     */
-    private void setBit( int bitIndex ) {
-      if ( bitIndex < 0 || bitIndex >= numBits ) {
-        throw new IllegalArgumentException( "Invalid bit index" );
-      }
-
-      int byteIdx = (int) Math.floor( (double) bitIndex / 8.0d );
+  /**
+   * Takes the next empty buffer from the ring, waiting for the COPY worker to drain one if they are all in flight.
+   */
+  private void nextBuffer() throws IOException {
+    buffer = ring.acquire( bufferSize );
+    buffer.order( ByteOrder.LITTLE_ENDIAN );
+  }
 
-      int bitIdx = bitIndex - ( byteIdx * 8 );
-      bytes[byteIdx] |= ( 1 << ( 7 - bitIdx ) );
+  /**
+   * Hands the current buffer over to the caller, which becomes responsible for publishing it.
+   */
+  ByteBuffer takeBuffer() {
+    ByteBuffer taken = buffer;
+    buffer = null;
+    return taken;
+  }
 
-      dirty = true;
-    }
+  int getColumnCount() {
+    return columnCount;
+  }
 
-    private void clear() {
-      if ( dirty ) {
-        for ( int i = 0; i < numBytes; i++ ) {
-          bytes[i] = BYTE_ZERO;
-        }
-        dirty = false;
-      }
-    }
+  /**
+   * @return the size of the null bitmap of a row, in bytes
+   */
+  int getNullBytes() {
+    return rowEncoder.nullBytes();
+  }
 
-    private int numBytes() {
-      return bytes.length;
-    }
+  /**
+   * Adds rows written into the buffer by a subclass to the statistics of the encoder.
+   */
+  void countRows( int rows, int rowSize ) {
+    rowEncoder.countRows( rows, rowSize );
+    rowBuffered( rowSize );
+  }
 
-    private void writeBytesTo( ByteBuffer buf ) {
-      buf.put( bytes );
-    }
+  public void setListener( RowHandoffListener listener ) {
+    this.listener = listener;
+  }
 
-    private void writeBytesTo( int index, ByteBuffer buf ) {
-      for ( int i = 0; i < bytes.length; i++ ) {
-        buf.put( index + i, bytes[i] );
-      }
-    }
+  public RowHandoffListener getListener() {
+    return listener;
   }
 
   public ByteBuffer getBuffer() {
     return this.buffer;
   }
 
-  /**For junit test purpose
-   * @return the rowMaxSize
+  /**
+   * @return the size of a row of the smallest values, nulls aside, in bytes
+   */
+  int getRowMinSize() {
+    return rowMinSize;
+  }
+
+  /**
+   * @return the number of rows of the smallest size a buffer holds, at least 1
+   */
+  int getRowsPerBuffer() {
+    return Math.max( 1, bufferSize / rowMinSize );
+  }
+
+  /**
+   * For junit test purpose
+   *
+   * @param maximumRowSize size of the largest row accepted, {@link #MAXIMUM_BUFFER_SIZE} by default
+   */
+  void setMaximumRowSize( int maximumRowSize ) {
+    this.maximumRowSize = maximumRowSize;
+  }
+
+  int getMaximumRowSize() {
+    return maximumRowSize;
+  }
+
+  /**
+   * @return the size of the buffers, in bytes
+   */
+  public int getBufferSize() {
+    return bufferSize;
+  }
+
+  /**
+   * @return the size of the largest row encoded so far, in bytes
+   */
+  public int getLargestRowSize() {
+    return rowEncoder.getLargestRowSize();
+  }
+
+  /**
+   * @param column position of the column
+   * @return the number of values of the column that could not be encoded so far
+   */
+  public long getColumnFailures( int column ) {
+    return columnFailures.get( column );
+  }
+
+  /**
+   * @return the average size of the rows encoded so far, in bytes
+   */
+  public double getAverageRowSize() {
+    return rowEncoder.getRowCount() == 0 ? 0 : (double) rowEncoder.getEncodedBytes() / rowEncoder.getRowCount();
+  }
+
+  /**
+   * @return the number of rows encoded on the writing thread so far
+   */
+  long getRowCount() {
+    return rowEncoder.getRowCount();
+  }
+
+  /**
+   * @return the bytes of the rows encoded on the writing thread so far
    */
-  int getRowMaxSize() {
-    return rowMaxSize;
+  long getEncodedBytes() {
+    return rowEncoder.getEncodedBytes();
   }
 
 }
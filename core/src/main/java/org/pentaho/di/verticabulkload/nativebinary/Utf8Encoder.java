@@ -0,0 +1,127 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 - 2026 by Pentaho Canada Inc. : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2030-06-15
+ ******************************************************************************/
+
+
+
+package org.pentaho.di.verticabulkload.nativebinary;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.pentaho.di.core.exception.KettleValueException;
+
+/**
+ * Encodes strings as UTF-8 straight into the backing array of a buffer, without an intermediate <tt>CharBuffer</tt> or
+ * <tt>CharsetEncoder</tt>. ASCII characters, the common case, are copied one byte per char in a tight loop; the rest of
+ * the string is encoded by hand once the first non-ASCII character is met.
+ * <p>
+ * Unpaired surrogates are replaced with <tt>'?'</tt>, like {@link String#getBytes(java.nio.charset.Charset)} does.
+ * </p>
+ */
+final class Utf8Encoder {
+
+  private static final byte REPLACEMENT = (byte) '?';
+
+  private Utf8Encoder() {
+  }
+
+  /**
+   * Writes the UTF-8 bytes of a string at the current position of the buffer.
+   *
+   * @param buffer   buffer to write to
+   * @param string   string to encode
+   * @param maxBytes maximum encoded length allowed by the target column, not checked if not positive
+   * @return the number of bytes written
+   * @throws KettleValueException     if the encoded string is longer than <tt>maxBytes</tt>, nothing is written then
+   * @throws BufferOverflowException if the buffer is too small, nothing is written then
+   */
+  static int encode( ByteBuffer buffer, String string, int maxBytes ) throws KettleValueException {
+    int length = string.length();
+    if ( maxBytes > 0 && length > maxBytes ) {
+      // every char takes at least a byte
+      throw tooLong( length, maxBytes );
+    }
+    if ( !buffer.hasArray() ) {
+      byte[] bytes = string.getBytes( StandardCharsets.UTF_8 );
+      checkLength( bytes.length, maxBytes );
+      buffer.put( bytes );
+      return bytes.length;
+    }
+
+    byte[] array = buffer.array();
+    int start = buffer.arrayOffset() + buffer.position();
+    int limit = buffer.arrayOffset() + buffer.limit();
+    int pos = start;
+
+    int i = 0;
+    if ( limit - start >= length ) {
+      for ( ; i < length; i++ ) {
+        char c = string.charAt( i );
+        if ( c >= 0x80 ) {
+          break;
+        }
+        array[ pos++ ] = (byte) c;
+      }
+    }
+
+    for ( ; i < length; i++ ) {
+      char c = string.charAt( i );
+      if ( c < 0x80 ) {
+        checkRemaining( pos, 1, limit );
+        array[ pos++ ] = (byte) c;
+      } else if ( c < 0x800 ) {
+        checkRemaining( pos, 2, limit );
+        array[ pos++ ] = (byte) ( 0xC0 | ( c >> 6 ) );
+        array[ pos++ ] = (byte) ( 0x80 | ( c & 0x3F ) );
+      } else if ( Character.isHighSurrogate( c ) && i + 1 < length
+        && Character.isLowSurrogate( string.charAt( i + 1 ) ) ) {
+        int codePoint = Character.toCodePoint( c, string.charAt( ++i ) );
+        checkRemaining( pos, 4, limit );
+        array[ pos++ ] = (byte) ( 0xF0 | ( codePoint >> 18 ) );
+        array[ pos++ ] = (byte) ( 0x80 | ( ( codePoint >> 12 ) & 0x3F ) );
+        array[ pos++ ] = (byte) ( 0x80 | ( ( codePoint >> 6 ) & 0x3F ) );
+        array[ pos++ ] = (byte) ( 0x80 | ( codePoint & 0x3F ) );
+      } else if ( Character.isSurrogate( c ) ) {
+        checkRemaining( pos, 1, limit );
+        array[ pos++ ] = REPLACEMENT;
+      } else {
+        checkRemaining( pos, 3, limit );
+        array[ pos++ ] = (byte) ( 0xE0 | ( c >> 12 ) );
+        array[ pos++ ] = (byte) ( 0x80 | ( ( c >> 6 ) & 0x3F ) );
+        array[ pos++ ] = (byte) ( 0x80 | ( c & 0x3F ) );
+      }
+    }
+
+    int written = pos - start;
+    checkLength( written, maxBytes );
+    buffer.position( buffer.position() + written );
+    return written;
+  }
+
+  private static void checkRemaining( int pos, int needed, int limit ) {
+    if ( limit - pos < needed ) {
+      throw new BufferOverflowException();
+    }
+  }
+
+  private static void checkLength( int written, int maxBytes ) throws KettleValueException {
+    if ( maxBytes > 0 && written > maxBytes ) {
+      throw tooLong( written, maxBytes );
+    }
+  }
+
+  private static KettleValueException tooLong( int length, int maxBytes ) {
+    return new KettleValueException( "Value of at least " + length + " bytes exceeds the column length of " + maxBytes
+      + " bytes" );
+  }
+}
@@ -0,0 +1,115 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 - 2026 by Pentaho Canada Inc. : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2030-06-15
+ ******************************************************************************/
+
+
+
+package org.pentaho.di.verticabulkload.nativebinary;
+
+import java.time.Instant;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Arrays;
+import java.util.TimeZone;
+
+/**
+ * The UTC offsets of a time zone between 1900 and 2100, precomputed from its transitions so that converting an instant
+ * to local time is a binary search instead of a <tt>Calendar</tt> computation.
+ * <p>
+ * The offsets are taken from {@link TimeZone#getOffset(long)}, i.e. they are the ones a <tt>GregorianCalendar</tt> in
+ * that zone would use. Instants outside of the table are not covered, callers have to fall back to a calendar for them.
+ * </p>
+ */
+public final class ZoneOffsetTable {
+
+  /**
+   * 1900-01-01T00:00:00Z
+   */
+  static final long MIN_MILLIS = -2208988800000L;
+
+  /**
+   * 2100-01-01T00:00:00Z
+   */
+  static final long MAX_MILLIS = 4102444800000L;
+
+  private static volatile ZoneOffsetTable defaultZoneTable;
+
+  private final TimeZone timeZone;
+  private final long[] transitions;
+  private final int[] offsets;
+
+  public ZoneOffsetTable( TimeZone timeZone ) {
+    this.timeZone = timeZone;
+
+    long[] instants = new long[ 16 ];
+    int count = 0;
+    instants[ count++ ] = MIN_MILLIS;
+
+    ZoneRules rules = timeZone.toZoneId().getRules();
+    ZoneOffsetTransition transition = rules.nextTransition( Instant.ofEpochMilli( MIN_MILLIS ) );
+    while ( transition != null && transition.getInstant().toEpochMilli() < MAX_MILLIS ) {
+      if ( count == instants.length ) {
+        instants = Arrays.copyOf( instants, count * 2 );
+      }
+      instants[ count++ ] = transition.getInstant().toEpochMilli();
+      transition = rules.nextTransition( transition.getInstant() );
+    }
+
+    this.transitions = Arrays.copyOf( instants, count );
+    this.offsets = new int[ count ];
+    for ( int i = 0; i < count; i++ ) {
+      offsets[ i ] = timeZone.getOffset( transitions[ i ] );
+    }
+  }
+
+  /**
+   * Returns the table of the current default time zone, the one a <tt>new GregorianCalendar()</tt> would use.
+   */
+  public static ZoneOffsetTable forDefaultZone() {
+    TimeZone timeZone = TimeZone.getDefault();
+    ZoneOffsetTable table = defaultZoneTable;
+    if ( table == null || !table.timeZone.getID().equals( timeZone.getID() )
+      || !table.timeZone.hasSameRules( timeZone ) ) {
+      table = new ZoneOffsetTable( timeZone );
+      defaultZoneTable = table;
+    }
+    return table;
+  }
+
+  /**
+   * @return <tt>true</tt> if the table knows the offset at the given instant
+   */
+  public boolean covers( long utcMillis ) {
+    return utcMillis >= MIN_MILLIS && utcMillis < MAX_MILLIS;
+  }
+
+  /**
+   * Returns the offset from UTC at the given instant, in milliseconds.
+   */
+  public int getOffset( long utcMillis ) {
+    if ( !covers( utcMillis ) ) {
+      return timeZone.getOffset( utcMillis );
+    }
+    int index = Arrays.binarySearch( transitions, utcMillis );
+    return offsets[ index >= 0 ? index : -index - 2 ];
+  }
+
+  /**
+   * Returns the local wall-clock time of the given instant, expressed as milliseconds since 1970-01-01T00:00:00 local.
+   */
+  public long toLocalMillis( long utcMillis ) {
+    return utcMillis + getOffset( utcMillis );
+  }
+
+  public TimeZone getTimeZone() {
+    return timeZone;
+  }
+}
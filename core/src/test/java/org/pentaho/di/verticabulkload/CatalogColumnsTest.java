@@ -0,0 +1,101 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 - 2026 by Pentaho Canada Inc. : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2030-06-15
+ ******************************************************************************/
+
+
+package org.pentaho.di.verticabulkload;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+import org.junit.Test;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.verticabulkload.nativebinary.ColumnSpec;
+import org.pentaho.di.verticabulkload.nativebinary.ColumnType;
+
+public class CatalogColumnsTest {
+
+  @Test
+  public void fixedWidthTypesAreKeptFromTheCatalog() {
+    ColumnSpec code = column( "char(3)", 3, true ).toColumnSpec( new ValueMetaString( "code" ) );
+    assertSame( ColumnType.CHAR, code.type );
+    assertEquals( 3, code.bytes );
+
+    ColumnSpec hash = column( "binary(16)", 16, true ).toColumnSpec( new ValueMetaString( "hash" ) );
+    assertSame( ColumnType.BINARY, hash.type );
+
+    ColumnSpec id = column( "uuid", 16, false ).toColumnSpec( new ValueMetaString( "id" ) );
+    assertSame( ColumnType.UUID, id.type );
+    assertFalse( id.isNullable() );
+
+    ColumnSpec months = column( "interval year to month", 8, true ).toColumnSpec( new ValueMetaInteger( "months" ) );
+    assertSame( ColumnType.INTERVAL, months.type );
+    assertTrue( months.isNullable() );
+  }
+
+  @Test
+  public void longTypesAreVariableWidth() {
+    ColumnSpec text = column( "long varchar(1048576)", 1048576, true ).toColumnSpec( new ValueMetaString( "t" ) );
+    assertSame( ColumnType.VARCHAR, text.type );
+    assertEquals( 1048576, text.getMaxLength() );
+  }
+
+  @Test
+  public void temporalColumnsNeedADateField() {
+    try {
+      column( "timestamp", 8, true ).toColumnSpec( new ValueMetaString( "ts" ) );
+      fail( "A timestamp column accepted a String field" );
+    } catch ( IllegalArgumentException e ) {
+      assertTrue( e.getMessage().contains( "ts" ) );
+    }
+  }
+
+  @Test
+  public void columnsAreReadInOneQueryAndFoundWhateverTheirCase() throws Exception {
+    Connection connection = mock( Connection.class );
+    PreparedStatement statement = mock( PreparedStatement.class );
+    ResultSet rows = mock( ResultSet.class );
+    when( connection.prepareStatement( anyString() ) ).thenReturn( statement );
+    when( statement.executeQuery() ).thenReturn( rows );
+    when( rows.next() ).thenReturn( true, false );
+    when( rows.getString( 1 ) ).thenReturn( "Created" );
+    when( rows.getString( 2 ) ).thenReturn( "timestamptz" );
+    when( rows.getInt( 3 ) ).thenReturn( 8 );
+    when( rows.getBoolean( 6 ) ).thenReturn( false );
+
+    CatalogColumns columns = CatalogColumns.read( connection, "public", "target" );
+
+    verify( statement ).setString( 1, "public" );
+    verify( statement ).setString( 2, "target" );
+    CatalogColumns.Column created = columns.get( "CREATED" );
+    assertEquals( "Created", created.getName() );
+    assertSame( ColumnType.TIMESTAMPTZ, created.toColumnSpec( new ValueMetaDate( "created" ) ).type );
+    assertNull( columns.get( "other" ) );
+  }
+
+  private static CatalogColumns.Column column( String dataType, int length, boolean nullable ) {
+    return new CatalogColumns.Column( "c", dataType, length, 0, 0, nullable );
+  }
+}
@@ -0,0 +1,209 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 - 2026 by Pentaho Canada Inc. : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2030-06-15
+ ******************************************************************************/
+
+
+package org.pentaho.di.verticabulkload;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+
+import com.vertica.jdbc.VerticaCopyStream;
+import org.pentaho.di.verticabulkload.nativebinary.ColumnSpec;
+import org.pentaho.di.verticabulkload.nativebinary.NativeStreamDecoder;
+
+/**
+ * Stands in for a COPY statement loading a NATIVE stream, without a Vertica cluster: it decodes the stream handed to
+ * it and keeps the rows. It can be made slow, reject rows or fail in the middle of the stream.
+ * <p>
+ * Plug it into the step with {@link #asVerticaCopyStream()}, e.g.
+ * <tt>doReturn( copy.asVerticaCopyStream() ).when( loader ).createVerticaCopyStream( any(), anyString() )</tt>.
+ * </p>
+ */
+public class InProcessCopyStream {
+
+  private final List<ColumnSpec> columns;
+  private final List<Object[]> rows = new CopyOnWriteArrayList<>();
+  private final List<Long> rejects = new CopyOnWriteArrayList<>();
+
+  private boolean keepRows = true;
+  private long nanosPerRow;
+  private long failAfterRows = -1;
+  private Predicate<Object[]> rejectIf;
+
+  private volatile InputStream input;
+  private volatile boolean started;
+  private volatile long rowCount;
+  private volatile long loadedCount;
+  private volatile long bytesRead;
+  private volatile long executeNanos;
+
+  /**
+   * @param columns the columns of the COPY, as given to the encoder
+   */
+  public InProcessCopyStream( List<ColumnSpec> columns ) {
+    this.columns = new ArrayList<>( columns );
+  }
+
+  /**
+   * Do not keep the decoded rows, for long runs.
+   */
+  public InProcessCopyStream discardRows() {
+    this.keepRows = false;
+    return this;
+  }
+
+  /**
+   * Spends the given time on every row, like a busy cluster.
+   */
+  public InProcessCopyStream withNanosPerRow( long nanosPerRow ) {
+    this.nanosPerRow = nanosPerRow;
+    return this;
+  }
+
+  /**
+   * Rejects the rows matching the predicate, like values Vertica cannot parse. Their numbers, starting at 1, are
+   * returned by <tt>getRejects()</tt>.
+   */
+  public InProcessCopyStream rejecting( Predicate<Object[]> rejectIf ) {
+    this.rejectIf = rejectIf;
+    return this;
+  }
+
+  /**
+   * Fails <tt>execute()</tt> with a <tt>SQLException</tt> once the given number of rows was read.
+   */
+  public InProcessCopyStream failingAfter( long rows ) {
+    this.failAfterRows = rows;
+    return this;
+  }
+
+  /**
+   * @return a <tt>VerticaCopyStream</tt> delegating to this stand-in
+   */
+  public VerticaCopyStream asVerticaCopyStream() throws SQLException {
+    VerticaCopyStream copyStream = mock( VerticaCopyStream.class );
+    doAnswer( invocation -> {
+      start();
+      return null;
+    } ).when( copyStream ).start();
+    doAnswer( invocation -> {
+      addStream( invocation.getArgument( 0 ) );
+      return null;
+    } ).when( copyStream ).addStream( any( InputStream.class ) );
+    doAnswer( invocation -> {
+      execute();
+      return null;
+    } ).when( copyStream ).execute();
+    doAnswer( invocation -> finish() ).when( copyStream ).finish();
+    doAnswer( invocation -> getRejects() ).when( copyStream ).getRejects();
+    doAnswer( invocation -> getRowCount() ).when( copyStream ).getRowCount();
+    return copyStream;
+  }
+
+  public void start() throws SQLException {
+    if ( started ) {
+      throw new SQLException( "COPY already started" );
+    }
+    started = true;
+  }
+
+  public void addStream( InputStream stream ) throws SQLException {
+    if ( !started ) {
+      throw new SQLException( "COPY not started" );
+    }
+    input = stream;
+  }
+
+  /**
+   * Reads and decodes the whole stream.
+   */
+  public void execute() throws SQLException {
+    if ( input == null ) {
+      throw new SQLException( "No stream to load" );
+    }
+    long startNanos = System.nanoTime();
+    try {
+      NativeStreamDecoder decoder = new NativeStreamDecoder( input, columns );
+      decoder.readHeader();
+      Object[] row;
+      while ( ( row = decoder.readRow() ) != null ) {
+        rowCount++;
+        bytesRead = decoder.getBytesRead();
+        if ( nanosPerRow > 0 ) {
+          LockSupport.parkNanos( nanosPerRow );
+        }
+        if ( failAfterRows >= 0 && rowCount > failAfterRows ) {
+          throw new SQLException( "Simulated failure after " + failAfterRows + " rows" );
+        }
+        if ( rejectIf != null && rejectIf.test( row ) ) {
+          rejects.add( rowCount );
+          continue;
+        }
+        loadedCount++;
+        if ( keepRows ) {
+          rows.add( row );
+        }
+      }
+    } catch ( IOException e ) {
+      throw new SQLException( "Unable to read the stream", e );
+    } finally {
+      executeNanos = System.nanoTime() - startNanos;
+    }
+  }
+
+  /**
+   * @return the number of rows loaded, i.e. read and not rejected
+   */
+  public long finish() {
+    return loadedCount;
+  }
+
+  public List<Long> getRejects() {
+    return rejects;
+  }
+
+  /**
+   * @return the number of rows read from the stream, rejected ones included
+   */
+  public long getRowCount() {
+    return rowCount;
+  }
+
+  /**
+   * @return the rows loaded, in stream order
+   */
+  public List<Object[]> getRows() {
+    return Collections.unmodifiableList( rows );
+  }
+
+  public long getBytesRead() {
+    return bytesRead;
+  }
+
+  /**
+   * @return the time spent in <tt>execute()</tt>
+   */
+  public long getExecuteNanos() {
+    return executeNanos;
+  }
+}
@@ -0,0 +1,91 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 - 2026 by Pentaho Canada Inc. : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2030-06-15
+ ******************************************************************************/
+
+
+package org.pentaho.di.verticabulkload;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.verticabulkload.nativebinary.ByteBufferRing;
+import org.pentaho.di.verticabulkload.nativebinary.ColumnSpec;
+import org.pentaho.di.verticabulkload.nativebinary.StreamEncoder;
+
+public class InProcessCopyStreamTest {
+
+  private List<ColumnSpec> columns;
+  private RowMeta rowMeta;
+
+  @Before
+  public void setUp() {
+    columns = Arrays.asList( new ColumnSpec( ColumnSpec.ConstantWidthType.INTEGER_64 ) );
+    rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+  }
+
+  @Test
+  public void testRowsAreLoadedAndRejectedInStreamOrder() throws Exception {
+    InProcessCopyStream copy = new InProcessCopyStream( columns ).rejecting( row -> (Long) row[ 0 ] % 10 == 0 );
+    load( copy, 100 );
+
+    assertEquals( 100, copy.getRowCount() );
+    assertEquals( 90, copy.finish() );
+    assertEquals( 10, copy.getRejects().size() );
+    assertEquals( Long.valueOf( 1 ), copy.getRejects().get( 0 ) );
+    assertEquals( 1L, copy.getRows().get( 0 )[ 0 ] );
+  }
+
+  @Test
+  public void testFailureInTheMiddleOfTheStream() throws Exception {
+    InProcessCopyStream copy = new InProcessCopyStream( columns ).failingAfter( 40 );
+    try {
+      load( copy, 100 );
+      fail( "The simulated failure should have been thrown" );
+    } catch ( SQLException expected ) {
+      assertEquals( 41, copy.getRowCount() );
+      assertEquals( 40, copy.getRows().size() );
+    }
+  }
+
+  @Test
+  public void testSlowConsumerTakesItsTime() throws Exception {
+    InProcessCopyStream copy = new InProcessCopyStream( columns ).discardRows().withNanosPerRow( 100_000L );
+    load( copy, 100 );
+
+    assertEquals( 100, copy.finish() );
+    assertTrue( copy.getRows().isEmpty() );
+    assertTrue( copy.getExecuteNanos() >= 100 * 100_000L );
+  }
+
+  private void load( InProcessCopyStream copy, int rows ) throws Exception {
+    ByteBufferRing ring = new ByteBufferRing( ByteBufferRing.DEFAULT_DEPTH );
+    StreamEncoder encoder = new StreamEncoder( columns, ring );
+    encoder.writeHeader();
+    for ( long i = 0; i < rows; i++ ) {
+      encoder.writeRow( rowMeta, new Object[] { i } );
+    }
+    encoder.close();
+
+    copy.start();
+    copy.addStream( ring.getInputStream() );
+    copy.execute();
+  }
+}
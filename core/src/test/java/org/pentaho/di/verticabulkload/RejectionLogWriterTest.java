@@ -0,0 +1,104 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 - 2026 by Pentaho Canada Inc. : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2030-06-15
+ ******************************************************************************/
+
+
+package org.pentaho.di.verticabulkload;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RejectionLogWriterTest {
+
+  private File logFile;
+
+  @Before
+  public void setUp() throws IOException {
+    logFile = File.createTempFile( "reject-", "-log" );
+  }
+
+  @After
+  public void tearDown() {
+    logFile.delete();
+  }
+
+  @Test
+  public void testCopiesLoggingToTheSameFileShareOneWriter() throws Exception {
+    final RejectionLogWriter first = RejectionLogWriter.open( logFile.getAbsolutePath() );
+    final RejectionLogWriter second = RejectionLogWriter.open( logFile.getPath() );
+    assertSame( first, second );
+
+    Thread[] copies = new Thread[ 4 ];
+    for ( int c = 0; c < copies.length; c++ ) {
+      final int copy = c;
+      copies[ c ] = new Thread( new Runnable() {
+        @Override
+        public void run() {
+          try {
+            for ( int i = 0; i < 5000; i++ ) {
+              ( copy % 2 == 0 ? first : second ).write( "copy " + copy + " row " + i + System.lineSeparator() );
+            }
+          } catch ( IOException e ) {
+            throw new IllegalStateException( e );
+          }
+        }
+      } );
+      copies[ c ].start();
+    }
+    for ( Thread copy : copies ) {
+      copy.join();
+    }
+    first.close();
+    second.close();
+
+    List<String> lines = Files.readAllLines( logFile.toPath(), Charset.defaultCharset() );
+    assertEquals( 4 * 5000, lines.size() );
+    assertEquals( 4 * 5000, new HashSet<>( lines ).size() );
+  }
+
+  @Test
+  public void testFileIsAppendedToAndReopenedAfterTheLastClose() throws Exception {
+    RejectionLogWriter writer = RejectionLogWriter.open( logFile.getAbsolutePath() );
+    writer.write( "first" + System.lineSeparator() );
+    writer.close();
+
+    RejectionLogWriter reopened = RejectionLogWriter.open( logFile.getAbsolutePath() );
+    reopened.write( "second" + System.lineSeparator() );
+    reopened.close();
+
+    Set<String> lines = new HashSet<>( Files.readAllLines( logFile.toPath(), Charset.defaultCharset() ) );
+    assertEquals( 2, lines.size() );
+  }
+
+  @Test( expected = IOException.class )
+  public void testMissingDirectoryFailsToOpen() throws Exception {
+    RejectionLogWriter.open( new File( logFile.getParentFile(), "missing-dir/log" ).getPath() );
+  }
+
+  @Test
+  public void testStackTracePolicyDefaultsToFull() {
+    assertEquals( RejectionLogWriter.StackTracePolicy.FULL, RejectionLogWriter.StackTracePolicy.fromCode( null ) );
+    assertEquals( RejectionLogWriter.StackTracePolicy.FULL, RejectionLogWriter.StackTracePolicy.fromCode( "bogus" ) );
+    assertEquals( RejectionLogWriter.StackTracePolicy.NONE, RejectionLogWriter.StackTracePolicy.fromCode( " none " ) );
+  }
+}
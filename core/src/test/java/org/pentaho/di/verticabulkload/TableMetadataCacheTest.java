@@ -0,0 +1,103 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 - 2026 by Pentaho Canada Inc. : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2030-06-15
+ ******************************************************************************/
+
+
+package org.pentaho.di.verticabulkload;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+
+public class TableMetadataCacheTest {
+
+  private static final String KEY = TableMetadataCache.key( "vertica@host:5433/db", "\"public\".\"target\"", "fields" );
+
+  private final TableMetadataCache cache = TableMetadataCache.getInstance();
+  private final AtomicInteger loads = new AtomicInteger();
+  private final TableMetadataCache.Loader<RowMetaInterface> loader = new TableMetadataCache.Loader<RowMetaInterface>() {
+    @Override
+    public RowMetaInterface load() throws KettleException {
+      loads.incrementAndGet();
+      RowMeta rowMeta = new RowMeta();
+      rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+      return rowMeta;
+    }
+  };
+
+  @Before
+  @After
+  public void clearCache() {
+    cache.clear();
+  }
+
+  @Test
+  public void columnsAreLoadedOnceWithinTheTimeToLive() throws Exception {
+    RowMetaInterface first = cache.get( KEY, 60000, loader );
+    RowMetaInterface second = cache.get( KEY, 60000, loader );
+
+    assertEquals( 1, loads.get() );
+    assertEquals( "id", second.getValueMeta( 0 ).getName() );
+    assertSame( first, second );
+  }
+
+  @Test
+  public void columnsAreLoadedAgainOnceExpiredOrInvalidated() throws Exception {
+    cache.get( KEY, 60000, loader );
+    cache.invalidate( KEY );
+    cache.get( KEY, 60000, loader );
+    assertEquals( 2, loads.get() );
+
+    Thread.sleep( 20 );
+    cache.get( KEY, 10, loader );
+    assertEquals( 3, loads.get() );
+
+    cache.get( KEY, 0, loader );
+    cache.get( KEY, 0, loader );
+    assertEquals( 5, loads.get() );
+  }
+
+  @Test
+  public void concurrentLookupsShareOneLoad() throws Exception {
+    ExecutorService copies = Executors.newFixedThreadPool( 8 );
+    final CountDownLatch start = new CountDownLatch( 1 );
+    try {
+      Future<?>[] lookups = new Future<?>[ 8 ];
+      for ( int i = 0; i < lookups.length; i++ ) {
+        lookups[ i ] = copies.submit( () -> {
+          start.await();
+          return cache.get( KEY, 60000, loader );
+        } );
+      }
+      start.countDown();
+      for ( Future<?> lookup : lookups ) {
+        lookup.get( 10, TimeUnit.SECONDS );
+      }
+    } finally {
+      copies.shutdown();
+    }
+    assertEquals( 1, loads.get() );
+  }
+}
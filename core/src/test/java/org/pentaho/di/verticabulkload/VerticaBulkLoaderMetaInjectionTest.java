@@ -60,6 +60,76 @@ public class VerticaBulkLoaderMetaInjectionTest extends BaseMetadataInjectionTes
           return meta.getStreamName();
         }
       } );
+    check( "BUFFERQUEUEDEPTH", new IntGetter() {
+        public int get() {
+          return meta.getBufferQueueDepth();
+        }
+      } );
+    check( "BUFFERSIZE", new IntGetter() {
+        public int get() {
+          return meta.getBufferSize();
+        }
+      } );
+    check( "PARALLELSTREAMS", new IntGetter() {
+        public int get() {
+          return meta.getParallelStreams();
+        }
+      } );
+    check( "DISTRIBUTIONFIELDS", new StringGetter() {
+        public String get() {
+          return meta.getDistributionFields();
+        }
+      } );
+    check( "SPREADACROSSNODES", new BooleanGetter() {
+        public boolean get() {
+          return meta.isSpreadAcrossNodes();
+        }
+      } );
+    check( "ENCODERTHREADS", new IntGetter() {
+        public int get() {
+          return meta.getEncoderThreads();
+        }
+      } );
+    check( "STACKTRACEPOLICY", new StringGetter() {
+        public String get() {
+          return meta.getStackTracePolicy();
+        }
+      } );
+    check( "CHUNKROWS", new LongGetter() {
+        public long get() {
+          return meta.getChunkRows();
+        }
+      } );
+    check( "CHUNKBYTES", new LongGetter() {
+        public long get() {
+          return meta.getChunkBytes();
+        }
+      } );
+    check( "COMMITLATENCY", new LongGetter() {
+        public long get() {
+          return meta.getCommitLatency();
+        }
+      } );
+    check( "STAGINGDIRECTORY", new StringGetter() {
+        public String get() {
+          return meta.getStagingDirectory();
+        }
+      } );
+    check( "STAGINGFILEBYTES", new LongGetter() {
+        public long get() {
+          return meta.getStagingFileBytes();
+        }
+      } );
+    check( "COMPRESSION", new StringGetter() {
+        public String get() {
+          return meta.getCompression();
+        }
+      } );
+    check( "COLUMNARENCODING", new BooleanGetter() {
+        public boolean get() {
+          return meta.isColumnarEncoding();
+        }
+      } );
     check( "FIELDSTREAM", new StringGetter() {
         public String get() {
           return meta.getFieldStream()[0];
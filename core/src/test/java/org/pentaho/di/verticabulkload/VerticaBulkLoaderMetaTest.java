@@ -13,12 +13,24 @@
 
 package org.pentaho.di.verticabulkload;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.Test;
 import org.mockito.Mockito;
+import org.pentaho.di.core.CheckResultInterface;
+import org.pentaho.di.core.database.Database;
+import org.pentaho.di.core.database.DatabaseMeta;
+import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepErrorMeta;
+import org.pentaho.di.trans.step.StepMeta;
 
 import static org.junit.Assert.fail;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 public class VerticaBulkLoaderMetaTest {
   @Test
@@ -46,6 +58,23 @@ public class VerticaBulkLoaderMetaTest {
     assertEquals( "s6", verticaBulkLoaderMeta.getStreamFields().get( 2 ) );
   }
 
+  @Test
+  public void testMissingTableIsReportedAsSuch() throws Exception {
+    VerticaBulkLoaderMeta vbl = new VerticaBulkLoaderMeta();
+    vbl.setDatabaseMeta( Mockito.mock( DatabaseMeta.class ) );
+    vbl.setTablename( "missing" );
+    Database db = Mockito.mock( Database.class );
+    Mockito.when( db.checkTableExists( Mockito.any() ) ).thenReturn( false );
+
+    try {
+      vbl.getTableRowMetaInterface( db );
+      fail( "A missing table must fail" );
+    } catch ( KettleException e ) {
+      assertNull( e.getCause() );
+      assertTrue( e.getMessage().contains( "table couldn't be found" ) );
+    }
+  }
+
   @Test
   public void testGetXml() throws Exception {
     VerticaBulkLoaderMeta vbl = new VerticaBulkLoaderMeta();
@@ -67,4 +96,88 @@ public class VerticaBulkLoaderMetaTest {
 
     assertEquals( targetSz, vbl.getFieldStream().length );
   }
+
+  @Test
+  public void testColumnarEncodingOnSeveralThreadsIsReportedAsAnError() {
+    VerticaBulkLoaderMeta vbl = new VerticaBulkLoaderMeta();
+    vbl.setDefault();
+    vbl.setColumnarEncoding( true );
+    TransMeta transMeta = new TransMeta();
+    StepMeta stepMeta = new StepMeta( "VerticaBulkLoader", "loader", vbl );
+    List<CheckResultInterface> remarks = new ArrayList<>();
+    vbl.checkLoadOptions( remarks, transMeta, stepMeta );
+    assertTrue( remarks.isEmpty() );
+
+    vbl.setEncoderThreads( 2 );
+    vbl.checkLoadOptions( remarks, transMeta, stepMeta );
+    assertEquals( 1, remarks.size() );
+    assertEquals( CheckResultInterface.TYPE_RESULT_ERROR, remarks.get( 0 ).getType() );
+  }
+
+  @Test
+  public void testVerticaRejectsOnTheErrorHopNeedChunkRows() {
+    VerticaBulkLoaderMeta vbl = new VerticaBulkLoaderMeta();
+    vbl.setDefault();
+    vbl.setAbortOnError( false );
+    TransMeta transMeta = new TransMeta();
+    StepMeta stepMeta = new StepMeta( "VerticaBulkLoader", "loader", vbl );
+    StepErrorMeta errorMeta = new StepErrorMeta( transMeta, stepMeta );
+    errorMeta.setEnabled( true );
+    stepMeta.setStepErrorMeta( errorMeta );
+
+    List<CheckResultInterface> remarks = new ArrayList<>();
+    vbl.checkLoadOptions( remarks, transMeta, stepMeta );
+    assertEquals( 1, remarks.size() );
+    assertEquals( CheckResultInterface.TYPE_RESULT_ERROR, remarks.get( 0 ).getType() );
+
+    remarks.clear();
+    vbl.setChunkRows( 10000 );
+    vbl.checkLoadOptions( remarks, transMeta, stepMeta );
+    assertTrue( remarks.isEmpty() );
+
+    // the rows rejected from staged files are not known
+    vbl.setStagingDirectory( "/tmp/staging" );
+    vbl.checkLoadOptions( remarks, transMeta, stepMeta );
+    assertEquals( 1, remarks.size() );
+  }
+
+  @Test
+  public void testParallelStreamsWithUniqueConnectionsAreReportedAsAnError() {
+    VerticaBulkLoaderMeta vbl = new VerticaBulkLoaderMeta();
+    vbl.setDefault();
+    vbl.setParallelStreams( 2 );
+    TransMeta transMeta = new TransMeta();
+    StepMeta stepMeta = new StepMeta( "VerticaBulkLoader", "loader", vbl );
+    List<CheckResultInterface> remarks = new ArrayList<>();
+    vbl.checkLoadOptions( remarks, transMeta, stepMeta );
+    assertTrue( remarks.isEmpty() );
+
+    // the streams after the first would not be part of the transaction of the transformation
+    transMeta.setUsingUniqueConnections( true );
+    vbl.checkLoadOptions( remarks, transMeta, stepMeta );
+    assertEquals( 1, remarks.size() );
+    assertEquals( CheckResultInterface.TYPE_RESULT_ERROR, remarks.get( 0 ).getType() );
+  }
+
+  @Test
+  public void testCompressionOfStagedFilesIsReportedAsAnError() {
+    VerticaBulkLoaderMeta vbl = new VerticaBulkLoaderMeta();
+    vbl.setDefault();
+    vbl.setCompression( "GZIP" );
+    TransMeta transMeta = new TransMeta();
+    StepMeta stepMeta = new StepMeta( "VerticaBulkLoader", "loader", vbl );
+    List<CheckResultInterface> remarks = new ArrayList<>();
+    vbl.checkLoadOptions( remarks, transMeta, stepMeta );
+    assertTrue( remarks.isEmpty() );
+
+    vbl.setStagingDirectory( "/tmp/staging" );
+    vbl.checkLoadOptions( remarks, transMeta, stepMeta );
+    assertEquals( 1, remarks.size() );
+    assertEquals( CheckResultInterface.TYPE_RESULT_ERROR, remarks.get( 0 ).getType() );
+
+    remarks.clear();
+    vbl.setCompression( "NONE" );
+    vbl.checkLoadOptions( remarks, transMeta, stepMeta );
+    assertTrue( remarks.isEmpty() );
+  }
 }
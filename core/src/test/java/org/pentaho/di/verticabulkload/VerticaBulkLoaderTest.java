@@ -23,43 +23,74 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.pentaho.di.core.KettleEnvironment;
+import org.pentaho.di.core.database.Database;
 import org.pentaho.di.core.database.DatabaseMeta;
 import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleStepException;
 import org.pentaho.di.core.exception.KettleValueException;
 import org.pentaho.di.core.plugins.PluginRegistry;
 import org.pentaho.di.core.plugins.StepPluginType;
 import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBigNumber;
 import org.pentaho.di.core.row.value.ValueMetaInteger;
 import org.pentaho.di.core.row.value.ValueMetaPluginType;
 import org.pentaho.di.core.row.value.ValueMetaString;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.RowAdapter;
+import org.pentaho.di.trans.step.RowListener;
+import org.pentaho.di.trans.step.StepErrorMeta;
 import org.pentaho.di.trans.step.StepMeta;
 import org.pentaho.di.verticabulkload.nativebinary.ColumnSpec;
 import org.pentaho.di.verticabulkload.nativebinary.StreamEncoder;
 
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.IOException;
-import java.io.PipedInputStream;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.math.BigDecimal;
 import java.nio.BufferOverflowException;
-import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
 import static org.junit.matchers.JUnitMatchers.containsString;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyBoolean;
 import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -70,12 +101,31 @@ public class VerticaBulkLoaderTest {
   private VerticaBulkLoaderMeta loaderMeta;
   private VerticaBulkLoaderData loaderData;
   private VerticaBulkLoader loader;
+  private StepMeta stepMeta;
+  private TransMeta transMeta;
+  private Trans trans;
   private File tempException;
   private File tempRejected;
   private String kettleValueExceptionMsg;
   private KettleValueException kettleValueException;
   private Object[] rowData;
 
+  /**
+   * Enough rows to fill more than one buffer of the smallest size, but no more than the buffer ring holds: the mock
+   * COPY stream of {@link #setUp()} reads nothing
+   */
+  private static final int ROWS_TO_FILL_BUFFERS = 2500;
+  private static final ColumnSpec STRING_COLUMN = new ColumnSpec( ColumnSpec.VariableWidthType.VARCHAR, 15 );
+  private static final ColumnSpec INTEGER_COLUMN = new ColumnSpec( ColumnSpec.ConstantWidthType.INTEGER_64 );
+  /**
+   * Bytes the step thread may allocate however many rows it loads, e.g. while the JIT compiles the methods
+   */
+  private static final long ALLOCATION_ALLOWANCE = 8 * 1024;
+  /**
+   * Bytes handing a buffer over to the COPY worker may allocate, the node of its queue and a wait for a free buffer
+   */
+  private static final long HANDOFF_ALLOCATION_ALLOWANCE = 256;
+
   @BeforeClass
   public static void initEnvironment() throws Exception {
     KettleEnvironment.init();
@@ -91,20 +141,21 @@ public class VerticaBulkLoaderTest {
     PluginRegistry.addPluginType( ValueMetaPluginType.getInstance() );
     PluginRegistry.init( true );
 
+    TableMetadataCache.getInstance().clear();
     loaderData = new VerticaBulkLoaderData();
     loaderMeta = spy( new VerticaBulkLoaderMeta() );
 
     tempException = File.createTempFile( "except-", "-log" );
     tempRejected = File.createTempFile( "reject-", "-log" );
 
-    TransMeta transMeta = new TransMeta();
+    transMeta = new TransMeta();
     transMeta.setName( "loader" );
 
     PluginRegistry pluginRegistry = PluginRegistry.getInstance();
 
     String loaderPid = pluginRegistry.getPluginId( StepPluginType.class, loaderMeta );
-    StepMeta stepMeta = new StepMeta( loaderPid, "loader", loaderMeta );
-    Trans trans = new Trans( transMeta );
+    stepMeta = new StepMeta( loaderPid, "loader", loaderMeta );
+    trans = new Trans( transMeta );
     transMeta.addStep( stepMeta );
     trans.setRunning( true );
 
@@ -116,7 +167,7 @@ public class VerticaBulkLoaderTest {
     loaderMeta.setRejectedDataFileName( tempRejected.getAbsolutePath() );
     loader.init( loaderMeta, loaderData );
 
-    doReturn( mock( VerticaCopyStream.class ) ).when( loader ).createVerticaCopyStream( anyString() );
+    doReturn( mock( VerticaCopyStream.class ) ).when( loader ).createVerticaCopyStream( any( Database.class ), anyString() );
     kettleValueExceptionMsg = "Test Kettle Value Exception";
     kettleValueException = new KettleValueException( kettleValueExceptionMsg, new Exception( "Throwable Exception" ) );
     rowData = new Object[] {"this", "is", "bad", "data" };
@@ -208,20 +259,15 @@ public class VerticaBulkLoaderTest {
     tableMeta.addValueMeta( getValueMetaString( "TestData2", 4 ) );
     tableMeta.addValueMeta( getValueMetaString( "TestData3", 7 ) );
     tableMeta.addValueMeta( getValueMetaString( "TestData4", 8 ) );
-    doReturn( tableMeta ).when( loaderMeta ).getTableRowMetaInterface();
+    doReturn( tableMeta ).when( loaderMeta ).getTableRowMetaInterface( any( Database.class ) );
 
+    loaderMeta.setBufferSize( StreamEncoder.MINIMUM_BUFFER_SIZE );
     loader.init( loaderMeta, loaderData );
     when( loader.getRow() ).thenReturn( new String[] { "19 characters------", "4 ch", "7 chara", "8 charac" } );
 
-    doAnswer( invocation -> {
-      List colSpecs = (List) invocation.getArguments()[0];
-      PipedInputStream pipedInputStream = (PipedInputStream) invocation.getArguments()[1];
-      return new MockChannelStreamEncoder( colSpecs, pipedInputStream );
-    } ).when( loader ).createStreamEncoder( any(), any() );
-
     // when
     try {
-      for ( int i = 0; i < StreamEncoder.NUM_ROWS_TO_BUFFER + 1; i++ ) {
+      for ( int i = 0; i < ROWS_TO_FILL_BUFFERS; i++ ) {
         loader.processRow( loaderMeta, loaderData );
       }
     } catch ( BufferOverflowException e ) {
@@ -248,16 +294,10 @@ public class VerticaBulkLoaderTest {
       RowMeta tableMeta = new RowMeta();
       tableMeta.addValueMeta( getValueMetaString( "StringData", 15 ) );
       tableMeta.addValueMeta( getValueMetaInteger( "IntegerData", 15 ) );
-      doReturn( tableMeta ).when( loaderMeta ).getTableRowMetaInterface();
+      doReturn( tableMeta ).when( loaderMeta ).getTableRowMetaInterface( any( Database.class ) );
 
       loader.init( loaderMeta, loaderData );
       when( loader.getRow() ).thenReturn( goodObjectData );
-
-      doAnswer( invocation -> {
-        List colSpecs = (List) invocation.getArguments()[ 0 ];
-        PipedInputStream pipedInputStream = (PipedInputStream) invocation.getArguments()[ 1 ];
-        return new MockChannelStreamEncoder( colSpecs, pipedInputStream );
-      } ).when( loader ).createStreamEncoder( any(), any() );
       // Verify that the good row returns with a true load value
       assertTrue( loader.processRow( loaderMeta, loaderData ) );
 
@@ -289,11 +329,12 @@ public class VerticaBulkLoaderTest {
     try {
       loader.initializeLogFiles();
       loader.writeExceptionRejectionLogs( kettleValueException, rowData );
+      // the entries are written in the background, closing waits for them
+      loader.closeLogFiles();
       BufferedReader exceptReader = new BufferedReader( new FileReader( tempException ) );
       assertTrue( exceptReader.lines().anyMatch( streamLine -> streamLine.contains( kettleValueExceptionMsg ) ) );
       BufferedReader rejectReader = new BufferedReader( new FileReader( tempRejected ) );
       assertTrue( rejectReader.lines().anyMatch( streamLine -> streamLine.contains( rowString ) ) );
-      loader.closeLogFiles();
     } catch ( KettleException | IOException nullIssueException ) {
       fail( "Nulling the Exception/Rejection logs should not throw an Exception: " + nullIssueException );
     }
@@ -378,20 +419,15 @@ public class VerticaBulkLoaderTest {
     tableMeta.addValueMeta( getValueMetaString( "TestData5", 1 ) );
     tableMeta.addValueMeta( getValueMetaString( "TestData6", 1 ) );
     tableMeta.addValueMeta( getValueMetaString( "TestData7", 1 ) );
-    doReturn( tableMeta ).when( loaderMeta ).getTableRowMetaInterface();
+    doReturn( tableMeta ).when( loaderMeta ).getTableRowMetaInterface( any( Database.class ) );
 
+    loaderMeta.setBufferSize( StreamEncoder.MINIMUM_BUFFER_SIZE );
     loader.init( loaderMeta, loaderData );
     when( loader.getRow() ).thenReturn( new String[] { "1", "1", "1", "1", "1", "1", "1" } );
 
-    doAnswer( invocation -> {
-      List colSpecs = (List) invocation.getArguments()[0];
-      PipedInputStream pipedInputStream = (PipedInputStream) invocation.getArguments()[1];
-      return new MockChannelStreamEncoder( colSpecs, pipedInputStream );
-    } ).when( loader ).createStreamEncoder( any(), any() );
-
     // when
     try {
-      for ( int i = 0; i < StreamEncoder.NUM_ROWS_TO_BUFFER + 1; i++ ) {
+      for ( int i = 0; i < ROWS_TO_FILL_BUFFERS; i++ ) {
         loader.processRow( loaderMeta, loaderData );
       }
     } catch ( BufferOverflowException e ) {
@@ -401,10 +437,546 @@ public class VerticaBulkLoaderTest {
     // then no BufferOverflowException should be thrown
   }
 
-  private class MockChannelStreamEncoder extends StreamEncoder {
-    private MockChannelStreamEncoder( List<ColumnSpec> columns, PipedInputStream inputStream ) throws IOException {
-      super( columns, inputStream );
-      channel = mock( WritableByteChannel.class );
+  /**
+   * The rows given to the step are the ones the COPY statement reads from the stream, rejected rows excluded.
+   */
+  @Test
+  public void rowsAreLoadedThroughTheCopyStream() throws Exception {
+    givenStringAndIntegerColumns();
+    List<InProcessCopyStream> copies = stubInProcessCopies( STRING_COLUMN, INTEGER_COLUMN );
+
+    loadAll( new Object[] { "first", 1L }, new Object[] { "bad", "not a number" }, new Object[] { "second", 2L } );
+
+    InProcessCopyStream copy = copies.get( 0 );
+    assertEquals( 2, copy.getRows().size() );
+    assertEquals( "first", copy.getRows().get( 0 )[0] );
+    assertEquals( 2L, copy.getRows().get( 1 )[1] );
+    assertEquals( 2, loaderData.streams.get( 0 ).getRowsLoaded() );
+  }
+
+  @Test
+  public void loadedRowsAreNotPassedOnWhenNothingTakesThem() throws Exception {
+    givenIntegerColumn();
+    List<InProcessCopyStream> copies = stubInProcessCopies( INTEGER_COLUMN );
+
+    loadAll( new Object[] { 1L }, new Object[] { 2L } );
+
+    assertEquals( 2, copies.get( 0 ).getRows().size() );
+    verify( loader, never() ).putRow( any( RowMetaInterface.class ), any( Object[].class ) );
+    assertEquals( 2, loader.getLinesOutput() );
+  }
+
+  @Test
+  public void loadedRowsArePassedOnToTheRowListeners() throws Exception {
+    givenIntegerColumn();
+    stubInProcessCopies( INTEGER_COLUMN );
+    RowListener listener = mock( RowListener.class );
+    loader.addRowListener( listener );
+
+    loadAll( new Object[] { 1L }, new Object[] { 2L } );
+
+    verify( listener, times( 2 ) ).rowWrittenEvent( any( RowMetaInterface.class ), any( Object[].class ) );
+    assertEquals( 2, loader.getLinesOutput() );
+  }
+
+  @Test
+  public void loadedRowsArePassedOnToTheRowListenersAddedWhileLoading() throws Exception {
+    givenIntegerColumn();
+    stubInProcessCopies( INTEGER_COLUMN );
+    final RowListener listener = mock( RowListener.class );
+    final Object[][] rows = { { 1L }, { 2L }, { 3L }, null };
+    final int[] next = { 0 };
+    doAnswer( invocation -> {
+      if ( next[0] == 1 ) {
+        // e.g. a preview started after the first row
+        loader.addRowListener( listener );
+      }
+      return rows[next[0]++];
+    } ).when( loader ).getRow();
+
+    loadInput();
+
+    verify( listener, times( 2 ) ).rowWrittenEvent( any( RowMetaInterface.class ), any( Object[].class ) );
+    assertEquals( 3, loader.getLinesOutput() );
+  }
+
+  /**
+   * The step encodes the values of the input rows where they are, a copy of a row of an integer would take 16 bytes and
+   * its value as many. Mocks record their calls, so the step and its metadata are the plain ones.
+   */
+  @Test
+  public void loadingRowsAllocatesOnlyForTheBufferHandOffs() throws Exception {
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    assumeTrue( threads instanceof com.sun.management.ThreadMXBean
+        && ( (com.sun.management.ThreadMXBean) threads ).isThreadAllocatedMemorySupported() );
+    com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+
+    final Object[][] rows = new Object[ 64 ][];
+    for ( int i = 0; i < rows.length; i++ ) {
+      rows[ i ] = new Object[] { (long) i };
+    }
+    final RowMeta tableMeta = new RowMeta();
+    tableMeta.addValueMeta( getValueMetaInteger( "IntegerData", 15 ) );
+    VerticaBulkLoaderMeta plainMeta = new VerticaBulkLoaderMeta();
+    plainMeta.setDefault();
+    plainMeta.setDatabaseMeta( mock( DatabaseMeta.class ) );
+    plainMeta.setBufferSize( StreamEncoder.MINIMUM_BUFFER_SIZE );
+    VerticaBulkLoaderData plainData = new VerticaBulkLoaderData();
+    VerticaBulkLoader plainLoader = new VerticaBulkLoader( stepMeta, plainData, 1, transMeta, trans ) {
+      private int rowsRead;
+
+      @Override
+      public Object[] getRow() {
+        return rows[ rowsRead++ & 63 ];
+      }
+
+      @Override
+      RowMetaInterface getTableRowMeta() {
+        return tableMeta;
+      }
+
+      @Override
+      void connectDatabase( Database db, boolean sharedTransaction ) {
+        // no database
+      }
+
+      @Override
+      void commit( Database db ) {
+        // no database
+      }
+
+      @Override
+      VerticaCopyStream createVerticaCopyStream( Database db, String dml ) throws SQLException {
+        return new InProcessCopyStream( Collections.singletonList( INTEGER_COLUMN ) ).discardRows()
+            .asVerticaCopyStream();
+      }
+    };
+    RowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "integer_column" ) );
+    plainLoader.setInputRowMeta( rowMeta );
+    assertTrue( plainLoader.init( plainMeta, plainData ) );
+
+    int rowCount = 200000;
+    for ( int i = 0; i < rowCount; i++ ) {
+      plainLoader.processRow( plainMeta, plainData );
+    }
+    long threadId = Thread.currentThread().getId();
+    long handOffsBefore = plainData.streams.get( 0 ).bufferRing.getPublishedBuffers();
+    long before = allocations.getThreadAllocatedBytes( threadId );
+    for ( int i = 0; i < rowCount; i++ ) {
+      plainLoader.processRow( plainMeta, plainData );
+    }
+    long allocated = allocations.getThreadAllocatedBytes( threadId ) - before;
+    long handOffs = plainData.streams.get( 0 ).bufferRing.getPublishedBuffers() - handOffsBefore;
+    plainData.streams.get( 0 ).encoder.writeRow( plainData.insertRowMeta, null, null );
+    plainData.streams.get( 0 ).workerThread.join();
+
+    assertEquals( 2 * rowCount, plainLoader.getLinesOutput() );
+    assertTrue( "Allocated " + allocated + " bytes for " + handOffs + " buffers",
+        allocated <= ALLOCATION_ALLOWANCE + handOffs * HANDOFF_ALLOCATION_ALLOWANCE );
+  }
+
+  /**
+   * The driver may not report the precision and scale of a NUMERIC column, Vertica's default ones are used then.
+   */
+  @Test
+  public void numericColumnsOfUnknownPrecisionAreLoadedWithTheDefaultOne() throws Exception {
+    RowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaBigNumber( "amount" ) );
+    loader.setInputRowMeta( rowMeta );
+    ValueMetaBigNumber column = new ValueMetaBigNumber( "Amount", -1, -1 );
+    column.setOriginalColumnTypeName( "NUMERIC" );
+    RowMeta tableMeta = new RowMeta();
+    tableMeta.addValueMeta( column );
+    doReturn( tableMeta ).when( loaderMeta ).getTableRowMetaInterface( any( Database.class ) );
+    List<InProcessCopyStream> copies = stubInProcessCopies( new ColumnSpec( ColumnSpec.PrecisionScaleWidthType.NUMERIC,
+      ColumnSpec.DEFAULT_NUMERIC_PRECISION, ColumnSpec.DEFAULT_NUMERIC_SCALE ) );
+
+    loadAll( new Object[] { new BigDecimal( "1234.5678" ) } );
+
+    assertEquals( 1, copies.get( 0 ).getRows().size() );
+    assertEquals( 0, new BigDecimal( "1234.5678" ).compareTo( (BigDecimal) copies.get( 0 ).getRows().get( 0 )[0] ) );
+  }
+
+  /**
+   * Vertica tells the numbers of the rows it rejected in each COPY statement. The step holds the rows of a chunk until
+   * then, puts the rejected ones on the error hop and passes the others on.
+   */
+  @Test
+  public void rowsRejectedByVerticaArePutOnTheErrorHop() throws Exception {
+    givenStringAndIntegerColumns();
+    List<InProcessCopyStream> copies =
+      stubInProcessCopies( row -> "bad".equals( row[0] ), STRING_COLUMN, INTEGER_COLUMN );
+    List<Object[]> errorRows = givenErrorHandling();
+    List<Object[]> passedOn = rowsPassedOn();
+    loaderMeta.setChunkRows( 2 );
+
+    loadAll( new Object[] { "first", 1L }, new Object[] { "bad", 2L }, new Object[] { "third", 3L },
+      new Object[] { "worse", "not a number" }, new Object[] { "bad", 4L }, new Object[] { "fifth", 5L } );
+
+    // the second row of the first chunk, the first row of the third one and the row the encoder rejected at once
+    assertEquals( 3, copies.size() );
+    List<String> errorValues = secondValues( errorRows );
+    Collections.sort( errorValues );
+    assertEquals( Arrays.asList( "2", "4", "not a number" ), errorValues );
+    // a row goes to either hop, never both
+    assertEquals( Arrays.asList( "1", "3", "5" ), secondValues( passedOn ) );
+    assertEquals( 2, loaderData.streams.get( 0 ).getRowsRejected() );
+    // every reject is counted once, whoever rejected it
+    assertEquals( 3, loader.getLinesRejected() );
+    assertEquals( 3, loader.getLinesOutput() );
+  }
+
+  /**
+   * Without chunks the rows are passed on once encoded: only the ones the encoder rejects go to the error hop, the ones
+   * Vertica rejects being counted.
+   */
+  @Test
+  public void rowsRejectedByVerticaAreCountedWithoutChunkRows() throws Exception {
+    givenStringAndIntegerColumns();
+    stubInProcessCopies( row -> "bad".equals( row[0] ), STRING_COLUMN, INTEGER_COLUMN );
+    List<Object[]> errorRows = givenErrorHandling();
+    List<Object[]> passedOn = rowsPassedOn();
+
+    loadAll( new Object[] { "first", 1L }, new Object[] { "bad", 2L }, new Object[] { "worse", "not a number" },
+      new Object[] { "fourth", 4L } );
+
+    assertEquals( Collections.singletonList( "not a number" ), secondValues( errorRows ) );
+    assertEquals( Arrays.asList( "1", "2", "4" ), secondValues( passedOn ) );
+    assertEquals( 2, loader.getLinesRejected() );
+  }
+
+  @Test
+  public void chunksAreLoadedAndCommittedByCopiesOfTheirOwn() throws Exception {
+    givenStringAndIntegerColumns();
+    List<InProcessCopyStream> copies = stubInProcessCopies( STRING_COLUMN, INTEGER_COLUMN );
+    loaderMeta.setChunkRows( 2 );
+
+    loadAll( new Object[] { "first", 1L }, new Object[] { "second", 2L }, new Object[] { "third", 3L },
+      new Object[] { "fourth", 4L }, new Object[] { "fifth", 5L } );
+
+    LoadStream stream = loaderData.streams.get( 0 );
+    assertEquals( 3, copies.size() );
+    assertEquals( 2, copies.get( 0 ).getRows().size() );
+    assertEquals( "third", copies.get( 1 ).getRows().get( 0 )[0] );
+    assertEquals( 1, copies.get( 2 ).getRows().size() );
+    assertEquals( 5, stream.getRowsLoaded() );
+    assertEquals( 3, stream.getChunksCompleted() );
+    verify( loader, times( 3 ) ).commit( any( Database.class ) );
+  }
+
+  /**
+   * Without distribution fields the rows go round-robin to the streams, which are committed together on the step
+   * thread once all their COPY statements finished.
+   */
+  @Test
+  public void parallelStreamsAreCommittedTogetherOnceAllOfThemFinished() throws Exception {
+    givenStringAndIntegerColumns();
+    List<InProcessCopyStream> copies = stubInProcessCopies( STRING_COLUMN, INTEGER_COLUMN );
+    final Thread stepThread = Thread.currentThread();
+    final List<Boolean> committedAfterAllWorkers = new CopyOnWriteArrayList<>();
+    doAnswer( invocation -> {
+      assertSame( stepThread, Thread.currentThread() );
+      boolean finished = true;
+      for ( LoadStream stream : loaderData.streams ) {
+        finished &= !stream.workerThread.isAlive();
+      }
+      committedAfterAllWorkers.add( finished );
+      return null;
+    } ).when( loader ).commit( any( Database.class ) );
+    loaderMeta.setParallelStreams( 2 );
+
+    loadAll( new Object[] { "first", 1L }, new Object[] { "second", 2L }, new Object[] { "third", 3L },
+      new Object[] { "fourth", 4L } );
+
+    assertEquals( 2, copies.size() );
+    List<List<Object>> loaded = new ArrayList<>();
+    for ( InProcessCopyStream copy : copies ) {
+      List<Object> values = new ArrayList<>();
+      for ( Object[] row : copy.getRows() ) {
+        values.add( row[1] );
+      }
+      loaded.add( values );
+    }
+    assertTrue( loaded.contains( Arrays.<Object>asList( 1L, 3L ) ) );
+    assertTrue( loaded.contains( Arrays.<Object>asList( 2L, 4L ) ) );
+    assertEquals( Arrays.asList( true, true ), committedAfterAllWorkers );
+  }
+
+  /**
+   * The rows of equal distribution fields go to the same stream.
+   */
+  @Test
+  public void rowsOfEqualDistributionFieldsAreLoadedByTheSameStream() throws Exception {
+    givenStringAndIntegerColumns();
+    List<InProcessCopyStream> copies = stubInProcessCopies( STRING_COLUMN, INTEGER_COLUMN );
+    loaderMeta.setParallelStreams( 3 );
+    loaderMeta.setDistributionFields( "string_column" );
+
+    Object[][] rows = new Object[ 30 ][];
+    for ( int i = 0; i < rows.length; i++ ) {
+      rows[i] = new Object[] { "key " + ( i % 5 ), (long) i };
+    }
+    loadAll( rows );
+
+    Map<Object, InProcessCopyStream> copyOfKey = new HashMap<>();
+    int loaded = 0;
+    for ( InProcessCopyStream copy : copies ) {
+      for ( Object[] row : copy.getRows() ) {
+        InProcessCopyStream previous = copyOfKey.put( row[0], copy );
+        assertTrue( previous == null || previous == copy );
+        assertEquals( "key " + ( (Long) row[1] % 5 ), row[0] );
+        loaded++;
+      }
+    }
+    assertEquals( 5, copyOfKey.size() );
+    assertEquals( rows.length, loaded );
+  }
+
+  @Test( expected = KettleStepException.class )
+  public void parallelStreamsAreRefusedWithUniqueConnections() throws Exception {
+    givenIntegerColumn();
+    stubInProcessCopies( INTEGER_COLUMN );
+    transMeta.setUsingUniqueConnections( true );
+    loaderMeta.setParallelStreams( 2 );
+
+    loadAll( new Object[] { 1L } );
+  }
+
+  /**
+   * The latency timer ends the chunk of the first rows while the step waits for input. The encoder threads hand the
+   * rows over when the timer flushes them, and the step thread passes them on once it gets the next row.
+   */
+  @Test
+  public void rowsOfAQuietInputAreCommittedAfterTheLatency() throws Exception {
+    givenIntegerColumn();
+    List<InProcessCopyStream> copies = stubInProcessCopies( INTEGER_COLUMN );
+    final CountDownLatch committed = new CountDownLatch( 1 );
+    doAnswer( invocation -> {
+      committed.countDown();
+      return null;
+    } ).when( loader ).commit( any( Database.class ) );
+    loaderMeta.setCommitLatency( 50 );
+    loaderMeta.setEncoderThreads( 2 );
+    final List<Thread> passingThreads = new CopyOnWriteArrayList<>();
+    loader.addRowListener( new RowAdapter() {
+      @Override
+      public void rowWrittenEvent( RowMetaInterface rowMeta, Object[] row ) {
+        passingThreads.add( Thread.currentThread() );
+      }
+    } );
+
+    final Object[][] rows = { { 1L }, { 2L }, null, { 3L } };
+    final int[] next = { 0 };
+    doAnswer( invocation -> {
+      if ( next[0] == 2 ) {
+        // the input goes quiet until the chunk of the first rows is committed
+        assertTrue( committed.await( 5, TimeUnit.SECONDS ) );
+        assertTrue( passingThreads.isEmpty() );
+        next[0]++;
+      }
+      return next[0] < rows.length ? rows[next[0]++] : null;
+    } ).when( loader ).getRow();
+
+    loadInput();
+
+    LoadStream stream = loaderData.streams.get( 0 );
+    assertEquals( 2, copies.size() );
+    assertEquals( 2, copies.get( 0 ).getRows().size() );
+    assertEquals( 1, copies.get( 1 ).getRows().size() );
+    assertEquals( 3, stream.getRowsLoaded() );
+    assertEquals( Collections.nCopies( 3, Thread.currentThread() ), passingThreads );
+    assertNull( loaderData.latencyTimer );
+  }
+
+  @Test
+  public void stagingFileSizeIsIgnoredWithoutAStagingDirectory() throws Exception {
+    givenIntegerColumn();
+    List<InProcessCopyStream> copies = stubInProcessCopies( INTEGER_COLUMN );
+    loaderMeta.setStagingDirectory( "" );
+    loaderMeta.setStagingFileBytes( 1 );
+
+    final long[] next = { 0 };
+    doAnswer( invocation -> next[0] < 2000 ? new Object[] { next[0]++ } : null ).when( loader ).getRow();
+
+    loadInput();
+
+    // a single COPY statement, the buffers flushed on the way do not end chunks
+    assertEquals( 1, copies.size() );
+    assertEquals( 2000, loaderData.streams.get( 0 ).getRowsLoaded() );
+  }
+
+  @Test
+  public void stagedFilesAreLoadedOneByOneWhenTheirCopyFails() throws Exception {
+    givenIntegerColumn();
+    stubConnections();
+
+    File staging = Files.createTempDirectory( "staging-" ).toFile();
+    final List<String> statements = new CopyOnWriteArrayList<>();
+    final List<InProcessCopyStream> copies = new CopyOnWriteArrayList<>();
+    doAnswer( invocation -> {
+      String dml = invocation.getArgument( 1 );
+      statements.add( dml );
+      if ( statements.size() == 1 ) {
+        throw new SQLException( "Connection reset" );
+      }
+      long loaded = 0;
+      Matcher files = Pattern.compile( "'([^']+\\.native)'" ).matcher( dml );
+      while ( files.find() ) {
+        InProcessCopyStream copy = new InProcessCopyStream( Arrays.asList( INTEGER_COLUMN ) );
+        try ( InputStream in = new FileInputStream( files.group( 1 ) ) ) {
+          copy.start();
+          copy.addStream( in );
+          copy.execute();
+        }
+        copies.add( copy );
+        loaded += copy.finish();
+      }
+      return loaded;
+    } ).when( loader ).copyLocal( any( Database.class ), anyString() );
+    loaderMeta.setStagingDirectory( staging.getAbsolutePath() );
+    loaderMeta.setChunkRows( 2 );
+
+    loadAll( new Object[] { 1L }, new Object[] { 2L }, new Object[] { 3L }, new Object[] { 4L }, new Object[] { 5L } );
+
+    // the three files in one statement first, then each one on its own
+    assertEquals( 4, statements.size() );
+    assertThat( statements.get( 0 ), containsString( " FROM LOCAL '" ) );
+    assertEquals( 3, copies.size() );
+    assertEquals( 3L, copies.get( 1 ).getRows().get( 0 )[0] );
+    assertEquals( 1, copies.get( 2 ).getRows().size() );
+    assertEquals( 5, loaderData.streams.get( 0 ).getRowsLoaded() );
+    // loaded files are deleted
+    assertEquals( 0, staging.list().length );
+    staging.delete();
+  }
+
+  /**
+   * Input rows of a string and an integer, loaded into a VARCHAR(15) and an INTEGER column.
+   */
+  private void givenStringAndIntegerColumns() throws KettleException {
+    RowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "string_column" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "integer_column" ) );
+    loader.setInputRowMeta( rowMeta );
+
+    RowMeta tableMeta = new RowMeta();
+    tableMeta.addValueMeta( getValueMetaString( "StringData", 15 ) );
+    tableMeta.addValueMeta( getValueMetaInteger( "IntegerData", 15 ) );
+    doReturn( tableMeta ).when( loaderMeta ).getTableRowMetaInterface( any( Database.class ) );
+  }
+
+  /**
+   * Input rows of an integer, loaded into an INTEGER column.
+   */
+  private void givenIntegerColumn() throws KettleException {
+    RowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "integer_column" ) );
+    loader.setInputRowMeta( rowMeta );
+
+    RowMeta tableMeta = new RowMeta();
+    tableMeta.addValueMeta( getValueMetaInteger( "IntegerData", 15 ) );
+    doReturn( tableMeta ).when( loaderMeta ).getTableRowMetaInterface( any( Database.class ) );
+  }
+
+  /**
+   * Puts the rows the encoder or Vertica reject on the error hop of the step, instead of aborting.
+   *
+   * @return the rows put on the error hop
+   */
+  private List<Object[]> givenErrorHandling() {
+    StepErrorMeta errorMeta = new StepErrorMeta( loader.getTransMeta(), loader.getStepMeta() );
+    errorMeta.setEnabled( true );
+    loader.getStepMeta().setStepErrorMeta( errorMeta );
+    loaderMeta.setAbortOnError( false );
+    final List<Object[]> errorRows = new CopyOnWriteArrayList<>();
+    loader.addRowListener( new RowAdapter() {
+      @Override
+      public void errorRowWrittenEvent( RowMetaInterface rowMeta, Object[] row ) {
+        errorRows.add( row );
+      }
+    } );
+    return errorRows;
+  }
+
+  /**
+   * @return the rows the step passes on to the next steps, in order
+   */
+  private List<Object[]> rowsPassedOn() {
+    final List<Object[]> rows = new CopyOnWriteArrayList<>();
+    loader.addRowListener( new RowAdapter() {
+      @Override
+      public void rowWrittenEvent( RowMetaInterface rowMeta, Object[] row ) {
+        rows.add( row );
+      }
+    } );
+    return rows;
+  }
+
+  private static List<String> secondValues( List<Object[]> rows ) {
+    List<String> values = new ArrayList<>();
+    for ( Object[] row : rows ) {
+      values.add( String.valueOf( row[1] ) );
+    }
+    return values;
+  }
+
+  /**
+   * Makes every COPY statement of the step an {@link InProcessCopyStream} of the given columns.
+   *
+   * @return the COPY statements, in the order the step creates them
+   */
+  private List<InProcessCopyStream> stubInProcessCopies( ColumnSpec... columns ) throws Exception {
+    return stubInProcessCopies( null, columns );
+  }
+
+  /**
+   * @param rejectIf the rows Vertica rejects, <tt>null</tt> for none
+   * @see #stubInProcessCopies(ColumnSpec...)
+   */
+  private List<InProcessCopyStream> stubInProcessCopies( Predicate<Object[]> rejectIf, ColumnSpec... columns )
+    throws Exception {
+    final List<InProcessCopyStream> copies = new CopyOnWriteArrayList<>();
+    doAnswer( invocation -> {
+      InProcessCopyStream copy = new InProcessCopyStream( Arrays.asList( columns ) );
+      if ( rejectIf != null ) {
+        copy.rejecting( rejectIf );
+      }
+      copies.add( copy );
+      return copy.asVerticaCopyStream();
+    } ).when( loader ).createVerticaCopyStream( any( Database.class ), anyString() );
+    stubConnections();
+    return copies;
+  }
+
+  /**
+   * Lets the step open and commit its connections without a database.
+   */
+  private void stubConnections() throws KettleException {
+    doNothing().when( loader ).connectDatabase( any( Database.class ), anyBoolean() );
+    doNothing().when( loader ).commit( any( Database.class ) );
+  }
+
+  /**
+   * Runs the step over the given rows and waits for its COPY statements to finish.
+   */
+  private void loadAll( Object[]... rows ) throws Exception {
+    // the input ends with a null row
+    Object[][] input = Arrays.copyOf( rows, rows.length + 1 );
+    doReturn( input[0], (Object[]) Arrays.copyOfRange( input, 1, input.length ) ).when( loader ).getRow();
+    loadInput();
+  }
+
+  /**
+   * Runs the step until its input ends and waits for its COPY statements to finish.
+   */
+  private void loadInput() throws Exception {
+    loader.init( loaderMeta, loaderData );
+    while ( loader.processRow( loaderMeta, loaderData ) ) {
+      // load all the rows
+    }
+    for ( LoadStream stream : loaderData.streams ) {
+      stream.workerThread.join();
     }
   }
 
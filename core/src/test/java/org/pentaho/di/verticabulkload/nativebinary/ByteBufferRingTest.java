@@ -0,0 +1,201 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 - 2026 by Pentaho Canada Inc. : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2030-06-15
+ ******************************************************************************/
+
+
+package org.pentaho.di.verticabulkload.nativebinary;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class ByteBufferRingTest {
+
+  @Test
+  public void readsPublishedBuffersInOrder() throws Exception {
+    ByteBufferRing ring = new ByteBufferRing( 2 );
+
+    ByteBuffer first = ring.acquire( 4 );
+    first.put( new byte[] { 1, 2, 3 } ).flip();
+    ring.publish( first );
+    ByteBuffer second = ring.acquire( 4 );
+    second.put( new byte[] { 4, 5 } ).flip();
+    ring.publish( second );
+    ring.close();
+
+    assertArrayEquals( new byte[] { 1, 2, 3, 4, 5 }, readFully( ring.getInputStream() ) );
+  }
+
+  @Test
+  public void drainedBuffersAreReused() throws Exception {
+    ByteBufferRing ring = new ByteBufferRing( 1 );
+
+    ByteBuffer buffer = ring.acquire( 8 );
+    buffer.put( (byte) 42 ).flip();
+    ring.publish( buffer );
+
+    InputStream in = ring.getInputStream();
+    assertEquals( 42, in.read() );
+
+    Thread consumer = new Thread( () -> {
+      try {
+        in.read();
+      } catch ( IOException ignored ) {
+        // the ring is aborted at the end of the test
+      }
+    } );
+    consumer.start();
+
+    // blocks until the consumer moves past the first buffer and gives it back
+    assertSame( buffer, ring.acquire( 8 ) );
+    ring.abort();
+    consumer.join();
+  }
+
+  @Test
+  public void abortReleasesBlockedProducer() throws Exception {
+    ByteBufferRing ring = new ByteBufferRing( 1 );
+    ring.publish( ring.acquire( 8 ) );
+
+    AtomicReference<Exception> failure = new AtomicReference<>();
+    Thread producer = new Thread( () -> {
+      try {
+        ring.acquire( 8 );
+      } catch ( Exception e ) {
+        failure.set( e );
+      }
+    } );
+    producer.start();
+    ring.abort();
+    producer.join();
+
+    assertEquals( IOException.class, failure.get().getClass() );
+  }
+
+  @Test
+  public void abortFailsConsumerInsteadOfEndingTheStream() throws Exception {
+    ByteBufferRing ring = new ByteBufferRing( 1 );
+    ring.abort();
+    try {
+      ring.getInputStream().read();
+      fail( "An aborted stream must not look like a complete one" );
+    } catch ( IOException expected ) {
+      // expected
+    }
+  }
+
+  @Test
+  public void chunksEndLikeStreams() throws Exception {
+    ByteBufferRing ring = new ByteBufferRing( 4 );
+    ring.publish( (ByteBuffer) ring.acquire( 4 ).put( new byte[] { 1, 2 } ).flip() );
+    ring.endChunk();
+    ring.publish( (ByteBuffer) ring.acquire( 4 ).put( new byte[] { 3 } ).flip() );
+    ring.close();
+
+    InputStream in = ring.getInputStream();
+    assertArrayEquals( new byte[] { 1, 2 }, readFully( in ) );
+    assertFalse( ring.isDrained() );
+    assertArrayEquals( new byte[] { 3 }, readFully( in ) );
+    assertTrue( ring.isDrained() );
+    assertEquals( -1, in.read() );
+  }
+
+  @Test
+  public void chunksAreTransferredToChannels() throws Exception {
+    ByteBufferRing ring = new ByteBufferRing( 4 );
+    ring.publish( (ByteBuffer) ring.acquire( 4 ).put( new byte[] { 1, 2 } ).flip() );
+    ring.publish( (ByteBuffer) ring.acquire( 4 ).put( new byte[] { 3 } ).flip() );
+    ring.endChunk();
+    ring.publish( (ByteBuffer) ring.acquire( 4 ).put( new byte[] { 4 } ).flip() );
+    ring.close();
+
+    ByteArrayOutputStream first = new ByteArrayOutputStream();
+    assertEquals( 3, ring.transferChunkTo( Channels.newChannel( first ) ) );
+    assertArrayEquals( new byte[] { 1, 2, 3 }, first.toByteArray() );
+    assertFalse( ring.isDrained() );
+    ByteArrayOutputStream second = new ByteArrayOutputStream();
+    assertEquals( 1, ring.transferChunkTo( Channels.newChannel( second ) ) );
+    assertArrayEquals( new byte[] { 4 }, second.toByteArray() );
+    assertTrue( ring.isDrained() );
+  }
+
+  @Test
+  public void countsPublishedBuffersAndWaits() throws Exception {
+    ByteBufferRing ring = new ByteBufferRing( 1 );
+    ByteBuffer buffer = ring.acquire( 8 );
+    buffer.put( new byte[] { 1, 2, 3 } ).flip();
+    ring.publish( buffer );
+
+    Thread producer = new Thread( () -> {
+      try {
+        // waits for the consumer to drain the only buffer
+        ByteBuffer next = ring.acquire( 8 );
+        next.put( new byte[] { 4, 5 } ).flip();
+        ring.publish( next );
+        ring.close();
+      } catch ( IOException e ) {
+        ring.abort();
+      }
+    } );
+    producer.start();
+    Thread.sleep( 50 );
+    InputStream in = ring.getInputStream();
+    byte[] data = readFully( in );
+    producer.join();
+
+    assertArrayEquals( new byte[] { 1, 2, 3, 4, 5 }, data );
+    assertEquals( 2, ring.getPublishedBuffers() );
+    assertEquals( 5, ring.getPublishedBytes() );
+    assertTrue( ring.getProducerWaitNanos() >= 40000000L );
+  }
+
+  @Test
+  public void countsConsumerWaits() throws Exception {
+    ByteBufferRing ring = new ByteBufferRing( 1 );
+    Thread producer = new Thread( () -> {
+      try {
+        Thread.sleep( 50 );
+        ring.publish( (ByteBuffer) ring.acquire( 8 ).put( (byte) 1 ).flip() );
+        ring.close();
+      } catch ( Exception e ) {
+        ring.abort();
+      }
+    } );
+    producer.start();
+    assertEquals( 1, readFully( ring.getInputStream() ).length );
+    producer.join();
+
+    assertTrue( ring.getConsumerWaitNanos() >= 40000000L );
+    assertEquals( 0, ring.getProducerWaitNanos() );
+  }
+
+  private static byte[] readFully( InputStream in ) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] chunk = new byte[2];
+    int read;
+    while ( ( read = in.read( chunk, 0, chunk.length ) ) != -1 ) {
+      out.write( chunk, 0, read );
+    }
+    return out.toByteArray();
+  }
+}
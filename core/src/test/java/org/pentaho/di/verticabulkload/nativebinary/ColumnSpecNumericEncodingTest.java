@@ -0,0 +1,108 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 - 2026 by Pentaho Canada Inc. : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2030-06-15
+ ******************************************************************************/
+
+
+package org.pentaho.di.verticabulkload.nativebinary;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.value.ValueMetaBigNumber;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+public class ColumnSpecNumericEncodingTest {
+
+  private ByteBuffer buffer;
+
+  @Before
+  public void setUp() {
+    buffer = ByteBuffer.allocate( 64 );
+    buffer.order( ByteOrder.LITTLE_ENDIAN );
+  }
+
+  @Test
+  public void widthDependsOnPrecision() {
+    assertEquals( 8, new ColumnSpec( ColumnSpec.PrecisionScaleWidthType.NUMERIC, 18, 4 ).bytes );
+    assertEquals( 16, new ColumnSpec( ColumnSpec.PrecisionScaleWidthType.NUMERIC, 37, 15 ).bytes );
+    assertEquals( 24, new ColumnSpec( ColumnSpec.PrecisionScaleWidthType.NUMERIC, 38, 0 ).bytes );
+  }
+
+  @Test
+  public void smallNumericIsItsUnscaledValue() throws Exception {
+    ColumnSpec spec = numeric( 18, 4 );
+    spec.encode( new ValueMetaBigNumber(), new BigDecimal( "-1234.56789" ) );
+    buffer.flip();
+
+    assertEquals( 8, buffer.remaining() );
+    assertEquals( -12345679L, buffer.getLong() );
+  }
+
+  @Test
+  public void wideNumericIsSignExtendedMostSignificantWordFirst() throws Exception {
+    ColumnSpec spec = numeric( 37, 15 );
+    spec.encode( new ValueMetaBigNumber(), new BigDecimal( "-1.5" ) );
+    buffer.flip();
+
+    assertEquals( 16, buffer.remaining() );
+    assertEquals( -1L, buffer.getLong() );
+    assertEquals( -1500000000000000L, buffer.getLong() );
+  }
+
+  @Test
+  public void largeNumericSpansWords() throws Exception {
+    BigInteger unscaled = BigInteger.ONE.shiftLeft( 64 ).add( BigInteger.valueOf( 7 ) ).negate();
+    ColumnSpec spec = numeric( 37, 0 );
+    spec.encode( new ValueMetaBigNumber(), new BigDecimal( unscaled ) );
+    buffer.flip();
+
+    BigInteger decoded = BigInteger.valueOf( buffer.getLong() ).shiftLeft( 64 )
+      .add( new BigInteger( Long.toUnsignedString( buffer.getLong() ) ) );
+    assertEquals( unscaled, decoded );
+  }
+
+  @Test
+  public void integerAndStringInputsAreScaled() throws Exception {
+    ColumnSpec spec = numeric( 18, 4 );
+    spec.encode( new ValueMetaInteger(), 42L );
+    spec.encode( new ValueMetaString(), "0.00005" );
+    buffer.flip();
+
+    assertEquals( 420000L, buffer.getLong() );
+    assertEquals( 1L, buffer.getLong() );
+  }
+
+  @Test
+  public void valueExceedingThePrecisionIsRejected() throws Exception {
+    ColumnSpec spec = numeric( 5, 2 );
+    try {
+      spec.encode( new ValueMetaInteger(), 1000L );
+      fail( "1000 does not fit into NUMERIC(5,2)" );
+    } catch ( KettleValueException expected ) {
+      assertEquals( 0, buffer.position() );
+    }
+  }
+
+  private ColumnSpec numeric( int precision, int scale ) {
+    ColumnSpec spec = new ColumnSpec( ColumnSpec.PrecisionScaleWidthType.NUMERIC, precision, scale );
+    spec.setMainBuffer( buffer );
+    return spec;
+  }
+}
@@ -0,0 +1,130 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 - 2026 by Pentaho Canada Inc. : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2030-06-15
+ ******************************************************************************/
+
+
+package org.pentaho.di.verticabulkload.nativebinary;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.UUID;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBinary;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+public class ColumnWritersTest {
+
+  private ByteBuffer buffer;
+
+  @Before
+  public void setUp() {
+    buffer = ByteBuffer.allocate( 64 ).order( ByteOrder.LITTLE_ENDIAN );
+  }
+
+  @Test
+  public void integerFromLongIsWrittenWithoutConversion() throws Exception {
+    ColumnWriter writer = ColumnWriters.create( new ColumnSpec( ColumnSpec.ConstantWidthType.INTEGER_64 ),
+      new ValueMetaInteger( "id" ) );
+
+    assertTrue( writer instanceof ColumnWriters.IntegerFromLongWriter );
+    assertTrue( writer.write( buffer, 42L ) );
+    assertEquals( 42L, buffer.getLong( 0 ) );
+  }
+
+  @Test
+  public void integerFromStringIsConverted() throws Exception {
+    ColumnWriter writer = ColumnWriters.create( new ColumnSpec( ColumnSpec.ConstantWidthType.INTEGER_32 ),
+      new ValueMetaString( "id" ) );
+
+    assertTrue( writer.write( buffer, "124" ) );
+    assertEquals( 4, buffer.position() );
+    assertEquals( 124, buffer.getInt( 0 ) );
+  }
+
+  @Test
+  public void integersOutOfTheRangeOfTheColumnAreRejected() throws Exception {
+    ColumnWriter narrow = ColumnWriters.create( new ColumnSpec( ColumnSpec.ConstantWidthType.INTEGER_16 ),
+      new ValueMetaString( "id" ) );
+    assertRejected( narrow, "32768" );
+    assertTrue( narrow.write( buffer, "-32768" ) );
+    buffer.clear();
+
+    // Long.MIN_VALUE is Vertica's NULL
+    assertRejected( ColumnWriters.create( new ColumnSpec( ColumnSpec.ConstantWidthType.INTEGER_64 ),
+      new ValueMetaInteger( "id" ) ), Long.MIN_VALUE );
+  }
+
+  @Test
+  public void binariesLongerThanTheColumnAreRejected() throws Exception {
+    ValueMetaInterface valueMeta = new ValueMetaBinary( "data" );
+    assertRejected( ColumnWriters.create( new ColumnSpec( ColumnSpec.UserDefinedWidthType.BINARY, 4 ), valueMeta ),
+      new byte[ 5 ] );
+    assertRejected( ColumnWriters.create( new ColumnSpec( ColumnSpec.VariableWidthType.VARBINARY, 4 ), valueMeta ),
+      new byte[ 5 ] );
+    assertTrue( ColumnWriters.create( new ColumnSpec( ColumnSpec.VariableWidthType.VARBINARY, 4 ), valueMeta )
+      .write( buffer, new byte[ 4 ] ) );
+  }
+
+  @Test
+  public void valueConvertedToNullIsNotWritten() throws Exception {
+    ValueMetaInterface valueMeta = new ValueMetaInteger( "id" ) {
+      @Override
+      public Long getInteger( Object object ) {
+        return null;
+      }
+    };
+    ColumnWriter writer = ColumnWriters.create( new ColumnSpec( ColumnSpec.ConstantWidthType.INTEGER_16 ), valueMeta );
+
+    assertFalse( writer.write( buffer, "" ) );
+    assertEquals( 0, buffer.position() );
+  }
+
+  @Test
+  public void varcharIsPrefixedWithItsEncodedLength() throws Exception {
+    ColumnSpec spec = new ColumnSpec( ColumnSpec.VariableWidthType.VARCHAR, 10 );
+    ColumnWriter writer = ColumnWriters.create( spec, new ValueMetaString( "name" ) );
+
+    assertTrue( writer.write( buffer, "caf\u00e9" ) );
+    assertEquals( 5, buffer.getInt( 0 ) );
+    assertEquals( 9, buffer.position() );
+  }
+
+  @Test
+  public void uuidIsWrittenInNetworkOrder() throws Exception {
+    ColumnWriter writer = ColumnWriters.create( new ColumnSpec( ColumnSpec.ConstantWidthType.UUID ),
+      new ValueMetaString( "id" ) );
+
+    assertTrue( writer.write( buffer, "01234567-89ab-cdef-0011-223344556677" ) );
+    assertEquals( 16, buffer.position() );
+    buffer.order( ByteOrder.BIG_ENDIAN );
+    assertEquals( new UUID( 0x0123456789abcdefL, 0x0011223344556677L ),
+      new UUID( buffer.getLong( 0 ), buffer.getLong( 8 ) ) );
+  }
+
+  private void assertRejected( ColumnWriter writer, Object value ) {
+    try {
+      writer.write( buffer, value );
+      fail( "Value written instead of rejected" );
+    } catch ( KettleValueException e ) {
+      assertEquals( 0, buffer.position() );
+    }
+  }
+}
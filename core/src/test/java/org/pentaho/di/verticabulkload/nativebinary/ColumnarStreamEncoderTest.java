@@ -0,0 +1,205 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 - 2026 by Pentaho Canada Inc. : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2030-06-15
+ ******************************************************************************/
+
+
+package org.pentaho.di.verticabulkload.nativebinary;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.core.row.value.ValueMetaTimestamp;
+
+public class ColumnarStreamEncoderTest {
+
+  @Test
+  public void fixedColumnsAreEncodedLikeTheRowEncoder() throws Exception {
+    RowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaNumber( "value" ) );
+    rowMeta.addValueMeta( new ValueMetaTimestamp( "at" ) );
+    List<ColumnSpec> columns = Arrays.asList( new ColumnSpec( ColumnSpec.ConstantWidthType.INTEGER_64 ),
+        new ColumnSpec( ColumnSpec.ConstantWidthType.FLOAT ),
+        new ColumnSpec( ColumnSpec.ConstantWidthType.TIMESTAMP ) );
+    List<Object[]> rows = new ArrayList<>();
+    for ( int i = 0; i < 5000; i++ ) {
+      rows.add( new Object[] { (long) i, i / 3.0, new Date( 1700000000000L + i ) } );
+    }
+    // a few rows with nulls in between
+    rows.set( 7, new Object[] { null, 1.0, new Date( 0 ) } );
+    rows.set( 501, new Object[] { 501L, null, null } );
+
+    assertSameStream( columns, rowMeta, rows );
+  }
+
+  @Test
+  public void mixedColumnsAreEncodedLikeTheRowEncoder() throws Exception {
+    RowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    rowMeta.addValueMeta( new ValueMetaNumber( "value" ) );
+    List<ColumnSpec> columns = Arrays.asList( new ColumnSpec( ColumnSpec.ConstantWidthType.INTEGER_64 ),
+        new ColumnSpec( ColumnSpec.VariableWidthType.VARCHAR, 20 ),
+        new ColumnSpec( ColumnSpec.ConstantWidthType.FLOAT ) );
+    List<Object[]> rows = new ArrayList<>();
+    for ( int i = 0; i < 700; i++ ) {
+      rows.add( new Object[] { (long) i, i % 5 == 0 ? null : "name " + i, i % 7 == 0 ? null : i * 1.5 } );
+    }
+
+    assertSameStream( columns, rowMeta, rows );
+  }
+
+  @Test
+  public void charValuesLongerThanTheColumnAreRejectedLikeTheRowEncoder() throws Exception {
+    RowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "code" ) );
+    List<ColumnSpec> columns = Arrays.asList( new ColumnSpec( ColumnSpec.ConstantWidthType.INTEGER_64 ),
+        new ColumnSpec( ColumnSpec.UserDefinedWidthType.CHAR, 8 ) );
+    // 6 characters, but 12 bytes in UTF-8
+    String tooLong = "\u00e9\u00e9\u00e9\u00e9\u00e9\u00e9";
+    Object[][] rows = { { 1L, "abc" }, { 2L, tooLong }, { 3L, "\u00e9t\u00e9" }, { 4L, null } };
+
+    ByteBufferRing rowRing = new ByteBufferRing( 8 );
+    ByteBufferRing columnarRing = new ByteBufferRing( 8 );
+    StreamEncoder rowEncoder = new StreamEncoder( columns, rowRing );
+    ColumnarStreamEncoder columnarEncoder = new ColumnarStreamEncoder( columns, columnarRing );
+    final StringBuilder rowOutcomes = new StringBuilder();
+    final StringBuilder columnarOutcomes = new StringBuilder();
+    rowEncoder.setListener( recording( rowOutcomes ) );
+    columnarEncoder.setListener( recording( columnarOutcomes ) );
+    for ( int i = 0; i < rows.length; i++ ) {
+      rowEncoder.writeRow( rowMeta, rows[ i ], i + 1 );
+      columnarEncoder.writeRow( rowMeta, rows[ i ], i + 1 );
+    }
+    rowEncoder.close();
+    columnarEncoder.close();
+
+    assertEquals( "1 !2 3 4 ", rowOutcomes.toString() );
+    assertEquals( rowOutcomes.toString(), columnarOutcomes.toString() );
+    assertEquals( 1, columnarEncoder.getColumnFailures( 1 ) );
+    assertArrayEquals( readFully( rowRing.getInputStream() ), readFully( columnarRing.getInputStream() ) );
+  }
+
+  @Test
+  public void fieldsArePickedFromTheInputRow() throws Exception {
+    RowMeta inputRowMeta = new RowMeta();
+    inputRowMeta.addValueMeta( new ValueMetaString( "unused" ) );
+    inputRowMeta.addValueMeta( new ValueMetaNumber( "value" ) );
+    inputRowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    RowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaNumber( "value" ) );
+    List<ColumnSpec> columns = Arrays.asList( new ColumnSpec( ColumnSpec.ConstantWidthType.INTEGER_64 ),
+        new ColumnSpec( ColumnSpec.ConstantWidthType.FLOAT ) );
+    int[] fields = { 2, 1 };
+
+    ByteBufferRing rowRing = new ByteBufferRing( 8 );
+    ByteBufferRing columnarRing = new ByteBufferRing( 8 );
+    StreamEncoder rowEncoder = new StreamEncoder( columns, rowRing );
+    ColumnarStreamEncoder columnarEncoder = new ColumnarStreamEncoder( columns, columnarRing );
+    for ( int i = 0; i < 1000; i++ ) {
+      Double value = i % 9 == 0 ? null : i * 0.25;
+      rowEncoder.writeRow( rowMeta, new Object[] { (long) i, value } );
+      columnarEncoder.writeRow( inputRowMeta, new Object[] { "x", value, (long) i }, fields, null );
+    }
+    rowEncoder.close();
+    columnarEncoder.close();
+
+    assertArrayEquals( readFully( rowRing.getInputStream() ), readFully( columnarRing.getInputStream() ) );
+  }
+
+  @Test
+  public void rowsThatCannotBeEncodedAreReportedInOrder() throws Exception {
+    RowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaNumber( "value" ) );
+    ColumnSpec id = new ColumnSpec( ColumnSpec.ConstantWidthType.INTEGER_64 );
+    id.setNullable( false );
+    List<ColumnSpec> columns = Arrays.asList( id, new ColumnSpec( ColumnSpec.ConstantWidthType.FLOAT ) );
+    ByteBufferRing ring = new ByteBufferRing( ByteBufferRing.DEFAULT_DEPTH );
+    ColumnarStreamEncoder encoder = new ColumnarStreamEncoder( columns, ring );
+    StringBuilder outcomes = new StringBuilder();
+    encoder.setListener( recording( outcomes ) );
+
+    encoder.writeRow( rowMeta, new Object[] { 1L, 1.0 }, 1 );
+    encoder.writeRow( rowMeta, new Object[] { Long.MIN_VALUE, 2.0 }, 2 );
+    encoder.writeRow( rowMeta, new Object[] { null, 3.0 }, 3 );
+    encoder.writeRow( rowMeta, new Object[] { 4L, null }, 4 );
+    assertEquals( "", outcomes.toString() );
+    encoder.close();
+
+    assertEquals( "1 !2 !3 4 ", outcomes.toString() );
+    assertEquals( 2, encoder.getColumnFailures( 0 ) );
+    assertEquals( 4 + 1 + 8 + 8, encoder.getLargestRowSize() );
+    readFully( ring.getInputStream() );
+  }
+
+  private static void assertSameStream( List<ColumnSpec> columns, RowMetaInterface rowMeta, List<Object[]> rows )
+    throws Exception {
+    // the rings are deep enough for the whole stream, the buffers small enough to be flushed a few times
+    ByteBufferRing rowRing = new ByteBufferRing( 32 );
+    ByteBufferRing columnarRing = new ByteBufferRing( 32 );
+    StreamEncoder rowEncoder = new StreamEncoder( columns, rowRing, StreamEncoder.MINIMUM_BUFFER_SIZE );
+    ColumnarStreamEncoder columnarEncoder =
+        new ColumnarStreamEncoder( columns, columnarRing, StreamEncoder.MINIMUM_BUFFER_SIZE );
+
+    for ( Object[] row : rows ) {
+      rowEncoder.writeRow( rowMeta, row );
+      columnarEncoder.writeRow( rowMeta, row );
+    }
+    rowEncoder.close();
+    columnarEncoder.close();
+
+    assertArrayEquals( readFully( rowRing.getInputStream() ), readFully( columnarRing.getInputStream() ) );
+    assertEquals( rowEncoder.getLargestRowSize(), columnarEncoder.getLargestRowSize() );
+    assertEquals( rowEncoder.getAverageRowSize(), columnarEncoder.getAverageRowSize(), 0 );
+  }
+
+  private static RowHandoffListener recording( final StringBuilder outcomes ) {
+    return new RowHandoffListener() {
+      @Override
+      public void rowEncoded( Object tag ) {
+        outcomes.append( tag ).append( ' ' );
+      }
+
+      @Override
+      public void rowRejected( Object tag, KettleValueException cause ) {
+        outcomes.append( '!' ).append( tag ).append( ' ' );
+      }
+    };
+  }
+
+  private static byte[] readFully( InputStream in ) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] chunk = new byte[ 8192 ];
+    int read;
+    while ( ( read = in.read( chunk, 0, chunk.length ) ) != -1 ) {
+      out.write( chunk, 0, read );
+    }
+    return out.toByteArray();
+  }
+}
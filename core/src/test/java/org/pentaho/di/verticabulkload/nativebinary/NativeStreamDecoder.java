@@ -0,0 +1,209 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 - 2026 by Pentaho Canada Inc. : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2030-06-15
+ ******************************************************************************/
+
+
+package org.pentaho.di.verticabulkload.nativebinary;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads a stream in Vertica NATIVE format back into typed values, the way the COPY statement would. Used by the tests
+ * to check what the encoder produces.
+ * <p>
+ * The values are decoded into: <tt>Long</tt> for INTEGER and INTERVAL (microseconds), <tt>Boolean</tt>,
+ * <tt>Double</tt> for FLOAT, <tt>LocalDate</tt>, <tt>LocalTime</tt>, <tt>OffsetTime</tt> for TIMETZ,
+ * <tt>LocalDateTime</tt> for TIMESTAMP, <tt>Instant</tt> for TIMESTAMPTZ, <tt>BigDecimal</tt> for NUMERIC,
+ * <tt>String</tt> for CHAR and VARCHAR and <tt>byte[]</tt> for BINARY and VARBINARY.
+ * </p>
+ */
+public class NativeStreamDecoder {
+
+  static final byte[] SIGNATURE = { 'N', 'A', 'T', 'I', 'V', 'E', '\n', (byte) 0xFF, '\r', '\n', 0 };
+
+  private static final LocalDate BASE_DATE = LocalDate.of( 2000, 1, 1 );
+  private static final LocalDateTime BASE_DATE_TIME = BASE_DATE.atStartOfDay();
+  private static final Instant BASE_INSTANT = BASE_DATE_TIME.toInstant( ZoneOffset.UTC );
+
+  private final DataInputStream in;
+  private final List<ColumnSpec> columns;
+  private int[] widths;
+  private long rowCount;
+  private long bytesRead;
+
+  /**
+   * @param in      the stream, header included
+   * @param columns the target columns, giving the type of every value
+   */
+  public NativeStreamDecoder( InputStream in, List<ColumnSpec> columns ) {
+    this.in = new DataInputStream( in );
+    this.columns = columns;
+  }
+
+  /**
+   * Reads and checks the header of the stream.
+   *
+   * @return the width of every column, -1 for variable width ones
+   */
+  public int[] readHeader() throws IOException {
+    byte[] signature = new byte[ SIGNATURE.length ];
+    in.readFully( signature );
+    if ( !Arrays.equals( SIGNATURE, signature ) ) {
+      throw new IOException( "Not a NATIVE stream" );
+    }
+    ByteBuffer header = read( 4 );
+    int headerLength = header.getInt();
+    header = read( headerLength );
+    short version = header.getShort();
+    if ( version != 1 ) {
+      throw new IOException( "Unsupported NATIVE version " + version );
+    }
+    header.get(); // filler
+    int columnCount = header.getShort();
+    if ( columnCount != columns.size() || headerLength != 5 + 4 * columnCount ) {
+      throw new IOException( "Header describes " + columnCount + " columns, " + columns.size() + " expected" );
+    }
+    widths = new int[ columnCount ];
+    for ( int i = 0; i < columnCount; i++ ) {
+      widths[ i ] = header.getInt();
+    }
+    bytesRead = 0;
+    return widths;
+  }
+
+  /**
+   * Reads the next row, the header having been read already.
+   *
+   * @return the values of the row, <tt>null</tt> at the end of the stream
+   */
+  public Object[] readRow() throws IOException {
+    if ( widths == null ) {
+      throw new IllegalStateException( "The header was not read" );
+    }
+    int dataLength;
+    try {
+      dataLength = Integer.reverseBytes( in.readInt() );
+    } catch ( EOFException e ) {
+      return null;
+    }
+    bytesRead += 4;
+    ByteBuffer nulls = read( ( widths.length + 7 ) / 8 );
+    ByteBuffer data = read( dataLength );
+
+    Object[] row = new Object[ widths.length ];
+    for ( int i = 0; i < widths.length; i++ ) {
+      if ( ( nulls.get( i / 8 ) & ( 0x80 >>> ( i % 8 ) ) ) != 0 ) {
+        continue;
+      }
+      int width = widths[ i ] < 0 ? data.getInt() : widths[ i ];
+      row[ i ] = decode( columns.get( i ), width, data );
+    }
+    if ( data.hasRemaining() ) {
+      throw new IOException( "Row " + ( rowCount + 1 ) + " has " + data.remaining() + " bytes left after its values" );
+    }
+    rowCount++;
+    return row;
+  }
+
+  public long getRowCount() {
+    return rowCount;
+  }
+
+  /**
+   * @return the number of bytes of the rows read so far, the header excluded
+   */
+  public long getBytesRead() {
+    return bytesRead;
+  }
+
+  private Object decode( ColumnSpec column, int width, ByteBuffer data ) throws IOException {
+    switch ( column.type ) {
+      case INTEGER:
+        switch ( width ) {
+          case 1:
+            return (long) data.get();
+          case 2:
+            return (long) data.getShort();
+          case 4:
+            return (long) data.getInt();
+          default:
+            return data.getLong();
+        }
+      case BOOLEAN:
+        return data.get() != 0;
+      case FLOAT:
+        return data.getDouble();
+      case DATE:
+        return BASE_DATE.plusDays( data.getLong() );
+      case TIME:
+        return LocalTime.ofNanoOfDay( data.getLong() * 1000L );
+      case TIMETZ:
+        long timeTz = data.getLong();
+        int offsetSeconds = (int) ( timeTz & 0xFFFFFF ) - 24 * 3600;
+        return OffsetTime.of( LocalTime.ofNanoOfDay( ( timeTz >>> 24 ) * 1000L ), ZoneOffset.ofTotalSeconds(
+          offsetSeconds ) );
+      case TIMESTAMP:
+        return BASE_DATE_TIME.plus( data.getLong(), ChronoUnit.MICROS );
+      case TIMESTAMPTZ:
+        return BASE_INSTANT.plus( data.getLong(), ChronoUnit.MICROS );
+      case INTERVAL:
+        return data.getLong();
+      case UUID:
+        return new java.util.UUID( Long.reverseBytes( data.getLong() ), Long.reverseBytes( data.getLong() ) );
+      case NUMERIC:
+        BigInteger unscaled = BigInteger.ZERO;
+        for ( int word = 0; word < width / 8; word++ ) {
+          long value = data.getLong();
+          unscaled = unscaled.shiftLeft( 64 ).or( new BigInteger( Long.toUnsignedString( value ) ) );
+        }
+        if ( unscaled.testBit( width * 8 - 1 ) ) {
+          unscaled = unscaled.subtract( BigInteger.ONE.shiftLeft( width * 8 ) );
+        }
+        return new BigDecimal( unscaled, column.scale );
+      case CHAR:
+      case VARCHAR:
+        byte[] text = new byte[ width ];
+        data.get( text );
+        return new String( text, StandardCharsets.UTF_8 );
+      case BINARY:
+      case VARBINARY:
+        byte[] binary = new byte[ width ];
+        data.get( binary );
+        return binary;
+      default:
+        throw new IOException( "Unsupported column type " + column.type );
+    }
+  }
+
+  private ByteBuffer read( int length ) throws IOException {
+    byte[] bytes = new byte[ length ];
+    in.readFully( bytes );
+    bytesRead += length;
+    return ByteBuffer.wrap( bytes ).order( ByteOrder.LITTLE_ENDIAN );
+  }
+}
@@ -0,0 +1,154 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 - 2026 by Pentaho Canada Inc. : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2030-06-15
+ ******************************************************************************/
+
+
+package org.pentaho.di.verticabulkload.nativebinary;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.value.ValueMetaBigNumber;
+import org.pentaho.di.core.row.value.ValueMetaBinary;
+import org.pentaho.di.core.row.value.ValueMetaBoolean;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+/**
+ * Encodes rows of every common type and decodes the stream back, as the COPY statement would read it.
+ */
+public class NativeStreamRoundTripTest {
+
+  private static final int ROWS = 5000;
+  private static final long BASE_MILLIS = 1262349296789L; // 2010-01-01T12:34:56.789Z
+
+  private List<ColumnSpec> columns;
+  private RowMeta rowMeta;
+  private ExecutorService reader;
+
+  @Before
+  public void setUp() {
+    columns = new ArrayList<>();
+    rowMeta = new RowMeta();
+    add( new ColumnSpec( ColumnSpec.ConstantWidthType.INTEGER_64 ), new ValueMetaInteger( "id" ) );
+    add( new ColumnSpec( ColumnSpec.ConstantWidthType.INTEGER_32 ), new ValueMetaString( "small" ) );
+    add( new ColumnSpec( ColumnSpec.ConstantWidthType.BOOLEAN ), new ValueMetaBoolean( "flag" ) );
+    add( new ColumnSpec( ColumnSpec.ConstantWidthType.FLOAT ), new ValueMetaNumber( "ratio" ) );
+    add( new ColumnSpec( ColumnSpec.ConstantWidthType.DATE ), new ValueMetaDate( "day" ) );
+    add( new ColumnSpec( ColumnSpec.ConstantWidthType.TIMESTAMP ), new ValueMetaDate( "local_ts" ) );
+    add( new ColumnSpec( ColumnSpec.ConstantWidthType.TIMESTAMPTZ ), new ValueMetaDate( "utc_ts" ) );
+    add( new ColumnSpec( ColumnSpec.PrecisionScaleWidthType.NUMERIC, 20, 4 ), new ValueMetaBigNumber( "amount" ) );
+    add( new ColumnSpec( ColumnSpec.VariableWidthType.VARCHAR, 50 ), new ValueMetaString( "name" ) );
+    add( new ColumnSpec( ColumnSpec.UserDefinedWidthType.CHAR, 6 ), new ValueMetaString( "code" ) );
+    add( new ColumnSpec( ColumnSpec.VariableWidthType.VARBINARY, 20 ), new ValueMetaBinary( "payload" ) );
+    reader = Executors.newSingleThreadExecutor();
+  }
+
+  @After
+  public void tearDown() {
+    reader.shutdownNow();
+  }
+
+  @Test
+  public void testEveryValueIsReadBackAsWritten() throws Exception {
+    final ByteBufferRing ring = new ByteBufferRing( ByteBufferRing.DEFAULT_DEPTH );
+    Future<List<Object[]>> decoded = reader.submit( new Callable<List<Object[]>>() {
+      @Override
+      public List<Object[]> call() throws Exception {
+        NativeStreamDecoder decoder = new NativeStreamDecoder( ring.getInputStream(), columns );
+        int[] widths = decoder.readHeader();
+        assertArrayEquals( new int[] { 8, 4, 1, 8, 8, 8, 8, 16, -1, 6, -1 }, widths );
+        List<Object[]> rows = new ArrayList<>();
+        Object[] row;
+        while ( ( row = decoder.readRow() ) != null ) {
+          rows.add( row );
+        }
+        return rows;
+      }
+    } );
+
+    StreamEncoder encoder = new StreamEncoder( columns, ring, StreamEncoder.MINIMUM_BUFFER_SIZE );
+    encoder.writeHeader();
+    for ( int i = 0; i < ROWS; i++ ) {
+      encoder.writeRow( rowMeta, row( i ) );
+    }
+    encoder.close();
+
+    List<Object[]> rows = decoded.get();
+    assertEquals( ROWS, rows.size() );
+    for ( int i = 0; i < ROWS; i++ ) {
+      Object[] expected = row( i );
+      Object[] actual = rows.get( i );
+      if ( i % 7 == 0 ) {
+        for ( Object value : actual ) {
+          assertNull( value );
+        }
+        continue;
+      }
+      Date date = (Date) expected[ 4 ];
+      LocalDateTime local = LocalDateTime.ofInstant( date.toInstant(), ZoneId.systemDefault() );
+      assertEquals( expected[ 0 ], actual[ 0 ] );
+      assertEquals( Long.valueOf( (String) expected[ 1 ] ), actual[ 1 ] );
+      assertEquals( expected[ 2 ], actual[ 2 ] );
+      assertEquals( expected[ 3 ], actual[ 3 ] );
+      assertEquals( local.toLocalDate(), actual[ 4 ] );
+      assertEquals( local, actual[ 5 ] );
+      assertEquals( date.toInstant(), actual[ 6 ] );
+      assertEquals( ( (BigDecimal) expected[ 7 ] ).setScale( 4 ), actual[ 7 ] );
+      assertEquals( expected[ 8 ], actual[ 8 ] );
+      assertEquals( String.format( "%-6s", expected[ 9 ] ), actual[ 9 ] );
+      assertArrayEquals( (byte[]) expected[ 10 ], (byte[]) actual[ 10 ] );
+    }
+  }
+
+  private void add( ColumnSpec column, org.pentaho.di.core.row.ValueMetaInterface valueMeta ) {
+    columns.add( column );
+    rowMeta.addValueMeta( valueMeta );
+  }
+
+  private static Object[] row( int i ) {
+    if ( i % 7 == 0 ) {
+      return new Object[ 11 ];
+    }
+    Date date = new Date( BASE_MILLIS + i * 3_600_017L * ( i % 2 == 0 ? 1 : -1 ) );
+    return new Object[] {
+      i * 1_000_003L - 7,
+      String.valueOf( -i ),
+      i % 3 == 0,
+      i / 8.0,
+      date,
+      date,
+      date,
+      new BigDecimal( "12345678.9012" ).multiply( BigDecimal.valueOf( i % 2 == 0 ? i : -i ) ),
+      "name \u00e9\u4e2d " + i,
+      "c" + ( i % 100 ),
+      new byte[] { (byte) i, (byte) ( i >> 8 ), 0, -1 }
+    };
+  }
+}
@@ -0,0 +1,287 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 - 2026 by Pentaho Canada Inc. : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2030-06-15
+ ******************************************************************************/
+
+
+package org.pentaho.di.verticabulkload.nativebinary;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+public class ParallelStreamEncoderTest {
+
+  private List<ColumnSpec> columns;
+  private RowMeta rowMeta;
+  private ExecutorService reader;
+
+  @Before
+  public void setUp() {
+    columns = new ArrayList<>();
+    columns.add( new ColumnSpec( ColumnSpec.VariableWidthType.VARCHAR, 100 ) );
+    columns.add( new ColumnSpec( ColumnSpec.ConstantWidthType.INTEGER_64 ) );
+    rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "text" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "number" ) );
+    reader = Executors.newSingleThreadExecutor();
+  }
+
+  @After
+  public void tearDown() {
+    reader.shutdownNow();
+  }
+
+  @Test
+  public void testStreamIsTheSameAsEncodedOnOneThread() throws Exception {
+    ByteBufferRing serialRing = new ByteBufferRing( 8 );
+    Future<byte[]> serial = drain( serialRing );
+    StreamEncoder serialEncoder = new StreamEncoder( columns, serialRing, StreamEncoder.MINIMUM_BUFFER_SIZE );
+    serialEncoder.writeHeader();
+    for ( int i = 0; i < 20000; i++ ) {
+      serialEncoder.writeRow( rowMeta, row( i ) );
+    }
+    serialEncoder.close();
+
+    ByteBufferRing parallelRing = new ByteBufferRing( 8 );
+    Future<byte[]> parallel = drain( parallelRing );
+    StreamEncoder parallelEncoder =
+      new ParallelStreamEncoder( columns, parallelRing, StreamEncoder.MINIMUM_BUFFER_SIZE, 3 );
+    parallelEncoder.writeHeader();
+    for ( int i = 0; i < 20000; i++ ) {
+      parallelEncoder.writeRow( rowMeta, row( i ) );
+    }
+    parallelEncoder.close();
+
+    assertArrayEquals( serial.get(), parallel.get() );
+    assertEquals( serialEncoder.getLargestRowSize(), parallelEncoder.getLargestRowSize() );
+  }
+
+  @Test
+  public void testFieldsArePickedFromTheInputRow() throws Exception {
+    RowMeta inputRowMeta = new RowMeta();
+    inputRowMeta.addValueMeta( new ValueMetaString( "number" ) );
+    inputRowMeta.addValueMeta( new ValueMetaInteger( "unused" ) );
+    inputRowMeta.addValueMeta( new ValueMetaString( "text" ) );
+    int[] fields = { 2, 0 };
+
+    ByteBufferRing serialRing = new ByteBufferRing( 8 );
+    Future<byte[]> serial = drain( serialRing );
+    StreamEncoder serialEncoder = new StreamEncoder( columns, serialRing, StreamEncoder.MINIMUM_BUFFER_SIZE );
+    for ( int i = 0; i < 5000; i++ ) {
+      serialEncoder.writeRow( rowMeta, row( i ) );
+    }
+    serialEncoder.close();
+
+    ByteBufferRing parallelRing = new ByteBufferRing( 8 );
+    Future<byte[]> parallel = drain( parallelRing );
+    StreamEncoder parallelEncoder =
+      new ParallelStreamEncoder( columns, parallelRing, StreamEncoder.MINIMUM_BUFFER_SIZE, 3 );
+    for ( int i = 0; i < 5000; i++ ) {
+      Object[] row = row( i );
+      parallelEncoder.writeRow( inputRowMeta, new Object[] { row[ 1 ], (long) i, row[ 0 ] }, fields, null );
+    }
+    parallelEncoder.close();
+
+    assertArrayEquals( serial.get(), parallel.get() );
+  }
+
+  @Test
+  public void testRowsGrowingLargerStayInTheBuffersOfTheRing() throws Exception {
+    ByteBufferRing serialRing = new ByteBufferRing( 8 );
+    Future<byte[]> serial = drain( serialRing );
+    StreamEncoder serialEncoder = new StreamEncoder( columns, serialRing, StreamEncoder.MINIMUM_BUFFER_SIZE );
+    serialEncoder.writeHeader();
+    for ( int i = 0; i < 10000; i++ ) {
+      serialEncoder.writeRow( rowMeta, growingRow( i ) );
+    }
+    serialEncoder.close();
+
+    final List<Integer> capacities = new ArrayList<>();
+    ByteBufferRing parallelRing = new ByteBufferRing( 8 ) {
+      @Override
+      public ByteBuffer acquire( int capacity ) throws IOException {
+        ByteBuffer buffer = super.acquire( capacity );
+        capacities.add( buffer.capacity() );
+        return buffer;
+      }
+    };
+    Future<byte[]> parallel = drain( parallelRing );
+    StreamEncoder parallelEncoder =
+      new ParallelStreamEncoder( columns, parallelRing, StreamEncoder.MINIMUM_BUFFER_SIZE, 3 );
+    parallelEncoder.writeHeader();
+    for ( int i = 0; i < 10000; i++ ) {
+      parallelEncoder.writeRow( rowMeta, growingRow( i ) );
+    }
+    parallelEncoder.close();
+
+    assertArrayEquals( serial.get(), parallel.get() );
+    assertEquals( serialEncoder.getLargestRowSize(), parallelEncoder.getLargestRowSize() );
+    for ( int capacity : capacities ) {
+      assertEquals( StreamEncoder.MINIMUM_BUFFER_SIZE, capacity );
+    }
+  }
+
+  @Test
+  public void testAbortStopsTheEncoderThreads() throws Exception {
+    ByteBufferRing ring = new ByteBufferRing( 4 );
+    drain( ring );
+    ParallelStreamEncoder encoder = new ParallelStreamEncoder( columns, ring, StreamEncoder.MINIMUM_BUFFER_SIZE, 2 );
+    for ( int i = 0; i < 1000; i++ ) {
+      encoder.writeRow( rowMeta, row( i ) );
+    }
+
+    // the load fails before the end of the rows
+    encoder.abort();
+    ring.abort();
+
+    assertTrue( encoder.isShutdown() );
+  }
+
+  @Test
+  public void testRowsAreReportedInOrder() throws Exception {
+    ByteBufferRing ring = new ByteBufferRing( 4 );
+    Future<byte[]> stream = drain( ring );
+    ParallelStreamEncoder encoder = new ParallelStreamEncoder( columns, ring, StreamEncoder.MINIMUM_BUFFER_SIZE, 2 );
+    final List<Object> outcomes = new ArrayList<>();
+    encoder.setListener( new RowHandoffListener() {
+      @Override
+      public void rowEncoded( Object tag ) {
+        outcomes.add( tag );
+      }
+
+      @Override
+      public void rowRejected( Object tag, KettleValueException cause ) {
+        outcomes.add( "rejected " + tag );
+      }
+    } );
+
+    for ( int i = 0; i < 2000; i++ ) {
+      Object[] row = i == 1234 ? new Object[] { "bad", "not a number" } : row( i );
+      encoder.writeRow( rowMeta, row, i );
+    }
+    encoder.writeRow( rowMeta, null, null );
+    stream.get();
+
+    assertEquals( 2000, outcomes.size() );
+    for ( int i = 0; i < 2000; i++ ) {
+      assertEquals( i == 1234 ? "rejected 1234" : i, outcomes.get( i ) );
+    }
+  }
+
+  @Test
+  public void testChunksAreStreamsOfTheirOwn() throws Exception {
+    List<List<byte[]>> streams = new ArrayList<>();
+    for ( int threads = 0; threads <= 2; threads += 2 ) {
+      ByteBufferRing ring = new ByteBufferRing( 8 );
+      Future<List<byte[]>> chunks = drainChunks( ring );
+      StreamEncoder encoder = threads == 0
+        ? new StreamEncoder( columns, ring, StreamEncoder.MINIMUM_BUFFER_SIZE )
+        : new ParallelStreamEncoder( columns, ring, StreamEncoder.MINIMUM_BUFFER_SIZE, threads );
+      encoder.writeHeader();
+      for ( int i = 0; i < 2500; i++ ) {
+        if ( i > 0 && i % 1000 == 0 ) {
+          encoder.endChunk();
+        }
+        encoder.writeRow( rowMeta, row( i ) );
+      }
+      encoder.close();
+      streams.add( chunks.get() );
+    }
+
+    List<byte[]> serial = streams.get( 0 );
+    List<byte[]> parallel = streams.get( 1 );
+    assertEquals( 3, serial.size() );
+    assertEquals( 3, parallel.size() );
+    int[] expectedRows = { 1000, 1000, 500 };
+    for ( int c = 0; c < 3; c++ ) {
+      assertArrayEquals( serial.get( c ), parallel.get( c ) );
+      NativeStreamDecoder decoder = new NativeStreamDecoder( new ByteArrayInputStream( serial.get( c ) ), columns );
+      decoder.readHeader();
+      Object[] first = decoder.readRow();
+      assertEquals( "row " + ( c * 1000 ), first[ 0 ] );
+      while ( decoder.readRow() != null ) {
+        // count the rows
+      }
+      assertEquals( expectedRows[ c ], decoder.getRowCount() );
+    }
+  }
+
+  private static Object[] row( int i ) {
+    return new Object[] { "row " + i, String.valueOf( i * 7L ) };
+  }
+
+  /**
+   * A row ten times larger every 2000 rows, up to the width of the column.
+   */
+  private static Object[] growingRow( int i ) {
+    StringBuilder text = new StringBuilder( "row " + i );
+    for ( int size = 1; size < Math.min( 100, Math.pow( 10, i / 2000 ) ); size = text.length() ) {
+      text.append( '.' );
+    }
+    return new Object[] { text.toString(), String.valueOf( i * 7L ) };
+  }
+
+  private Future<List<byte[]>> drainChunks( final ByteBufferRing ring ) {
+    return reader.submit( new Callable<List<byte[]>>() {
+      @Override
+      public List<byte[]> call() throws IOException {
+        InputStream in = ring.getInputStream();
+        List<byte[]> chunks = new ArrayList<>();
+        do {
+          ByteArrayOutputStream out = new ByteArrayOutputStream();
+          byte[] chunk = new byte[ 8192 ];
+          int read;
+          while ( ( read = in.read( chunk, 0, chunk.length ) ) != -1 ) {
+            out.write( chunk, 0, read );
+          }
+          chunks.add( out.toByteArray() );
+        } while ( !ring.isDrained() );
+        return chunks;
+      }
+    } );
+  }
+
+  private Future<byte[]> drain( final ByteBufferRing ring ) {
+    return reader.submit( new Callable<byte[]>() {
+      @Override
+      public byte[] call() throws IOException {
+        InputStream in = ring.getInputStream();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] chunk = new byte[ 8192 ];
+        int read;
+        while ( ( read = in.read( chunk, 0, chunk.length ) ) != -1 ) {
+          out.write( chunk, 0, read );
+        }
+        return out.toByteArray();
+      }
+    } );
+  }
+}
@@ -0,0 +1,65 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 - 2026 by Pentaho Canada Inc. : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2030-06-15
+ ******************************************************************************/
+
+
+package org.pentaho.di.verticabulkload.nativebinary;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Test;
+
+public class RingCompressorTest {
+
+  @Test
+  public void everyChunkIsAGzipStreamOfItsOwn() throws Exception {
+    ByteBufferRing source = new ByteBufferRing( 4 );
+    ByteBufferRing target = new ByteBufferRing( 4 );
+    byte[] first = new byte[ 600000 ];
+    Arrays.fill( first, (byte) 'x' );
+    byte[] second = "second chunk".getBytes( "UTF-8" );
+    source.publish( ByteBuffer.wrap( first, 0, 300000 ) );
+    source.publish( ByteBuffer.wrap( first, 300000, 300000 ) );
+    source.endChunk();
+    source.publish( ByteBuffer.wrap( second ) );
+    source.close();
+
+    new RingCompressor( source, target ).compress();
+
+    InputStream in = target.getInputStream();
+    byte[] compressed = readFully( in );
+    assertTrue( compressed.length < first.length / 100 );
+    assertArrayEquals( first, readFully( new GZIPInputStream( new ByteArrayInputStream( compressed ) ) ) );
+    assertFalse( target.isDrained() );
+    assertArrayEquals( second, readFully( new GZIPInputStream( new ByteArrayInputStream( readFully( in ) ) ) ) );
+    assertTrue( target.isDrained() );
+  }
+
+  private static byte[] readFully( InputStream in ) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] chunk = new byte[ 8192 ];
+    int read;
+    while ( ( read = in.read( chunk, 0, chunk.length ) ) != -1 ) {
+      out.write( chunk, 0, read );
+    }
+    return out.toByteArray();
+  }
+}
@@ -16,22 +16,29 @@ package org.pentaho.di.verticabulkload.nativebinary;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
 
-import java.io.PipedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.pentaho.di.core.exception.KettleValueException;
 import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
 import org.pentaho.di.core.row.value.ValueMetaString;
 
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.spy;
-import static org.mockito.Mockito.when;
 
 /**
  * @author Tatsiana_Kasiankova
@@ -39,9 +46,16 @@ import static org.mockito.Mockito.when;
  */
 public class StreamEncoderTest {
 
-  private static final int NUM_ROWS_TO_BUFFER = 500;
-  private static final int MAXIMUM_BUFFER_SIZE = Integer.MAX_VALUE - 8;
-  private PipedInputStream inputStream = mock( PipedInputStream.class );
+  /**
+   * Bytes the encoder may allocate however many rows it writes, e.g. while the JIT compiles its methods
+   */
+  private static final long ALLOCATION_ALLOWANCE = 4 * 1024;
+  /**
+   * Bytes handing a buffer over to the ring may allocate, the node of its queue and a wait for a free buffer
+   */
+  private static final long HANDOFF_ALLOCATION_ALLOWANCE = 256;
+
+  private ByteBufferRing ring = new ByteBufferRing( ByteBufferRing.DEFAULT_DEPTH );
   private List<ColumnSpec> columns;
 
   @Before
@@ -55,14 +69,10 @@ public class StreamEncoderTest {
     ColumnSpec cs = new ColumnSpec( ColumnSpec.VariableWidthType.VARCHAR, maxTypeLenght );
     columns.add( cs );
     try {
-      StreamEncoder stEncoder = new StreamEncoder( columns, inputStream );
-
-      long expectedBufferSize = getExpectedBufferSize( maxTypeLenght, columns.size() );
-
-      // adding bytes for data size, since it is a varchar field
-      expectedBufferSize += columns.size() * 4 * maxTypeLenght;
+      StreamEncoder stEncoder = new StreamEncoder( columns, ring );
 
-      assertEquals( expectedBufferSize, stEncoder.getBuffer().capacity() );
+      // the byte budget, whatever the width of the columns
+      assertEquals( StreamEncoder.DEFAULT_BUFFER_SIZE, stEncoder.getBuffer().capacity() );
     } catch ( Exception e ) {
       fail( "There is not expected exception expected But was: " + e );
     }
@@ -79,7 +89,7 @@ public class StreamEncoderTest {
     columns.add( columnSpec );
 
     try {
-      StreamEncoder streamEncoder = new StreamEncoder( columns, inputStream );
+      StreamEncoder streamEncoder = new StreamEncoder( columns, ring );
       ByteBuffer byteBuffer = streamEncoder.getBuffer().duplicate();
 
       streamEncoder.writeRow( rowMeta, goodObjectData );
@@ -102,7 +112,7 @@ public class StreamEncoderTest {
     ByteBuffer byteBuffer = null;
     StreamEncoder streamEncoder = null;
     try {
-      streamEncoder = new StreamEncoder( columns, inputStream );
+      streamEncoder = new StreamEncoder( columns, ring );
       byteBuffer = streamEncoder.getBuffer().duplicate();
 
       streamEncoder.writeRow( rowMeta, badObjectData );
@@ -121,48 +131,199 @@ public class StreamEncoderTest {
   }
 
   @Test
-  public void testCountedBufferSizeIsInt_WhenToBufferAllRowMaxSizeRequiresMoreThenInt() throws Exception {
+  public void testStreamEncoderRejectsNullInNotNullColumn() throws Exception {
+    RowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "id" ) );
+    ColumnSpec columnSpec = new ColumnSpec( ColumnSpec.ConstantWidthType.INTEGER_64 );
+    columnSpec.setNullable( false );
+    columns.add( columnSpec );
+    StreamEncoder streamEncoder = new StreamEncoder( columns, ring );
+    int position = streamEncoder.getBuffer().position();
 
     try {
-      assertEquals( MAXIMUM_BUFFER_SIZE, getSpyStreamEncoder().countMainByteBufferSize() );
-    } catch ( Exception e ) {
-      fail( "There is no exception expected But was: " + e );
+      streamEncoder.writeRow( rowMeta, new Object[] { null } );
+      fail( "Test failed to throw a KettleValueException for a null value in a NOT NULL column" );
+    } catch ( KettleValueException ex ) {
+      assertEquals( position, streamEncoder.getBuffer().position() );
+      assertEquals( 1, streamEncoder.getColumnFailures( 0 ) );
     }
   }
 
-  private static long getExpectedBufferSize( int maxTypeLenght, int columnCount ) {
-    return getRowMaxSize( maxTypeLenght, columnCount ) * (long) NUM_ROWS_TO_BUFFER;
+  @Test
+  public void testBufferSizeIsNeverBelowTheMinimum() throws Exception {
+    columns.add( new ColumnSpec( ColumnSpec.ConstantWidthType.INTEGER_64 ) );
+    StreamEncoder stEncoder = new StreamEncoder( columns, ring, 1024 );
+
+    assertEquals( StreamEncoder.MINIMUM_BUFFER_SIZE, stEncoder.getBuffer().capacity() );
   }
 
-  private static int getRowMaxSize( int maxTypeLenght, int columnCount ) {
-    return getRowHeaderSize( columnCount ) + getAllColumnsMaxSize( maxTypeLenght, columnCount );
+  @Test
+  public void testBufferSizeIsCappedByTheByteBudget() throws Exception {
+    for ( int i = 0; i < 4; i++ ) {
+      columns.add( new ColumnSpec( ColumnSpec.VariableWidthType.VARCHAR, 65000 ) );
+    }
+    StreamEncoder stEncoder = new StreamEncoder( columns, ring, 1024 * 1024 );
+
+    assertEquals( 1024 * 1024, stEncoder.getBuffer().capacity() );
+  }
 
+  @Test
+  public void testRowLargerThanTheBufferIsWrittenToItsOwnBuffer() throws Exception {
+    RowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "text" ) );
+    columns.add( new ColumnSpec( ColumnSpec.VariableWidthType.VARCHAR, 200000 ) );
+    StreamEncoder stEncoder = new StreamEncoder( columns, ring, StreamEncoder.MINIMUM_BUFFER_SIZE );
+
+    char[] chars = new char[ 100000 ];
+    Arrays.fill( chars, 'x' );
+    stEncoder.writeRow( rowMeta, new Object[] { "small" } );
+    stEncoder.writeRow( rowMeta, new Object[] { new String( chars ) } );
+    stEncoder.writeRow( rowMeta, new Object[] { "small" } );
+    stEncoder.close();
+
+    ByteBuffer stream = ByteBuffer.wrap( readFully( ring.getInputStream() ) ).order( ByteOrder.LITTLE_ENDIAN );
+    assertEquals( 3 * ( 4 + 1 + 4 ) + 5 + 100000 + 5, stream.remaining() );
+    assertEquals( 4 + 5, stream.getInt( 0 ) );
+    assertEquals( 4 + 100000, stream.getInt( 4 + 1 + 4 + 5 ) );
+    assertEquals( 100009, stEncoder.getLargestRowSize() );
   }
 
-  private static int getAllColumnsMaxSize( int maxTypeLenght, int columnCount ) {
-    return maxTypeLenght * columnCount;
+  @Test
+  public void testRowLargerThanTheLargestBufferIsRejected() throws Exception {
+    RowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "text" ) );
+    columns.add( new ColumnSpec( ColumnSpec.VariableWidthType.VARCHAR, 500000 ) );
+    StreamEncoder stEncoder = new StreamEncoder( columns, ring, StreamEncoder.MINIMUM_BUFFER_SIZE );
+    stEncoder.setMaximumRowSize( 4 * StreamEncoder.MINIMUM_BUFFER_SIZE );
+    final List<Object> rejected = new ArrayList<>();
+    final List<Object> encoded = new ArrayList<>();
+    stEncoder.setListener( new RowHandoffListener() {
+      @Override
+      public void rowEncoded( Object tag ) {
+        encoded.add( tag );
+      }
+
+      @Override
+      public void rowRejected( Object tag, KettleValueException cause ) {
+        rejected.add( tag );
+      }
+    } );
+
+    char[] chars = new char[ 300000 ];
+    Arrays.fill( chars, 'x' );
+    stEncoder.writeRow( rowMeta, new Object[] { new String( chars ) }, "huge" );
+    stEncoder.writeRow( rowMeta, new Object[] { "small" }, "small" );
+
+    assertEquals( Arrays.asList( "huge" ), rejected );
+    assertEquals( Arrays.asList( "small" ), encoded );
+  }
 
+  @Test
+  public void testRowsPickedByAFieldMapAreNotCopied() throws Exception {
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    assumeTrue( threads instanceof com.sun.management.ThreadMXBean
+        && ( (com.sun.management.ThreadMXBean) threads ).isThreadAllocatedMemorySupported() );
+    com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+
+    RowMeta inputRowMeta = new RowMeta();
+    inputRowMeta.addValueMeta( new ValueMetaString( "unused" ) );
+    inputRowMeta.addValueMeta( new ValueMetaNumber( "value" ) );
+    inputRowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    columns.add( new ColumnSpec( ColumnSpec.ConstantWidthType.INTEGER_64 ) );
+    columns.add( new ColumnSpec( ColumnSpec.ConstantWidthType.FLOAT ) );
+    int[] fields = { 2, 1 };
+    Object[][] rows = new Object[ 64 ][];
+    for ( int i = 0; i < rows.length; i++ ) {
+      rows[ i ] = new Object[] { "unused", i * 0.5, (long) i };
+    }
+    final ByteBufferRing drainedRing = new ByteBufferRing( ByteBufferRing.DEFAULT_DEPTH );
+    Thread drainer = new Thread( new Runnable() {
+      @Override
+      public void run() {
+        try {
+          readFully( drainedRing.getInputStream() );
+        } catch ( IOException e ) {
+          // the test fails on the encoder side
+        }
+      }
+    } );
+    drainer.start();
+    StreamEncoder stEncoder = new StreamEncoder( columns, drainedRing, StreamEncoder.MINIMUM_BUFFER_SIZE );
+
+    int rowCount = 200000;
+    for ( int i = 0; i < rowCount; i++ ) {
+      stEncoder.writeRow( inputRowMeta, rows[ i & 63 ], fields, null );
+    }
+    long threadId = Thread.currentThread().getId();
+    long handOffsBefore = drainedRing.getPublishedBuffers();
+    long before = allocations.getThreadAllocatedBytes( threadId );
+    for ( int i = 0; i < rowCount; i++ ) {
+      stEncoder.writeRow( inputRowMeta, rows[ i & 63 ], fields, null );
+    }
+    long allocated = allocations.getThreadAllocatedBytes( threadId ) - before;
+    long handOffs = drainedRing.getPublishedBuffers() - handOffsBefore;
+    stEncoder.close();
+    drainer.join();
+
+    // only handing the full buffers over to the ring allocates, a copy of the rows would take 24 bytes each
+    assertTrue( "Allocated " + allocated + " bytes for " + handOffs + " buffers",
+        allocated <= ALLOCATION_ALLOWANCE + handOffs * HANDOFF_ALLOCATION_ALLOWANCE );
   }
 
-  private static int getRowHeaderSize( int colCount ) {
-    return 4 + columnCountAsBytes( colCount );
+  @Test
+  public void testRowsAfterAnOversizedRowShareTheirBuffers() throws Exception {
+    RowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "text" ) );
+    columns.add( new ColumnSpec( ColumnSpec.VariableWidthType.VARCHAR, 200000 ) );
+    // deep enough for a buffer per row, so that a regression fails instead of waiting for a reader
+    ByteBufferRing deepRing = new ByteBufferRing( 256 );
+    StreamEncoder stEncoder = new StreamEncoder( columns, deepRing, StreamEncoder.MINIMUM_BUFFER_SIZE );
+
+    char[] chars = new char[ 100000 ];
+    Arrays.fill( chars, 'x' );
+    stEncoder.writeRow( rowMeta, new Object[] { "small" } );
+    stEncoder.writeRow( rowMeta, new Object[] { new String( chars ) } );
+    for ( int i = 0; i < 100; i++ ) {
+      stEncoder.writeRow( rowMeta, new Object[] { "small" } );
+    }
+    stEncoder.close();
 
+    // the first small row, the oversized one and the 100 others
+    assertEquals( 3, deepRing.getPublishedBuffers() );
+    assertEquals( 100009, stEncoder.getLargestRowSize() );
   }
 
-  private static int columnCountAsBytes( int colCount ) {
-    return (int) Math.ceil( (double) colCount / 8.0d );
+  @Test
+  public void testFailuresAreCountedByColumn() throws Exception {
+    RowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "text" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "number" ) );
+    columns.add( new ColumnSpec( ColumnSpec.VariableWidthType.VARCHAR, 10 ) );
+    columns.add( new ColumnSpec( ColumnSpec.ConstantWidthType.INTEGER_64 ) );
+    StreamEncoder stEncoder = new StreamEncoder( columns, ring );
+
+    stEncoder.writeRow( rowMeta, new Object[] { "ok", "1" } );
+    for ( Object[] row : new Object[][] { { "ok", "aa" }, { "ok", "bb" }, { "far too long text", "1" } } ) {
+      try {
+        stEncoder.writeRow( rowMeta, row );
+        fail( "Row must be rejected" );
+      } catch ( KettleValueException expected ) {
+        // expected
+      }
+    }
+
+    assertEquals( 1, stEncoder.getColumnFailures( 0 ) );
+    assertEquals( 2, stEncoder.getColumnFailures( 1 ) );
   }
 
-  private static StreamEncoder getSpyStreamEncoder() throws Exception {
-    int maxTypeLenght = 500;
-    ColumnSpec cs = new ColumnSpec( ColumnSpec.VariableWidthType.VARCHAR, maxTypeLenght );
-    List<ColumnSpec> columns = new ArrayList<>();
-    columns.add( cs );
-    PipedInputStream inputStream = mock( PipedInputStream.class );
-    StreamEncoder stEncoder = new StreamEncoder( columns, inputStream );
-    StreamEncoder stEncoderSpy = spy( stEncoder );
-    when( stEncoderSpy.getRowMaxSize() ).thenReturn( Integer.MAX_VALUE + 25 );
-    return stEncoderSpy;
+  private static byte[] readFully( InputStream in ) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] chunk = new byte[ 8192 ];
+    int read;
+    while ( ( read = in.read( chunk, 0, chunk.length ) ) != -1 ) {
+      out.write( chunk, 0, read );
+    }
+    return out.toByteArray();
   }
 
 }
@@ -0,0 +1,78 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 - 2026 by Pentaho Canada Inc. : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2030-06-15
+ ******************************************************************************/
+
+
+package org.pentaho.di.verticabulkload.nativebinary;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleValueException;
+
+public class Utf8EncoderTest {
+
+  @Test
+  public void encodesLikeTheJdk() throws Exception {
+    String[] strings = {
+      "", "plain ascii", "caf\u00e9", "\u00e9t\u00e9 \u00e0 Z\u00fcrich", "\u65e5\u672c\u8a9e", "\ud83d\ude00 smile",
+      "mixed a\u00df\u20ac\ud834\udd1e" };
+    for ( String string : strings ) {
+      ByteBuffer buffer = ByteBuffer.allocate( 64 );
+      buffer.put( (byte) 1 );
+
+      int written = Utf8Encoder.encode( buffer, string, 0 );
+
+      byte[] expected = string.getBytes( StandardCharsets.UTF_8 );
+      assertEquals( string, expected.length, written );
+      assertEquals( string, 1 + expected.length, buffer.position() );
+      assertArrayEquals( string, expected, Arrays.copyOfRange( buffer.array(), 1, 1 + written ) );
+    }
+  }
+
+  @Test
+  public void replacesUnpairedSurrogates() throws Exception {
+    ByteBuffer buffer = ByteBuffer.allocate( 8 );
+    Utf8Encoder.encode( buffer, "a\ud83db", 0 );
+    assertArrayEquals( new byte[] { 'a', '?', 'b' }, Arrays.copyOf( buffer.array(), buffer.position() ) );
+  }
+
+  @Test
+  public void rejectsValuesLongerThanTheColumn() throws Exception {
+    ByteBuffer buffer = ByteBuffer.allocate( 16 );
+    Utf8Encoder.encode( buffer, "caf\u00e9", 5 );
+    try {
+      // 4 chars but 5 bytes
+      Utf8Encoder.encode( buffer, "caf\u00e9", 4 );
+      fail( "The value does not fit into the column" );
+    } catch ( KettleValueException expected ) {
+      assertEquals( 5, buffer.position() );
+    }
+  }
+
+  @Test
+  public void overflowLeavesThePositionUnchanged() throws Exception {
+    ByteBuffer buffer = ByteBuffer.allocate( 4 );
+    try {
+      Utf8Encoder.encode( buffer, "\u65e5\u672c", 0 );
+      fail( "The buffer is too small" );
+    } catch ( BufferOverflowException expected ) {
+      assertEquals( 0, buffer.position() );
+    }
+  }
+}
@@ -0,0 +1,105 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 - 2026 by Pentaho Canada Inc. : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2030-06-15
+ ******************************************************************************/
+
+
+package org.pentaho.di.verticabulkload.nativebinary;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.Random;
+import java.util.TimeZone;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks the calendar-free temporal encoding against the calendar based one it replaces.
+ */
+public class ZoneOffsetTableTest {
+
+  private static final String[] ZONES = {
+    "UTC", "Europe/Moscow", "America/New_York", "America/Sao_Paulo", "Australia/Lord_Howe", "Asia/Kolkata",
+    "Pacific/Apia" };
+
+  private TimeZone defaultTimeZone;
+
+  @Before
+  public void setUp() {
+    defaultTimeZone = TimeZone.getDefault();
+  }
+
+  @After
+  public void tearDown() {
+    TimeZone.setDefault( defaultTimeZone );
+  }
+
+  @Test
+  public void offsetsMatchTheTimeZone() {
+    Random random = new Random( 13667 );
+    for ( String zone : ZONES ) {
+      TimeZone timeZone = TimeZone.getTimeZone( zone );
+      ZoneOffsetTable table = new ZoneOffsetTable( timeZone );
+      for ( int i = 0; i < 20000; i++ ) {
+        long millis = randomMillis( random );
+        assertEquals( zone + " " + millis, timeZone.getOffset( millis ), table.getOffset( millis ) );
+      }
+    }
+  }
+
+  @Test
+  public void localWritersMatchTheCalendar() {
+    Random random = new Random( 42 );
+    for ( String zone : ZONES ) {
+      TimeZone.setDefault( TimeZone.getTimeZone( zone ) );
+      ZoneOffsetTable table = ZoneOffsetTable.forDefaultZone();
+      ColumnWriters.LocalTemporalWriter[] writers = {
+        new ColumnWriters.DateWriter( null, true ),
+        new ColumnWriters.TimeWriter( null, true ),
+        new ColumnWriters.TimestampWriter( null, true ) };
+      GregorianCalendar calendar = new GregorianCalendar();
+      for ( int i = 0; i < 20000; i++ ) {
+        Date date = new Date( randomMillis( random ) );
+        calendar.setTime( date );
+        long localMillis = table.toLocalMillis( date.getTime() );
+        for ( ColumnWriters.LocalTemporalWriter writer : writers ) {
+          assertEquals( zone + " " + date.getTime(), writer.encodeCalendar( calendar, date ),
+            writer.encodeLocal( localMillis, date ) );
+        }
+      }
+    }
+  }
+
+  @Test
+  public void timestampKeepsMicroseconds() {
+    Timestamp timestamp = new Timestamp( 946684800123L );
+    timestamp.setNanos( 123456789 );
+
+    assertEquals( 123456L, new ColumnWriters.TimestampTzWriter( null, true ).encode( timestamp ) );
+  }
+
+  @Test
+  public void datesBeforeTheTableAreNotCovered() {
+    ZoneOffsetTable table = new ZoneOffsetTable( TimeZone.getTimeZone( "UTC" ) );
+    assertFalse( table.covers( ZoneOffsetTable.MIN_MILLIS - 1 ) );
+    assertFalse( table.covers( ZoneOffsetTable.MAX_MILLIS ) );
+  }
+
+  private static long randomMillis( Random random ) {
+    return ZoneOffsetTable.MIN_MILLIS
+      + (long) ( random.nextDouble() * ( ZoneOffsetTable.MAX_MILLIS - ZoneOffsetTable.MIN_MILLIS ) );
+  }
+}